@@ -0,0 +1,231 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * A concurrency limit that adapts while tests run, so one setting suits both a 64 core CI agent and a 2 core jump
+ * box. It starts small and grows quickly (doubling each window, like TCP slow start) until the first sign of
+ * congestion, then grows by one test per window (additive increase) and backs off by a fraction whenever
+ * congestion is seen again (multiplicative decrease).
+ *
+ * Congestion is either:-
+ *    the tests' latency (smoothed) rising well above the best latency seen, a sign the targets (or this host)
+ *    are struggling, or
+ *    this host being overloaded, it's 1 minute load average, or the number of runnable processes right now (from
+ *    /proc/loadavg on Linux), being above the number of CPUs.
+ *
+ * The limit can be shared by concurrent runs, and read (e.g. for monitoring) from any thread.
+ */
+public class AdaptiveConcurrencyLimit {
+    public static final int INITIAL_LIMIT                   = 2;
+
+    private static final Logger LOGGER                      = Logger.getLogger(AdaptiveConcurrencyLimit.class);
+    private static final double LATENCY_TOLERANCE           = 2.0;  // Smoothed latency vs best before backing off
+    private static final double BACKOFF_RATIO               = 0.75; // How much of the limit is kept on congestion
+    private static final double SMOOTHING                   = 0.2;  // Weight of a new latency sample
+    private static final double BASELINE_DRIFT              = 0.01; // How quickly the best latency can drift up
+    private static final long MIN_LATENCY_NS                = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long HOST_LOAD_SAMPLE_INTERVAL_NS  = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final HostLoad hostLoad;
+
+    private volatile double limit;
+    private volatile int lowestLimit;
+    private volatile int highestLimit;
+    private boolean slowStart                               = true;
+    private long completionsUntilNextBackoff                = 0;
+    private double baselineLatencyNs                        = 0;
+    private double smoothedLatencyNs                        = 0;
+    private long nextHostLoadSampleNs                       = System.nanoTime();
+    private boolean hostOverloaded                          = false;
+    private volatile int backoffs                           = 0;
+
+    /**
+     * @param maxLimit The most tests that can ever be in flight at once
+     */
+    public AdaptiveConcurrencyLimit(final int maxLimit) {
+        this(1, maxLimit, new HostLoad());
+    }
+
+    /**
+     * @param minLimit The fewest tests that are kept in flight at once
+     * @param maxLimit The most tests that can ever be in flight at once
+     * @param hostLoad How overloaded this host is
+     */
+    AdaptiveConcurrencyLimit(final int minLimit, final int maxLimit, final HostLoad hostLoad) {
+        ////////////////
+        // Sanity checks
+        if(minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("minLimit must be > 0 and maxLimit must be >= minLimit");
+        }
+
+        this.minLimit       = minLimit;
+        this.maxLimit       = maxLimit;
+        this.hostLoad       = hostLoad;
+        this.limit          = Math.max(minLimit, Math.min(maxLimit, INITIAL_LIMIT));
+        this.lowestLimit    = getLimit();
+        this.highestLimit   = getLimit();
+    }
+
+    /**
+     * @return How many tests can be in flight right now
+     */
+    public int getLimit() {
+        return (int)limit;
+    }
+
+    public int getLowestLimit() {
+        return lowestLimit;
+    }
+
+    public int getHighestLimit() {
+        return highestLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Adjust the limit after a test has completed.
+     *
+     * @param elapsedNs How long the test took, 0 if unknown
+     * @param inFlight How many tests were in flight (including this one) when it completed
+     */
+    public synchronized void onTestComplete(final long elapsedNs, final int inFlight) {
+        boolean congested = isHostOverloaded() || isLatencyCongested(elapsedNs);
+
+        if(congested) {
+            slowStart = false;
+
+            ////////////////////////////////////////////////////////////////////////
+            // Back off at most once per window, the tests already in flight were
+            // started before the last back off and will report the same congestion
+            if(completionsUntilNextBackoff <= 0) {
+                limit                       = Math.max(minLimit, limit * BACKOFF_RATIO);
+                completionsUntilNextBackoff = Math.max(1, inFlight);
+                backoffs++;
+
+                LOGGER.debug(String.format("onTestComplete: Congestion, limit now %d", getLimit()));
+            }
+        } else if(inFlight >= getLimit()) {
+            ////////////////////////////////////////////////////////////////////
+            // Only grow while the limit is actually being used
+            if(slowStart) {
+                limit = Math.min(maxLimit, limit + 1);
+            } else {
+                limit = Math.min(maxLimit, limit + (1.0 / limit));
+            }
+        }
+
+        completionsUntilNextBackoff--;
+
+        lowestLimit     = Math.min(lowestLimit, getLimit());
+        highestLimit    = Math.max(highestLimit, getLimit());
+    }
+
+    /**
+     * Track the best (baseline) and smoothed latency, the baseline is allowed to drift up slowly in case the
+     * targets just got slower.
+     *
+     * @return true if the smoothed latency is well above the baseline
+     */
+    private boolean isLatencyCongested(final long elapsedNs) {
+        if(elapsedNs <= 0) {
+            return false;
+        }
+
+        double sampleNs = Math.max(MIN_LATENCY_NS, elapsedNs);
+
+        if(0 == baselineLatencyNs) {
+            baselineLatencyNs = sampleNs;
+            smoothedLatencyNs = sampleNs;
+
+            return false;
+        }
+
+        smoothedLatencyNs = (SMOOTHING * sampleNs) + ((1 - SMOOTHING) * smoothedLatencyNs);
+
+        if(sampleNs < baselineLatencyNs) {
+            baselineLatencyNs = sampleNs;
+        } else {
+            baselineLatencyNs += (sampleNs - baselineLatencyNs) * BASELINE_DRIFT;
+        }
+
+        return smoothedLatencyNs > (baselineLatencyNs * LATENCY_TOLERANCE);
+    }
+
+    /**
+     * Sample the host load, at most every quarter of a second.
+     */
+    private boolean isHostOverloaded() {
+        long nowNs = System.nanoTime();
+
+        if(nowNs - nextHostLoadSampleNs >= 0) {
+            hostOverloaded          = hostLoad.isOverloaded();
+            nextHostLoadSampleNs    = nowNs + HOST_LOAD_SAMPLE_INTERVAL_NS;
+        }
+
+        return hostOverloaded;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "limit [%d], lowest [%d], highest [%d], max [%d], backoffs [%d]",
+                getLimit(), lowestLimit, highestLimit, maxLimit, backoffs);
+    }
+
+    /**
+     * How overloaded this host is, from the system load average and the number of runnable processes.
+     */
+    static class HostLoad {
+        private static final Path PROC_LOADAVG  = Paths.get("/proc/loadavg");
+
+        private final int cpus                  = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * @return true if there is more runnable work than CPUs to run it
+         */
+        boolean isOverloaded() {
+            double loadAverage  = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+            int runnable        = getRunnableCount();
+
+            return (loadAverage > cpus) || (runnable > cpus);
+        }
+
+        /**
+         * @return The number of processes (threads) runnable right now, or -1 if not known
+         */
+        int getRunnableCount() {
+            if(! Files.isReadable(PROC_LOADAVG)) {
+                return -1;
+            }
+
+            try {
+                /////////////////////////////////////////////////////////////
+                // e.g. "0.52 0.58 0.59 3/1093 12345", the 4th is runnable/all
+                List<String> lines  = Files.readAllLines(PROC_LOADAVG);
+                String[] fields     = lines.get(0).split("\\s+");
+
+                return Integer.parseInt(fields[3].substring(0, fields[3].indexOf('/')));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("getRunnableCount: Problem reading " + PROC_LOADAVG, e);
+
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pearceful.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * A Smoke test that can run without blocking a thread while it waits (e.g. for a child process to exit).
+ *
+ * When run by SmokeTestContext in ASYNC mode, executeAsync is called instead of the blocking lifecycle methods,
+ * in any other mode the strategy is run as a plain SmokeTestStrategy.
+ */
+public interface AsyncSmokeTestStrategy extends SmokeTestStrategy {
+    /**
+     * Start the smoke test, calling preExecute before and postExecute after it's work, and return straight away.
+     *
+     * If the returned future is cancelled, the strategy should stop any work it still has running.
+     *
+     * @param executor For any (short) pieces of work that need a thread
+     *
+     * @return A future completed with the result of validate
+     */
+    public CompletableFuture<SmokeTestResult> executeAsync(Executor executor);
+}
@@ -1,5 +1,9 @@
 package com.pearceful.util;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * Created by pjp on 2015-12-26.
  *
@@ -8,10 +12,47 @@ package com.pearceful.util;
 public abstract class BaseSmokeTestStrategy implements SmokeTestStrategy {
     protected String id;
     protected SmokeTestResult smokeTestResult;
+    protected Set<String> dependsOn = new LinkedHashSet<>();
+    protected RetryPolicy retryPolicy = RetryPolicy.NONE;
+    protected String group;
 
     @Override
     public String getId() { return id; }
 
+    @Override
+    public Set<String> getDependsOn() { return dependsOn; }
+
+    @Override
+    public RetryPolicy getRetryPolicy() { return retryPolicy; }
+
+    @Override
+    public String getGroup() { return group; }
+
+    /**
+     * @param dependsOn The ids of the tests that must pass before this one is run
+     */
+    public void setDependsOn(final Collection<String> dependsOn) {
+        this.dependsOn = new LinkedHashSet<>(dependsOn);
+    }
+
+    /**
+     * @param retryPolicy How often (and how soon) the test is re-run if it does not pass
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        if(null == retryPolicy) {
+            throw new IllegalArgumentException("retryPolicy cannot be null");
+        }
+
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * @param group The concurrency group (e.g. a shared backend) the test belongs to, null for none
+     */
+    public void setGroup(final String group) {
+        this.group = group;
+    }
+
     @Override
     public void preExecute() {
     }
@@ -0,0 +1,354 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * A compact store of a (very large) run's results, for when holding every SmokeTestResult, and it's message (often a
+ * command line and all of it's output), would take too much heap. Hand it to a run as the run's own listener, then
+ * read the results back through it's (read only) List view, in the order they completed.
+ *
+ * Each result is kept as columns of primitives (it's state, elapsed time and the time of each of it's phases) with
+ * it's id interned, and it's message is written to a spill file that is only read back when the message is asked
+ * for, so summaries over the results never load the messages. The attempt times and latency histograms are only
+ * kept for the results that have them (those that were retried or repeated).
+ *
+ * It is not thread safe, as a run's own listener it is only called from the thread running the run.
+ */
+public class CompactResultStore extends AbstractList<SmokeTestResult>
+        implements RandomAccess, SmokeTestListener, AutoCloseable {
+
+    private static final Logger LOGGER                      = Logger.getLogger(CompactResultStore.class);
+    private static final int INITIAL_CAPACITY               = 1024;
+    private static final int SPILL_BUFFER_BYTES             = 64 * 1024;
+    private static final int NO_MESSAGE                     = -1;
+    private static final long NOT_TIMED                     = -1;
+    private static final SmokeTestResult.STATE[] STATES     = SmokeTestResult.STATE.values();
+    private static final SmokeTestResult.PHASE[] PHASES     = SmokeTestResult.PHASE.values();
+
+    private final Path spillFile;
+    private final FileChannel spill;
+    private final ByteBuffer spillBuffer                    = ByteBuffer.allocate(SPILL_BUFFER_BYTES);
+    private long spillSize                                  = 0;    // Including what is still in the buffer
+
+    private int size                                        = 0;
+    private String[] ids                                    = new String[INITIAL_CAPACITY];
+    private byte[] states                                   = new byte[INITIAL_CAPACITY];
+    private long[] elapsedNanoSeconds                       = new long[INITIAL_CAPACITY];
+    private long[] messageOffsets                           = new long[INITIAL_CAPACITY];
+    private int[] messageLengths                            = new int[INITIAL_CAPACITY];
+    private final long[][] phaseNanoSeconds                 = new long[PHASES.length][];    // Only phases timed
+    private final Map<Integer, long[]> attemptElapsedNanoSeconds    = new HashMap<>();      // Only if retried
+    private final Map<Integer, LatencyHistogram> latencyHistograms  = new HashMap<>();      // Only if repeated
+    private final int[] stateCounts                         = new int[STATES.length];
+
+    /**
+     * Create a store, spilling the messages to a temporary file (deleted on close).
+     *
+     * @throws IOException If the spill file could not be created
+     */
+    public CompactResultStore() throws IOException {
+        this(Files.createTempFile("st-results-", ".spill"));
+    }
+
+    /**
+     * @param spillFile Where to spill the messages to, it is replaced if it exists and deleted on close
+     *
+     * @throws IOException If the spill file could not be opened
+     */
+    public CompactResultStore(final Path spillFile) throws IOException {
+        this.spillFile  = spillFile;
+        this.spill      = FileChannel.open(
+                                spillFile,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING,
+                                StandardOpenOption.READ,
+                                StandardOpenOption.WRITE);
+
+        spillFile.toFile().deleteOnExit();
+    }
+
+    /**
+     * Add a result to the store, it's message is spilled straight away.
+     */
+    @Override
+    public void onTestComplete(final SmokeTestResult smokeTestResult) {
+        if(size == ids.length) {
+            grow();
+        }
+
+        int index                   = size++;
+        ids[index]                  = smokeTestResult.getId().intern();
+        states[index]               = (byte)smokeTestResult.getState().ordinal();
+        elapsedNanoSeconds[index]   = smokeTestResult.getElapsedNanoSeconds();
+        messageOffsets[index]       = spillSize;
+        messageLengths[index]       = spillMessage(smokeTestResult.getMessage());
+
+        stateCounts[states[index]]++;
+
+        for(Map.Entry<SmokeTestResult.PHASE, Long> phase : smokeTestResult.getPhaseNanoSeconds().entrySet()) {
+            phaseColumn(phase.getKey().ordinal())[index] = phase.getValue();
+        }
+
+        if(smokeTestResult.getAttempts() > 1) {
+            attemptElapsedNanoSeconds.put(index, smokeTestResult.getAttemptElapsedNanoSeconds());
+        }
+
+        if(null != smokeTestResult.getLatencyHistogram()) {
+            latencyHistograms.put(index, smokeTestResult.getLatencyHistogram());
+        }
+    }
+
+    /**
+     * @param index Which result, in the order they completed
+     *
+     * @return A view of the result, it's message is only read from the spill file when asked for
+     */
+    @Override
+    public SmokeTestResult get(final int index) {
+        return new StoredResult(checkIndex(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String getId(final int index) {
+        return ids[checkIndex(index)];
+    }
+
+    public SmokeTestResult.STATE getState(final int index) {
+        return STATES[states[checkIndex(index)]];
+    }
+
+    public long getElapsedNanoSeconds(final int index) {
+        return elapsedNanoSeconds[checkIndex(index)];
+    }
+
+    /**
+     * @return How many of the results are in the state, without looking at them
+     */
+    public int getCount(final SmokeTestResult.STATE state) {
+        return stateCounts[state.ordinal()];
+    }
+
+    /**
+     * @return How many of the results did not pass
+     */
+    public int getFailedCount() {
+        int failedCount = 0;
+
+        for(SmokeTestResult.STATE state : STATES) {
+            if(! state.isPass()) {
+                failedCount += stateCounts[state.ordinal()];
+            }
+        }
+
+        return failedCount;
+    }
+
+    /**
+     * @param index Which result, in the order they completed
+     *
+     * @return It's message, read back from the spill file
+     */
+    public String getMessage(final int index) {
+        int length = messageLengths[checkIndex(index)];
+
+        if(NO_MESSAGE == length) {
+            return null;
+        }
+
+        try {
+            flushSpill();
+
+            ByteBuffer message  = ByteBuffer.allocate(length);
+            long offset         = messageOffsets[index];
+
+            while(message.hasRemaining()) {
+                if(spill.read(message, offset + message.position()) < 0) {
+                    throw new IOException("Spill file ends before message [" + index + "]");
+                }
+            }
+
+            return new String(message.array(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            //////////////////////////////////////////////////////////
+            // Only the message is lost, the rest of the result stands
+            LOGGER.error("getMessage: Problem reading message [" + index + "] from [" + spillFile + "]", e);
+
+            return "Message not available: " + e;
+        }
+    }
+
+    /**
+     * @return How many bytes of messages have been spilled
+     */
+    public long getSpillSize() {
+        return spillSize;
+    }
+
+    /**
+     * Close and delete the spill file, the messages can no longer be read.
+     */
+    @Override
+    public void close() {
+        try {
+            spill.close();
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            LOGGER.warn("close: Problem deleting spill file [" + spillFile + "]", e);
+        }
+    }
+
+    /**
+     * Write the message to the spill file (through the buffer).
+     *
+     * @return How many bytes it took, or NO_MESSAGE
+     */
+    private int spillMessage(final String message) {
+        if(null == message) {
+            return NO_MESSAGE;
+        }
+
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if(bytes.length > spillBuffer.remaining()) {
+                flushSpill();
+            }
+
+            if(bytes.length > spillBuffer.capacity()) {
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+
+                while(large.hasRemaining()) {
+                    spill.write(large, spillSize + large.position());
+                }
+            } else {
+                spillBuffer.put(bytes);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("spillMessage: Problem writing to [" + spillFile + "]", e);
+        }
+
+        spillSize += bytes.length;
+
+        return bytes.length;
+    }
+
+    private void flushSpill() throws IOException {
+        if(0 == spillBuffer.position()) {
+            return;
+        }
+
+        spillBuffer.flip();
+
+        long offset = spillSize - spillBuffer.remaining();
+
+        while(spillBuffer.hasRemaining()) {
+            offset += spill.write(spillBuffer, offset);
+        }
+
+        spillBuffer.clear();
+    }
+
+    /**
+     * @return The phase's column, created (with every earlier result not timed) the first time the phase is seen
+     */
+    private long[] phaseColumn(final int phase) {
+        if(null == phaseNanoSeconds[phase]) {
+            phaseNanoSeconds[phase] = new long[ids.length];
+            Arrays.fill(phaseNanoSeconds[phase], NOT_TIMED);
+        }
+
+        return phaseNanoSeconds[phase];
+    }
+
+    private void grow() {
+        int capacity        = ids.length * 2;
+
+        ids                 = Arrays.copyOf(ids, capacity);
+        states              = Arrays.copyOf(states, capacity);
+        elapsedNanoSeconds  = Arrays.copyOf(elapsedNanoSeconds, capacity);
+        messageOffsets      = Arrays.copyOf(messageOffsets, capacity);
+        messageLengths      = Arrays.copyOf(messageLengths, capacity);
+
+        for(int phase = 0 ; phase < PHASES.length ; phase++) {
+            if(null != phaseNanoSeconds[phase]) {
+                int oldCapacity         = phaseNanoSeconds[phase].length;
+                phaseNanoSeconds[phase] = Arrays.copyOf(phaseNanoSeconds[phase], capacity);
+
+                Arrays.fill(phaseNanoSeconds[phase], oldCapacity, capacity, NOT_TIMED);
+            }
+        }
+    }
+
+    private int checkIndex(final int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index [" + index + "] is not between 0 and " + size);
+        }
+
+        return index;
+    }
+
+    /**
+     * A result read back from the store, each getter reads it's column.
+     */
+    private class StoredResult extends SmokeTestResult {
+        private final int index;
+
+        StoredResult(final int index) {
+            super(ids[index], STATES[states[index]], elapsedNanoSeconds[index], null);
+
+            this.index = index;
+        }
+
+        @Override
+        public String getMessage() {
+            return CompactResultStore.this.getMessage(index);
+        }
+
+        @Override
+        public int getAttempts() {
+            long[] attempts = attemptElapsedNanoSeconds.get(index);
+
+            return null != attempts ? attempts.length : 1;
+        }
+
+        @Override
+        public long[] getAttemptElapsedNanoSeconds() {
+            long[] attempts = attemptElapsedNanoSeconds.get(index);
+
+            return null != attempts ? attempts.clone() : new long[] {getElapsedNanoSeconds()};
+        }
+
+        @Override
+        public LatencyHistogram getLatencyHistogram() {
+            return latencyHistograms.get(index);
+        }
+
+        @Override
+        public Map<PHASE, Long> getPhaseNanoSeconds() {
+            Map<PHASE, Long> phases = new EnumMap<>(PHASE.class);
+
+            for(int phase = 0 ; phase < PHASES.length ; phase++) {
+                if(null != phaseNanoSeconds[phase] && NOT_TIMED != phaseNanoSeconds[phase][index]) {
+                    phases.put(PHASES[phase], phaseNanoSeconds[phase][index]);
+                }
+            }
+
+            return Collections.unmodifiableMap(phases);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * How long each test (by id) is expected to take, learnt from the elapsed times of previous runs. Used by the
+ * SmokeTestRunner to start the longest tests first, so a slow test doesn't end up starting last and stretching
+ * the whole run.
+ *
+ * Each estimate is an exponentially weighted moving average, so it follows a test that gets slower (or faster)
+ * without being thrown by a single odd run. The history is kept in a compact binary file between runs, at most
+ * maxEntries estimates are kept, the test seen least recently is evicted first (e.g. one long since removed).
+ */
+public class DurationHistory {
+    public static final long DEFAULT_ESTIMATE_NS    = TimeUnit.SECONDS.toNanos(1);
+    public static final int DEFAULT_MAX_ENTRIES     = 10000;
+
+    private static final Logger LOGGER              = Logger.getLogger(DurationHistory.class);
+    private static final int FILE_MAGIC             = 0x53544448;   // "STDH"
+    private static final int FILE_VERSION           = 1;
+    private static final double NEW_SAMPLE_WEIGHT   = 0.3;
+
+    private final long defaultEstimateNs;
+    private final int maxEntries;
+
+    ///////////////////////////////////////////////////////
+    // Id to it's estimate, the test seen least recently first
+    private final LinkedHashMap<String, Long> estimatesNs   = new LinkedHashMap<>();
+
+    public DurationHistory() {
+        this(DEFAULT_ESTIMATE_NS);
+    }
+
+    /**
+     * @param defaultEstimateNs The estimate for a test that has no history yet
+     */
+    public DurationHistory(final long defaultEstimateNs) {
+        this(defaultEstimateNs, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param defaultEstimateNs The estimate for a test that has no history yet
+     * @param maxEntries How many estimates (at most) are kept
+     */
+    public DurationHistory(final long defaultEstimateNs, final int maxEntries) {
+        ////////////////
+        // Sanity checks
+        if(maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+
+        this.defaultEstimateNs  = defaultEstimateNs;
+        this.maxEntries         = maxEntries;
+    }
+
+    /**
+     * Load the history from a file written by save, a missing or unreadable file gives an empty history.
+     *
+     * @param historyFile The file to read
+     *
+     * @return The history
+     */
+    public static DurationHistory load(final Path historyFile) {
+        return load(historyFile, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Load the history from a file written by save, a missing or unreadable file gives an empty history.
+     *
+     * @param historyFile The file to read
+     * @param maxEntries How many estimates (at most) are kept
+     *
+     * @return The history
+     */
+    public static DurationHistory load(final Path historyFile, final int maxEntries) {
+        DurationHistory durationHistory = new DurationHistory(DEFAULT_ESTIMATE_NS, maxEntries);
+
+        if(Files.notExists(historyFile)) {
+            LOGGER.info("load: No history file [" + historyFile + "] yet, starting afresh");
+
+            return durationHistory;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(historyFile)))) {
+            if(FILE_MAGIC != in.readInt() || FILE_VERSION != in.readInt()) {
+                throw new IOException("Not a (supported) history file");
+            }
+
+            int count = in.readInt();
+
+            for(int i = 0 ; i < count ; i++) {
+                durationHistory.estimatesNs.put(in.readUTF(), in.readLong());
+            }
+
+            durationHistory.evict();
+
+            LOGGER.debug(String.format("load: Read %d estimate(s) from [%s]", count, historyFile));
+        } catch (IOException e) {
+            LOGGER.warn("load: Problem reading history file [" + historyFile + "], starting afresh", e);
+
+            durationHistory.estimatesNs.clear();
+        }
+
+        return durationHistory;
+    }
+
+    /**
+     * Write the history to a file, least recently seen first, replacing it in one go so a reader never sees a
+     * partial file.
+     *
+     * @param historyFile The file to write
+     *
+     * @throws IOException
+     */
+    public synchronized void save(final Path historyFile) throws IOException {
+        Path parent = historyFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path tempFile = Files.createTempFile(parent, historyFile.getFileName().toString(), ".tmp");
+
+        try {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(estimatesNs.size());
+
+                for(Map.Entry<String, Long> entry : estimatesNs.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+
+            Files.move(tempFile, historyFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Fold a test's elapsed time into it's estimate, results for tests that never actually ran are ignored.
+     *
+     * @param smokeTestResult The result of the test
+     */
+    public synchronized void record(final SmokeTestResult smokeTestResult) {
+        SmokeTestResult.STATE state = smokeTestResult.getState();
+        long elapsedNs              = smokeTestResult.getElapsedNanoSeconds();
+
+        if(SmokeTestResult.STATE.EXEC_ERROR == state || SmokeTestResult.STATE.SKIPPED == state || elapsedNs <= 0) {
+            return;
+        }
+
+        ////////////////////////////////////////////////
+        // Removed first, so it moves to the most recent
+        Long estimateNs = estimatesNs.remove(smokeTestResult.getId());
+
+        if(null == estimateNs) {
+            estimatesNs.put(smokeTestResult.getId(), elapsedNs);
+        } else {
+            estimatesNs.put(
+                    smokeTestResult.getId(),
+                    (long)((NEW_SAMPLE_WEIGHT * elapsedNs) + ((1 - NEW_SAMPLE_WEIGHT) * estimateNs)));
+        }
+
+        evict();
+    }
+
+    /**
+     * @param id The id of the test
+     *
+     * @return How long the test is expected to take, the default estimate if it has no history
+     */
+    public synchronized long getEstimateNs(final String id) {
+        return estimatesNs.getOrDefault(id, defaultEstimateNs);
+    }
+
+    public synchronized int size() {
+        return estimatesNs.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Drop the tests seen least recently, down to maxEntries.
+     */
+    private void evict() {
+        Iterator<String> leastRecent = estimatesNs.keySet().iterator();
+
+        while(estimatesNs.size() > maxEntries) {
+            leastRecent.next();
+            leastRecent.remove();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.pearceful.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * A fixed memory histogram of latencies (in nS), for percentiles over any number of timings without keeping them.
+ *
+ * The buckets are log-linear (as HdrHistogram): values below 128 nS get a bucket each, above that every power of 2
+ * is split into 64 equal buckets, so a recorded value is only ever out by less than 1/64 (~1.6%) of itself, from
+ * nS to days, in a few thousand counts.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS    = 7;
+    private static final int SUB_BUCKET_COUNT   = 1 << SUB_BUCKET_BITS;         // 128
+    private static final int SUB_BUCKET_HALF    = SUB_BUCKET_COUNT / 2;         // 64
+    private static final int MAX_SHIFT          = 63 - SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT       = SUB_BUCKET_COUNT + (MAX_SHIFT * SUB_BUCKET_HALF);
+
+    private final long[] counts                 = new long[BUCKET_COUNT];
+    private long totalCount                     = 0;
+    private long totalNs                        = 0;
+    private long minNs                          = Long.MAX_VALUE;
+    private long maxNs                          = 0;
+
+    /**
+     * @param valueNs A latency, negative values are recorded as 0
+     */
+    public synchronized void record(final long valueNs) {
+        long value = Math.max(0, valueNs);
+
+        counts[bucketIndex(value)]++;
+        totalCount++;
+        totalNs += value;
+        minNs   = Math.min(minNs, value);
+        maxNs   = Math.max(maxNs, value);
+    }
+
+    public synchronized long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return The lowest value recorded, or 0 if none
+     */
+    public synchronized long getMinNs() {
+        return 0 == totalCount ? 0 : minNs;
+    }
+
+    /**
+     * @return The highest value recorded (exactly), or 0 if none
+     */
+    public synchronized long getMaxNs() {
+        return maxNs;
+    }
+
+    /**
+     * @return The sum of the values recorded (exactly)
+     */
+    public synchronized long getTotalNs() {
+        return totalNs;
+    }
+
+    /**
+     * @return The mean of the values recorded (exactly), or 0 if none
+     */
+    public synchronized long getMeanNs() {
+        return 0 == totalCount ? 0 : totalNs / totalCount;
+    }
+
+    /**
+     * @param percentile 0 to 100, e.g. 99 for p99
+     *
+     * @return The value that percentile of the recorded values are at or below (to within a bucket), or 0 if none
+     */
+    public synchronized long getValueAtPercentile(final double percentile) {
+        ////////////////
+        // Sanity checks
+        if(percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        if(0 == totalCount) {
+            return 0;
+        }
+
+        long countAtPercentile  = Math.max(1, (long)Math.ceil((percentile / 100) * totalCount));
+        long runningCount       = 0;
+
+        for(int index = 0 ; index < BUCKET_COUNT ; index++) {
+            runningCount += counts[index];
+
+            if(runningCount >= countAtPercentile) {
+                return Math.max(minNs, Math.min(maxNs, highestValueIn(index)));
+            }
+        }
+
+        return maxNs;
+    }
+
+    /**
+     * Write the histogram (just it's non-empty buckets) so readFrom can rebuild it, e.g. in another JVM.
+     *
+     * @param out Where to write
+     *
+     * @throws IOException
+     */
+    public synchronized void writeTo(final DataOutput out) throws IOException {
+        int nonEmpty = 0;
+
+        for(long count : counts) {
+            if(count > 0) {
+                nonEmpty++;
+            }
+        }
+
+        out.writeLong(totalNs);
+        out.writeLong(minNs);
+        out.writeLong(maxNs);
+        out.writeInt(nonEmpty);
+
+        for(int index = 0 ; index < BUCKET_COUNT ; index++) {
+            if(counts[index] > 0) {
+                out.writeShort(index);
+                out.writeLong(counts[index]);
+            }
+        }
+    }
+
+    /**
+     * @param in Where to read a histogram written by writeTo
+     *
+     * @return The histogram
+     *
+     * @throws IOException
+     */
+    public static LatencyHistogram readFrom(final DataInput in) throws IOException {
+        LatencyHistogram histogram  = new LatencyHistogram();
+
+        histogram.totalNs           = in.readLong();
+        histogram.minNs             = in.readLong();
+        histogram.maxNs             = in.readLong();
+
+        int nonEmpty = in.readInt();
+
+        for(int i = 0 ; i < nonEmpty ; i++) {
+            int index   = in.readUnsignedShort();
+            long count  = in.readLong();
+
+            if(index >= BUCKET_COUNT) {
+                throw new IOException("Histogram bucket " + index + " out of range");
+            }
+
+            histogram.counts[index] = count;
+            histogram.totalCount    += count;
+        }
+
+        return histogram;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "count [%d], min [%s], p50 [%s], p90 [%s], p99 [%s], max [%s]",
+                totalCount,
+                millis(getMinNs()),
+                millis(getValueAtPercentile(50)),
+                millis(getValueAtPercentile(90)),
+                millis(getValueAtPercentile(99)),
+                millis(maxNs));
+    }
+
+    /**
+     * @return The bucket the value is counted in
+     */
+    static int bucketIndex(final long value) {
+        if(value < SUB_BUCKET_COUNT) {
+            return (int)value;
+        }
+
+        ///////////////////////////////////////////////////////////////////
+        // Keep the top SUB_BUCKET_BITS bits, the shift picks the power of 2
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+
+        return SUB_BUCKET_COUNT + ((shift - 1) * SUB_BUCKET_HALF) + (int)((value >>> shift) - SUB_BUCKET_HALF);
+    }
+
+    /**
+     * @return The highest value counted in the bucket
+     */
+    static long highestValueIn(final int index) {
+        if(index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift       = ((index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF) + 1;
+        long subBucket  = ((index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF) + SUB_BUCKET_HALF;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static String millis(final long valueNs) {
+        return String.format("%.3f mS", valueNs / (double)TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
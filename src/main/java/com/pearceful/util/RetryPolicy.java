@@ -0,0 +1,147 @@
+package com.pearceful.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * How often (and how soon) a test that did not pass is re-run, for tests that fail transiently (e.g. a flaky
+ * network check). The delay before each retry grows exponentially up to a maximum, with some random jitter so
+ * retries against the same target don't all land at once.
+ */
+public class RetryPolicy {
+    public static final RetryPolicy NONE                = new RetryPolicy(1, 0, 1.0, 0, 0.0);
+
+    public static final long DEFAULT_BACKOFF_MS         = 1000;
+    public static final double DEFAULT_MULTIPLIER       = 2.0;
+    public static final long DEFAULT_MAX_BACKOFF_MS     = 30000;
+    public static final double DEFAULT_JITTER           = 0.2;
+
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final double multiplier;
+    private final long maxBackoffMs;
+    private final double jitter;
+
+    /**
+     * @param maxAttempts How many times (in total) the test can be run, 1 for no retries
+     * @param backoffMs How long to wait before the first retry
+     * @param multiplier How much longer to wait before each further retry
+     * @param maxBackoffMs The longest to wait before a retry
+     * @param jitter How much (0.0 - 1.0) of each wait is random, a wait is shortened by up to this fraction
+     */
+    public RetryPolicy(
+            final int maxAttempts,
+            final long backoffMs,
+            final double multiplier,
+            final long maxBackoffMs,
+            final double jitter) {
+
+        ////////////////
+        // Sanity checks
+        if(maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be > 0");
+        }
+
+        if(backoffMs < 0 || maxBackoffMs < 0) {
+            throw new IllegalArgumentException("backoffMs and maxBackoffMs must be >= 0");
+        }
+
+        if(multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be >= 1.0");
+        }
+
+        if(jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("jitter must be between 0.0 and 1.0");
+        }
+
+        this.maxAttempts    = maxAttempts;
+        this.backoffMs      = backoffMs;
+        this.multiplier     = multiplier;
+        this.maxBackoffMs   = maxBackoffMs;
+        this.jitter         = jitter;
+    }
+
+    /**
+     * A policy with the default backoff and jitter.
+     *
+     * @param retries How many times to retry a test that did not pass
+     *
+     * @return The policy
+     */
+    public static RetryPolicy withRetries(final int retries) {
+        if(retries < 1) {
+            return NONE;
+        }
+
+        return new RetryPolicy(retries + 1, DEFAULT_BACKOFF_MS, DEFAULT_MULTIPLIER, DEFAULT_MAX_BACKOFF_MS, DEFAULT_JITTER);
+    }
+
+    /**
+     * A test that failed, errored, timed out or could not be executed (e.g. it's process could not be started) is
+     * run again. An attempt interrupted because it's run was cancelled is never retried, as the cancelled test
+     * ignores it's result.
+     *
+     * @param smokeTestResult The result of the latest attempt
+     * @param attempts How many attempts have been made so far
+     *
+     * @return true if the test should be run again
+     */
+    public boolean shouldRetry(final SmokeTestResult smokeTestResult, final int attempts) {
+        if(attempts >= maxAttempts) {
+            return false;
+        }
+
+        switch (smokeTestResult.getState()) {
+            case USER_FAIL:
+            case USER_ERROR:
+            case TIMEOUT:
+            case EXEC_ERROR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param attempts How many attempts have been made so far
+     *
+     * @return How long to wait before the next attempt
+     */
+    public long getDelayMs(final int attempts) {
+        double delayMs = Math.min(maxBackoffMs, backoffMs * Math.pow(multiplier, attempts - 1));
+
+        if(jitter > 0.0) {
+            delayMs -= delayMs * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+
+        return (long)delayMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBackoffMs() {
+        return backoffMs;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "maxAttempts [%d], backoffMs [%d], multiplier [%.1f], maxBackoffMs [%d], jitter [%.2f]",
+                maxAttempts, backoffMs, multiplier, maxBackoffMs, jitter);
+    }
+}
@@ -0,0 +1,266 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Runs a strategy's attempts until one passes or it's RetryPolicy gives up, completing with the final attempt's
+ * result (recording every attempt's timing).
+ *
+ * When repeating, the strategy is then run again (each iteration retried as above) for the warm-up iterations and
+ * the measured iterations, one after the other, stopping at the first iteration that does not pass. The timing of
+ * each measured iteration's final attempt is recorded into a LatencyHistogram handed back with the last result.
+ *
+ * Each attempt is a SmokeTestCallable on the executor (or, in ASYNC mode, the strategy's executeAsync), and the
+ * wait before a retry is a task on the retry scheduler, so no pool thread (or concurrency permit) is held while
+ * waiting. Cancelling this future cancels (interrupts) the current attempt, or any retry still waiting.
+ *
+ * Each attempt is counted in the JVM's SmokeTestMetrics, as queued until it starts, then running until it ends,
+ * and the timing of each (measured) iteration's final attempt is recorded against the strategy's group.
+ */
+class RetryingSmokeTest extends CompletableFuture<SmokeTestResult> {
+    private static final Logger LOGGER                  = Logger.getLogger(RetryingSmokeTest.class);
+
+    private final SmokeTestStrategy smokeTestStrategy;
+    private final boolean async;
+    private final ExecutorService smokeTestExecutor;
+    private final Semaphore concurrencyLimit;
+    private final ScheduledExecutorService retryScheduler;
+    private final List<Long> attemptElapsedNs           = new ArrayList<>();
+    private final int warmupIterations;
+    private final int iterations;
+    private final LatencyHistogram latencyHistogram;    // null unless repeating
+    private final SmokeTestMetrics metrics              = SmokeTestMetrics.getInstance();
+    private int iterationsDone                          = 0;
+    private volatile Future<?> current;                 // The running attempt, or the waiting retry
+
+    /**
+     * @param smokeTestStrategy The strategy to run
+     * @param async true to run the (AsyncSmokeTestStrategy) strategy through executeAsync
+     * @param smokeTestExecutor The executor to run (or supervise) each attempt on
+     * @param concurrencyLimit If not null, a permit is held while each attempt is running
+     * @param retryScheduler Waits out the backoff before each retry
+     */
+    RetryingSmokeTest(
+            final SmokeTestStrategy smokeTestStrategy,
+            final boolean async,
+            final ExecutorService smokeTestExecutor,
+            final Semaphore concurrencyLimit,
+            final ScheduledExecutorService retryScheduler) {
+
+        this(smokeTestStrategy, async, smokeTestExecutor, concurrencyLimit, retryScheduler, 0, 1);
+    }
+
+    /**
+     * @param smokeTestStrategy The strategy to run
+     * @param async true to run the (AsyncSmokeTestStrategy) strategy through executeAsync
+     * @param smokeTestExecutor The executor to run (or supervise) each attempt on
+     * @param concurrencyLimit If not null, a permit is held while each attempt is running
+     * @param retryScheduler Waits out the backoff before each retry
+     * @param warmupIterations How many times to run the strategy before timing it
+     * @param iterations How many (timed) times to run the strategy, if 1 without warm-up it is just run once
+     */
+    RetryingSmokeTest(
+            final SmokeTestStrategy smokeTestStrategy,
+            final boolean async,
+            final ExecutorService smokeTestExecutor,
+            final Semaphore concurrencyLimit,
+            final ScheduledExecutorService retryScheduler,
+            final int warmupIterations,
+            final int iterations) {
+
+        this.smokeTestStrategy  = smokeTestStrategy;
+        this.async              = async;
+        this.smokeTestExecutor  = smokeTestExecutor;
+        this.concurrencyLimit   = concurrencyLimit;
+        this.retryScheduler     = retryScheduler;
+        this.warmupIterations   = warmupIterations;
+        this.iterations         = iterations;
+        this.latencyHistogram   = (warmupIterations > 0 || iterations > 1) ? new LatencyHistogram() : null;
+    }
+
+    /**
+     * Start the first attempt.
+     *
+     * @return this
+     */
+    RetryingSmokeTest start() {
+        startAttempt();
+
+        return this;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+        Future<?> attempt = current;
+
+        if(cancelled && null != attempt) {
+            attempt.cancel(true);
+        }
+
+        return cancelled;
+    }
+
+    private void startAttempt() {
+        if(isDone()) {
+            return;
+        }
+
+        final long startNs = System.nanoTime();
+
+        if(async) {
+            CompletableFuture<SmokeTestResult> attempt;
+
+            //////////////////////////////////////////////////////////////////////
+            // In flight straight away, the supervisor threads only do the plumbing
+            metrics.attemptQueued();
+            metrics.attemptStarted();
+
+            try {
+                attempt = ((AsyncSmokeTestStrategy)smokeTestStrategy).executeAsync(smokeTestExecutor);
+            } catch (Throwable t) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(t);
+            }
+
+            current = attempt;
+            attempt.whenComplete((smokeTestResult, t) -> {
+                metrics.attemptEnded();
+                attemptDone(smokeTestResult, t, System.nanoTime() - startNs);
+            });
+        } else {
+            /////////////////////////////////////////////////////////////////////
+            // Block a thread for the duration of the attempt (but not the wait)
+            SmokeTestCallable callable = new SmokeTestCallable(smokeTestStrategy, concurrencyLimit, metrics);
+
+            FutureTask<SmokeTestResult> attempt =
+                    new FutureTask<SmokeTestResult>(() -> callable.call()) {
+                        @Override
+                        protected void done() {
+                            callable.abandon();
+
+                            ////////////////////////////////////////////////////////////
+                            // Time the strategy itself, not the wait for a permit
+                            long elapsedNs = callable.getElapsedNs() > 0
+                                                ? callable.getElapsedNs()
+                                                : System.nanoTime() - startNs;
+
+                            try {
+                                attemptDone(get(), null, elapsedNs);
+                            } catch (ExecutionException e) {
+                                attemptDone(null, e.getCause(), elapsedNs);
+                            } catch (Throwable t) {
+                                attemptDone(null, t, elapsedNs);
+                            }
+                        }
+                    };
+
+            current = attempt;
+            metrics.attemptQueued();
+
+            try {
+                smokeTestExecutor.execute(attempt);
+            } catch (RejectedExecutionException e) {
+                callable.abandon();
+                completeExceptionally(e);
+            }
+        }
+
+        ////////////////////////////////////////////////////////
+        // Cancelled while we were starting it? Stop it again
+        if(isCancelled()) {
+            current.cancel(true);
+        }
+    }
+
+    private void attemptDone(final SmokeTestResult smokeTestResult, final Throwable t, final long elapsedNs) {
+        if(isDone()) {
+            return;
+        }
+
+        if(null != t) {
+            completeExceptionally(t);
+
+            return;
+        }
+
+        int attempts;
+
+        synchronized (attemptElapsedNs) {
+            attemptElapsedNs.add(elapsedNs);
+            attempts = attemptElapsedNs.size();
+        }
+
+        RetryPolicy retryPolicy = smokeTestStrategy.getRetryPolicy();
+
+        if(null != smokeTestResult && null != retryPolicy && retryPolicy.shouldRetry(smokeTestResult, attempts)) {
+            long delayMs = retryPolicy.getDelayMs(attempts);
+
+            LOGGER.info(
+                    String.format(
+                            "attemptDone: Test [%s] attempt %d was [%s], retrying in %d mS",
+                            smokeTestStrategy.getId(),
+                            attempts,
+                            smokeTestResult.getState(),
+                            delayMs));
+
+            current = retryScheduler.schedule(this::startAttempt, delayMs, TimeUnit.MILLISECONDS);
+
+            if(isCancelled()) {
+                current.cancel(false);
+            }
+
+            return;
+        }
+
+        SmokeTestResult iterationResult =
+                attempts > 1 && null != smokeTestResult ? smokeTestResult.withAttempts(getAttemptElapsedNs()) : smokeTestResult;
+
+        if(null != smokeTestResult
+                && SmokeTestResult.STATE.CACHED_PASS != smokeTestResult.getState()
+                && (null == latencyHistogram || iterationsDone >= warmupIterations)) {
+            metrics.recordLatency(smokeTestStrategy.getGroup(), elapsedNs);
+        }
+
+        if(null != latencyHistogram && null != smokeTestResult) {
+            if(++iterationsDone > warmupIterations) {
+                latencyHistogram.record(elapsedNs);
+            }
+
+            /////////////////////////////////////////////////////
+            // Go again, unless done or there is nothing to time
+            if(smokeTestResult.getState().isPass() && iterationsDone < warmupIterations + iterations) {
+                synchronized (attemptElapsedNs) {
+                    attemptElapsedNs.clear();
+                }
+
+                startAttempt();
+
+                return;
+            }
+
+            iterationResult = iterationResult.withLatencies(latencyHistogram);
+        }
+
+        complete(iterationResult);
+    }
+
+    private long[] getAttemptElapsedNs() {
+        synchronized (attemptElapsedNs) {
+            long[] elapsedNs = new long[attemptElapsedNs.size()];
+
+            for(int i = 0 ; i < elapsedNs.length ; i++) {
+                elapsedNs[i] = attemptElapsedNs.get(i);
+            }
+
+            return elapsedNs;
+        }
+    }
+}
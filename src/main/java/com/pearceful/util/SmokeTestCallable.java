@@ -2,24 +2,61 @@ package com.pearceful.util;
 
 import org.apache.log4j.Logger;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by pjp on 2015-12-27.
  *
  * A Callable to execute the defined strategy.
+ *
+ * The result carries how long the strategy waited to start (from the callable being created, i.e. submitted) and
+ * how long each of it's lifecycle methods took (see SmokeTestResult.PHASE).
  */
 public class SmokeTestCallable implements Callable {
     private static final Logger LOGGER                  = Logger.getLogger(SmokeTestCallable.class);
 
     private SmokeTestStrategy smokeTestStrategy;
+    private Semaphore concurrencyLimit;
+    private volatile long elapsedNs                     = 0;
+    private final long submittedNs                      = System.nanoTime();
+    private final SmokeTestMetrics metrics;             // null unless counted as queued, then running
+    private final AtomicBoolean queued                  = new AtomicBoolean(true);
 
     public  SmokeTestCallable(final SmokeTestStrategy smokeTestStrategy) {
+        this(smokeTestStrategy, null);
+    }
+
+    /**
+     *
+     * @param smokeTestStrategy The strategy to execute
+     * @param concurrencyLimit If not null, a permit is held while the strategy is executing
+     */
+    public  SmokeTestCallable(final SmokeTestStrategy smokeTestStrategy, final Semaphore concurrencyLimit) {
+        this(smokeTestStrategy, concurrencyLimit, null);
+    }
+
+    /**
+     *
+     * @param smokeTestStrategy The strategy to execute
+     * @param concurrencyLimit If not null, a permit is held while the strategy is executing
+     * @param metrics If not null, the (already queued) strategy is counted as running while it executes
+     */
+    SmokeTestCallable(
+            final SmokeTestStrategy smokeTestStrategy,
+            final Semaphore concurrencyLimit,
+            final SmokeTestMetrics metrics) {
+
         if(null == smokeTestStrategy) {
             throw new RuntimeException("Null SmokeTestStrategy specified");
         }
 
-        this.smokeTestStrategy = smokeTestStrategy;
+        this.smokeTestStrategy  = smokeTestStrategy;
+        this.concurrencyLimit   = concurrencyLimit;
+        this.metrics            = metrics;
     }
 
     public SmokeTestStrategy getSmokeTestStrategy() {
@@ -27,30 +64,91 @@ public class SmokeTestCallable implements Callable {
     }
 
     /**
-     * Execute the strategy.
+     * @return How long the strategy took to run (not counting any wait for a permit), or 0 if it has not run
+     */
+    public long getElapsedNs() {
+        return elapsedNs;
+    }
+
+    /**
+     * Take a strategy that will never execute (e.g. it was cancelled, or interrupted waiting for a permit) off the
+     * metrics' queue, unless it has already started.
+     */
+    void abandon() {
+        if(null != metrics && queued.compareAndSet(true, false)) {
+            metrics.attemptAbandoned();
+        }
+    }
+
+    /**
+     * Execute the strategy, once a permit is available if there is a concurrency limit.
      *
      * @return A SmokeTestResult regardless of any Exceptions
+     *
+     * @throws InterruptedException If interrupted while waiting for a permit
      */
     @Override
-    public SmokeTestResult call() {
+    public SmokeTestResult call() throws InterruptedException {
+        if(null == concurrencyLimit) {
+            return callStrategy();
+        }
+
+        ///////////////////////////////////////////////////
+        // Wait for our turn before starting the test clock
+        concurrencyLimit.acquire();
+
+        try {
+            return callStrategy();
+        } finally {
+            concurrencyLimit.release();
+        }
+    }
+
+    /**
+     * Execute the strategy.
+     *
+     * @return A SmokeTestResult regardless of any Exceptions
+     */
+    private SmokeTestResult callStrategy() {
 
         long startNs                    = System.nanoTime();
         SmokeTestResult smokeTestResult ;
+        boolean counted                 = null != metrics && queued.compareAndSet(true, false);
+
+        if(counted) {
+            metrics.attemptStarted();
+        }
+
+        Map<SmokeTestResult.PHASE, Long> phases = new EnumMap<>(SmokeTestResult.PHASE.class);
+        phases.put(SmokeTestResult.PHASE.QUEUE_WAIT, startNs - submittedNs);
 
         try {
             LOGGER.debug(String.format("call: Processing test id [%s]", smokeTestStrategy.getId()));
 
+            long phaseStartNs = System.nanoTime();
             smokeTestStrategy.preExecute();
+            phaseStartNs = timePhase(phases, SmokeTestResult.PHASE.PRE_EXECUTE, phaseStartNs);
+
             smokeTestStrategy.execute();
+            phaseStartNs = timePhase(phases, SmokeTestResult.PHASE.EXECUTE, phaseStartNs);
+
             smokeTestStrategy.postExecute();
+            phaseStartNs = timePhase(phases, SmokeTestResult.PHASE.POST_EXECUTE, phaseStartNs);
 
             smokeTestResult = smokeTestStrategy.validate();
+            timePhase(phases, SmokeTestResult.PHASE.VALIDATE, phaseStartNs);
 
-            long elapsedUs = (System.nanoTime() - startNs) / 1000;
+            if(null != smokeTestResult) {
+                smokeTestResult = smokeTestResult.withPhases(phases);
+            }
+
+            elapsedNs       = System.nanoTime() - startNs;
+            long elapsedUs  = elapsedNs / 1000;
 
             LOGGER.debug(String.format("call: Test result [%s] retrieved in %d uS", smokeTestResult, elapsedUs));
         } catch (Throwable t) {
-            long elapsedUs = (System.nanoTime() - startNs) / 1000;
+            elapsedNs       = System.nanoTime() - startNs;
+            long elapsedUs  = elapsedNs / 1000;
 
             LOGGER.warn(String.format("call: Problem running test id [%s] after %d uS", smokeTestStrategy.getId(), elapsedUs), t);
 
@@ -58,10 +156,31 @@ public class SmokeTestCallable implements Callable {
                     new SmokeTestResult(
                             smokeTestStrategy.getId(),
                             SmokeTestResult.STATE.USER_ERROR,
-                            System.nanoTime() - startNs,
-                            t.getMessage());
+                            elapsedNs,
+                            t.getMessage()).withPhases(phases);
+        } finally {
+            if(counted) {
+                metrics.attemptEnded();
+            }
         }
 
         return smokeTestResult;
     }
+
+    /**
+     * Record how long a phase took.
+     *
+     * @return When the phase ended (the next phase started)
+     */
+    private static long timePhase(
+            final Map<SmokeTestResult.PHASE, Long> phases,
+            final SmokeTestResult.PHASE phase,
+            final long phaseStartNs) {
+
+        long phaseEndNs = System.nanoTime();
+
+        phases.put(phase, phaseEndNs - phaseStartNs);
+
+        return phaseEndNs;
+    }
 }
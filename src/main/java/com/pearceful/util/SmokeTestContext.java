@@ -1,19 +1,28 @@
 package com.pearceful.util;
 
-import org.apache.log4j.Logger;
-
-import java.util.*;
-import java.util.concurrent.*;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Created by pjp on 2015-12-26.
  *
  * A generic Smoke test harness using the Strategy pattern, the actual test is encapsulated as a Strategy, see
  * the SmokeTestStrategy interface and BaseSmokeTestStrategy abstract class.
+ *
+ * Each call creates (and shuts down) it's own SmokeTestRunner, use a SmokeTestRunner directly to run tests
+ * repeatedly on a long-lived executor.
  */
 public class SmokeTestContext {
     public static final String VERSION  =   "1.1";
-    private static final Logger LOGGER  = Logger.getLogger(SmokeTestContext.class);
+
+    public enum EXECUTOR_MODE {
+        PLATFORM_THREADS,   // A fixed pool of platform threads, the pool size limits how many tests run at once
+        VIRTUAL_THREADS,    // A virtual thread per test (Java 21+), a semaphore limits how many tests run at once
+        ASYNC               // AsyncSmokeTestStrategy's are started without blocking a thread while they run, a few
+                            // supervisor threads process their completions, other strategies run on those threads
+    }
 
     /**
      * Run the smoke tests (multi-threaded)
@@ -32,109 +41,160 @@ public class SmokeTestContext {
             final int threadPoolSize,
             final long timeoutInSeconds) throws SmokeTestException {
 
-        ////////////////
-        // Sanity checks
-        if(null == smokeTestStrategies) {
-            throw new IllegalArgumentException("runSmokeTests: smokeTestStrategies list cannot be null");
-        }
+        return runSmokeTests(smokeTestStrategies, EXECUTOR_MODE.PLATFORM_THREADS, threadPoolSize, timeoutInSeconds);
+    }
 
-        if(threadPoolSize < 1) {
-            throw new IllegalArgumentException("runSmokeTests: threadPoolSize must > 0");
+    /**
+     * Run the smoke tests (multi-threaded)
+     *
+     * @param smokeTestStrategies A set of smoke test strategies to be run
+     * @param executorMode How the tests are to be run
+     * @param maxConcurrentTests The thread pool size, or how many virtual threads can run a test at once
+     * @param timeoutInSeconds How long to wait for all the tests to complete
+     *
+     * @return A list of results from each of the smoke tests, in the same order as the passed in strategies.
+     *
+     * @throws SmokeTestException
+     */
+    public static List<SmokeTestResult> runSmokeTests(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final EXECUTOR_MODE executorMode,
+            final int maxConcurrentTests,
+            final long timeoutInSeconds) throws SmokeTestException {
+
+        try(SmokeTestRunner smokeTestRunner = newRunner(executorMode, maxConcurrentTests, timeoutInSeconds)) {
+            return smokeTestRunner.run(smokeTestStrategies);
         }
+    }
 
-        if(timeoutInSeconds < 1) {
-            throw new IllegalArgumentException("runSmokeTests: timeoutInSeconds must be > 0");
+    /**
+     * Run the smoke tests (multi-threaded), handing each result to the listener as soon as it's test has completed.
+     *
+     * Any tests still running when the timeout expires are cancelled, and the listener is handed an EXEC_ERROR
+     * result for each of them.
+     *
+     * @param smokeTestStrategies A set of smoke test strategies to be run
+     * @param threadPoolSize The thread pool size to run the test in
+     * @param timeoutInSeconds How long to wait for all the tests to complete
+     * @param smokeTestListener Called (on the calling thread) with each result in completion order
+     *
+     * @throws SmokeTestException
+     */
+    public static void runSmokeTests(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final int threadPoolSize,
+            final long timeoutInSeconds,
+            final SmokeTestListener smokeTestListener) throws SmokeTestException {
+
+        runSmokeTests(
+                smokeTestStrategies,
+                EXECUTOR_MODE.PLATFORM_THREADS,
+                threadPoolSize,
+                timeoutInSeconds,
+                smokeTestListener);
+    }
+
+    /**
+     * Run the smoke tests (multi-threaded), handing each result to the listener as soon as it's test has completed.
+     *
+     * With VIRTUAL_THREADS each test gets it's own (cheap) virtual thread, and maxConcurrentTests is enforced by a
+     * semaphore instead of the thread count, so blocking on child processes no longer ties up platform threads. When
+     * the running JVM has no virtual threads (before Java 21) a fixed thread pool is used instead.
+     *
+     * With ASYNC up to maxConcurrentTests tests are in flight at once, each AsyncSmokeTestStrategy hands back a
+     * CompletableFuture instead of blocking, and a pool of one supervisor thread per CPU does the rest.
+     *
+     * @param smokeTestStrategies A set of smoke test strategies to be run
+     * @param executorMode How the tests are to be run
+     * @param maxConcurrentTests The thread pool size, or how many virtual threads can run a test at once
+     * @param timeoutInSeconds How long to wait for all the tests to complete
+     * @param smokeTestListener Called (on the calling thread) with each result in completion order
+     *
+     * @throws SmokeTestException
+     */
+    public static void runSmokeTests(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final EXECUTOR_MODE executorMode,
+            final int maxConcurrentTests,
+            final long timeoutInSeconds,
+            final SmokeTestListener smokeTestListener) throws SmokeTestException {
+
+        try(SmokeTestRunner smokeTestRunner = newRunner(executorMode, maxConcurrentTests, timeoutInSeconds)) {
+            smokeTestRunner.run(smokeTestStrategies, smokeTestListener);
         }
+    }
+
+    /**
+     * Run a stream of smoke tests (multi-threaded), handing each result to the listener as soon as it's test has
+     * completed. The tests are pulled from the stream only as there is room for them, so a very large suite (e.g.
+     * read line by line from a file) is never held in memory as a whole, see SmokeTestRunner.run(Iterator,
+     * SmokeTestListener) for how dependencies, groups and duplicate ids are handled.
+     *
+     * @param smokeTestStrategies The smoke test strategies to be run, consumed as they are needed
+     * @param executorMode How the tests are to be run
+     * @param maxConcurrentTests The thread pool size, or how many virtual threads can run a test at once
+     * @param timeoutInSeconds How long to wait for all the tests to complete
+     * @param smokeTestListener Called (on the calling thread) with each result in completion order
+     *
+     * @throws SmokeTestException
+     */
+    public static void runSmokeTests(
+            final Stream<? extends SmokeTestStrategy> smokeTestStrategies,
+            final EXECUTOR_MODE executorMode,
+            final int maxConcurrentTests,
+            final long timeoutInSeconds,
+            final SmokeTestListener smokeTestListener) throws SmokeTestException {
 
-        long startNs = System.nanoTime();
-
-        LOGGER.info(String.format("runSmokeTests: Processing %d test(s)", smokeTestStrategies.size()));
-
-        ////////////////////////////
-        // Build a list of Callables
-        List<Callable<SmokeTestResult>> smokeTestCallables  = new ArrayList<Callable<SmokeTestResult>>();
-
-        /////////////////////////////////
-        // Build an empty list of results
-        List<SmokeTestResult> smokeTestResults              = new ArrayList<SmokeTestResult>();
-
-        ////////////////////////////////////////////////
-        // Create the (possibly multi-threaded) executor
-        ExecutorService smokeTestExecutor       = Executors.newFixedThreadPool(threadPoolSize);
-
-        try {
-            smokeTestStrategies
-                    .stream()
-                    .map( smokeTestStratgy -> {
-                        return new SmokeTestCallable(smokeTestStratgy);
-                    })
-                    .forEach(smokeTestCallables::add);
-
-            ////////////////////////////////////////
-            // Do the work (possibly multi-threaded)
-            //
-            List<Future<SmokeTestResult>> futures =
-                    smokeTestExecutor.invokeAll(smokeTestCallables, timeoutInSeconds, TimeUnit.SECONDS);
-
-            //////////////////////////////////////////////
-            // Determine how many Callables were passed in
-            int callableSize = smokeTestCallables.size();
-
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // Since it's guaranteed that the order of these futures are in the same order as the list of callables
-            // the id can be determined
-            for(int i = 0 ; i < callableSize ; i++) {
-                SmokeTestCallable callable      = (SmokeTestCallable)smokeTestCallables.get(i);
-                SmokeTestStrategy strategy      = callable.getSmokeTestStrategy();
-                String strategyId               = strategy.getId();
-                SmokeTestResult smokeTestResult;
-
-                try {
-                    Future<SmokeTestResult> future = futures.get(i);
-
-                    /////////////////////////////////
-                    // Get the result from the future
-                    smokeTestResult = future.get();
-
-                    ////////////////
-                    // Sanity checks
-                    if(! strategyId.equals(smokeTestResult.getId())) {
-                        String errMsg =
-                                "runSmokeTests: result's id ["
-                                + smokeTestResult.getId()
-                                + "] does not match expected id ["
-                                + strategyId
-                                + "]";
-
-                        throw new SmokeTestException(errMsg);
-                    }
-                } catch(Throwable t) {
-                    if (t instanceof CancellationException) {
-                        LOGGER.warn("runSmokeTests: Test [" + strategyId + "] cancelled due to Executor timeout", t);
-                    } else {
-                        LOGGER.error("runSmokeTests: Test [" + strategyId + "] Executor error", t);
-                    }
-
-                    smokeTestResult = new SmokeTestResult(
-                            strategyId,
-                            SmokeTestResult.STATE.EXEC_ERROR,
-                            0L,
-                            t.toString());
-                }
-
-                smokeTestResults.add(smokeTestResult);
-            }
-        } catch (InterruptedException e) {
-            LOGGER.error("runSmokeTests: Problem executing tests", e);
-            throw new SmokeTestException(e);
-        } finally {
-            smokeTestExecutor.shutdown();
+        ////////////////
+        // Sanity checks
+        if(null == smokeTestStrategies) {
+            throw new IllegalArgumentException("runSmokeTests: smokeTestStrategies stream cannot be null");
         }
 
-        long endNs = System.nanoTime();
+        try(SmokeTestRunner smokeTestRunner = newRunner(executorMode, maxConcurrentTests, timeoutInSeconds)) {
+            smokeTestRunner.run(smokeTestStrategies.iterator(), smokeTestListener);
+        }
+    }
 
-        LOGGER.info("runSmokeTests: Completed in " + ((endNs - startNs) / 1000000) + "mS");
+    /**
+     * Build a runner for a single run, the sanity checks are done by the builder.
+     */
+    private static SmokeTestRunner newRunner(
+            final EXECUTOR_MODE executorMode,
+            final int maxConcurrentTests,
+            final long timeoutInSeconds) {
+
+        return SmokeTestRunner.builder()
+                .executorMode(executorMode)
+                .maxConcurrentTests(maxConcurrentTests)
+                .timeoutInSeconds(timeoutInSeconds)
+                .build();
+    }
 
-        return smokeTestResults;
+    /**
+     * Reuse a smoke test as an open-loop load test, starting a fresh strategy at a fixed rate regardless of how
+     * long the earlier ones take (see SmokeTestLoadGenerator).
+     *
+     * @param strategyFactory Creates the strategy for each invocation
+     * @param ratePerSecond How many invocations to start each second
+     * @param durationInSeconds How long to keep starting invocations for
+     * @param maxConcurrentInvocations How many invocations can run at once
+     *
+     * @return What happened to the invocations, with their response, service and queueing times
+     *
+     * @throws SmokeTestException
+     */
+    public static SmokeTestLoadGenerator.Report generateLoad(
+            final Supplier<? extends SmokeTestStrategy> strategyFactory,
+            final double ratePerSecond,
+            final long durationInSeconds,
+            final int maxConcurrentInvocations) throws SmokeTestException {
+
+        return SmokeTestLoadGenerator.builder()
+                .ratePerSecond(ratePerSecond)
+                .durationInSeconds(durationInSeconds)
+                .maxConcurrentInvocations(maxConcurrentInvocations)
+                .build()
+                .run(strategyFactory);
     }
 }
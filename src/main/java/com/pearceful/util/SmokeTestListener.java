@@ -0,0 +1,28 @@
+package com.pearceful.util;
+
+import java.util.Set;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * A callback that is handed each SmokeTestResult as soon as the test that produced it has completed, see the
+ * streaming SmokeTestContext.runSmokeTests method, or registered with a SmokeTestRunner.
+ *
+ * It is also the SPI for pluggable sinks (e.g. console, file or metrics output): a listener named in a
+ * META-INF/services/com.pearceful.util.SmokeTestListener file (with a public no-argument constructor) is found by
+ * ServiceLoader and registered on any runner built with SmokeTestRunner.Builder.discoverListeners. A runner calls
+ * it's listeners from a thread of it's own, so a slow sink never holds up the tests, the other callbacks are
+ * optional.
+ */
+public interface SmokeTestListener {
+    public void onTestComplete(SmokeTestResult smokeTestResult);   // Called once per test, in completion order
+
+    // Called once per run, before any of it's tests are started (with no tests for a streamed run)
+    public default void onStart(Set<SmokeTestStrategy> smokeTestStrategies) { }
+
+    // Called as each test is started (handed to the executor), a test that never starts is not included
+    public default void onTestStart(SmokeTestStrategy smokeTestStrategy) { }
+
+    // Called once per run, after every one of it's tests has completed
+    public default void onRunComplete(long elapsedNs) { }
+}
@@ -0,0 +1,185 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Hands a runner's events to it's listeners from a thread of it's own, through a bounded queue, so a slow listener
+ * (e.g. writing to a remote sink) never holds up the tests. The listeners see the events in the order they were
+ * dispatched.
+ *
+ * If the queue is full a test's event (onTestStart, onTestComplete) is dropped (and counted) rather than wait for
+ * room, a run waits for it's events to be handed over (see awaitDispatched) once it's tests are done. A run's
+ * lifecycle events (onStart, onRunComplete) are never dropped, they are queued regardless, so a sink that flushes or
+ * closes on onRunComplete always gets it (there are only two of them per run).
+ */
+class SmokeTestListenerDispatcher implements AutoCloseable {
+    private static final Logger LOGGER                  = Logger.getLogger(SmokeTestListenerDispatcher.class);
+
+    private final List<SmokeTestListener> smokeTestListeners;
+    private final int capacity;
+    private final BlockingQueue<Consumer<SmokeTestListener>> events     = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private final Object progress                       = new Object();
+
+    //////////////////////
+    // Guarded by progress
+    private long queuedCount                            = 0;
+    private long dispatchedCount                        = 0;
+    private long droppedCount                           = 0;
+    private boolean closed                              = false;
+
+    /**
+     * @param smokeTestListeners The listeners to hand the events to
+     * @param capacity How many events can be waiting at once, before the tests' events are dropped
+     * @param threadName The name of the dispatching thread
+     */
+    SmokeTestListenerDispatcher(
+            final List<SmokeTestListener> smokeTestListeners,
+            final int capacity,
+            final String threadName) {
+
+        this.smokeTestListeners = Collections.unmodifiableList(new ArrayList<>(smokeTestListeners));
+        this.capacity           = capacity;
+        this.dispatcher         = new Thread(this::dispatch, threadName);
+
+        //////////////////////////////////////////////////
+        // Without listeners there is nothing to hand over
+        if(! this.smokeTestListeners.isEmpty()) {
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    void onStart(final Set<SmokeTestStrategy> smokeTestStrategies) {
+        offer(listener -> listener.onStart(smokeTestStrategies), false);
+    }
+
+    void onTestStart(final SmokeTestStrategy smokeTestStrategy) {
+        offer(listener -> listener.onTestStart(smokeTestStrategy), true);
+    }
+
+    void onTestComplete(final SmokeTestResult smokeTestResult) {
+        offer(listener -> listener.onTestComplete(smokeTestResult), true);
+    }
+
+    void onRunComplete(final long elapsedNs) {
+        offer(listener -> listener.onRunComplete(elapsedNs), false);
+    }
+
+    /**
+     * Wait for every event queued so far to be handed to the listeners.
+     *
+     * @param timeout How long to wait
+     * @param unit The unit of the timeout
+     *
+     * @return true if they were, false if still waiting when the timeout expired
+     *
+     * @throws InterruptedException
+     */
+    boolean awaitDispatched(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long deadlineNs = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (progress) {
+            long target = queuedCount;
+
+            while(dispatchedCount < target) {
+                long remainingNs = deadlineNs - System.nanoTime();
+
+                if(remainingNs <= 0 || closed) {
+                    return dispatchedCount >= target;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait(progress, remainingNs);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * @return How many of the tests' events were dropped, as the queue was full
+     */
+    long getDroppedCount() {
+        synchronized (progress) {
+            return droppedCount;
+        }
+    }
+
+    /**
+     * Stop dispatching, events still queued are dropped.
+     */
+    @Override
+    public void close() {
+        synchronized (progress) {
+            closed = true;
+            progress.notifyAll();
+        }
+
+        dispatcher.interrupt();
+    }
+
+    /**
+     * @param event The event to queue
+     * @param droppable true if the event can be dropped when the queue is full; else false (it is always queued)
+     */
+    private void offer(final Consumer<SmokeTestListener> event, final boolean droppable) {
+        if(smokeTestListeners.isEmpty()) {
+            return;
+        }
+
+        synchronized (progress) {
+            if(closed) {
+                return;
+            }
+
+            if(! droppable || events.size() < capacity) {
+                events.add(event);
+                queuedCount++;
+
+                return;
+            }
+
+            /////////////////////////////////////////////////////////
+            // Never wait for a slow listener, warn on the first drop
+            if(1 == ++droppedCount) {
+                LOGGER.warn("offer: Listener queue full, dropping events until there is room");
+            }
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while(true) {
+                Consumer<SmokeTestListener> event = events.take();
+
+                for(SmokeTestListener listener : smokeTestListeners) {
+                    try {
+                        event.accept(listener);
+                    } catch (RuntimeException e) {
+                        ////////////////////////////////////////////////////
+                        // One broken listener must not starve the others
+                        LOGGER.error("dispatch: Listener [" + listener.getClass().getName() + "] failed", e);
+                    }
+                }
+
+                synchronized (progress) {
+                    dispatchedCount++;
+                    progress.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("dispatch: Stopped");
+        }
+    }
+}
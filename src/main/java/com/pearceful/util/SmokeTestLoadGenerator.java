@@ -0,0 +1,356 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Reuses a smoke test as a (lightweight) open-loop load test, e.g. run a test 50 times a second for 60 seconds.
+ *
+ * Each invocation is dispatched at it's intended time on a fixed-rate timeline, however long the earlier ones are
+ * taking, so a slow system cannot slow the load down (no coordinated omission). If every invocation thread is busy
+ * the invocation waits for one, and that queueing delay is counted: the response time of an invocation is from
+ * when it was meant to start until it completed, the service time from when it actually started.
+ *
+ * Every invocation is a fresh strategy from the factory (strategies hold the state of their last execution), run
+ * through it's usual lifecycle (preExecute, execute, postExecute then validate).
+ *
+ * <pre>
+ * SmokeTestLoadGenerator.Report report =
+ *         SmokeTestLoadGenerator.builder().ratePerSecond(50).durationInSeconds(60).build().run(() -&gt; newTest());
+ * </pre>
+ */
+public class SmokeTestLoadGenerator {
+    private static final Logger LOGGER                  = Logger.getLogger(SmokeTestLoadGenerator.class);
+    private static final AtomicInteger GENERATOR_COUNT  = new AtomicInteger();
+
+    private final double ratePerSecond;
+    private final long durationInSeconds;
+    private final int maxConcurrentInvocations;
+    private final long drainTimeoutInSeconds;
+
+    private SmokeTestLoadGenerator(final Builder builder) {
+        this.ratePerSecond              = builder.ratePerSecond;
+        this.durationInSeconds          = builder.durationInSeconds;
+        this.maxConcurrentInvocations   = builder.maxConcurrentInvocations;
+        this.drainTimeoutInSeconds      = builder.drainTimeoutInSeconds;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public long getDurationInSeconds() {
+        return durationInSeconds;
+    }
+
+    public int getMaxConcurrentInvocations() {
+        return maxConcurrentInvocations;
+    }
+
+    /**
+     * Dispatch the invocations on the timeline (from the calling thread), then wait for the ones still running.
+     *
+     * @param strategyFactory Creates the strategy for each invocation, all with the same id
+     *
+     * @return What happened to the invocations
+     *
+     * @throws SmokeTestException If interrupted
+     */
+    public Report run(final Supplier<? extends SmokeTestStrategy> strategyFactory) throws SmokeTestException {
+        ////////////////
+        // Sanity checks
+        if(null == strategyFactory) {
+            throw new IllegalArgumentException("run: strategyFactory cannot be null");
+        }
+
+        long invocations    = Math.max(1, Math.round(ratePerSecond * durationInSeconds));
+        double periodNs     = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        String threadPrefix = "st-load-" + GENERATOR_COUNT.incrementAndGet() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+
+        ExecutorService invokers = Executors.newFixedThreadPool(
+                maxConcurrentInvocations,
+                runnable -> new Thread(runnable, threadPrefix + threadCount.incrementAndGet()));
+
+        Report report       = new Report(invocations);
+
+        LOGGER.info(
+                String.format(
+                        "run: Dispatching %d invocation(s) at %.2f/S on up to %d thread(s)",
+                        invocations,
+                        ratePerSecond,
+                        maxConcurrentInvocations));
+
+        long startNs = System.nanoTime();
+
+        try {
+            for(long invocation = 0 ; invocation < invocations ; invocation++) {
+                final long intendedNs = startNs + (long)(invocation * periodNs);
+
+                ////////////////////////////////////////////////////////////////
+                // Keep to the timeline, never wait for earlier invocations
+                long waitNs;
+                while((waitNs = intendedNs - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNs);
+
+                    if(Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+
+                invokers.execute(() -> invoke(strategyFactory, intendedNs, report));
+            }
+
+            long dispatchedNs = System.nanoTime();
+
+            ////////////////////////////////////////////////////////////
+            // Give the invocations still running a while to complete
+            invokers.shutdown();
+
+            if(! invokers.awaitTermination(drainTimeoutInSeconds, TimeUnit.SECONDS)) {
+                LOGGER.warn("run: Invocations still running after " + drainTimeoutInSeconds + " S, cancelling them");
+            }
+
+            report.finish(startNs, dispatchedNs, System.nanoTime());
+        } catch (InterruptedException e) {
+            LOGGER.error("run: Interrupted generating load", e);
+            throw new SmokeTestException(e);
+        } finally {
+            invokers.shutdownNow();
+        }
+
+        LOGGER.info("run: " + report);
+
+        return report;
+    }
+
+    /**
+     * Run one invocation, recording it's timings against when it was meant to start.
+     */
+    private static void invoke(
+            final Supplier<? extends SmokeTestStrategy> strategyFactory,
+            final long intendedNs,
+            final Report report) {
+
+        long actualNs                   = System.nanoTime();
+        SmokeTestResult smokeTestResult;
+
+        try {
+            smokeTestResult = new SmokeTestCallable(strategyFactory.get()).call();
+        } catch (Throwable t) {
+            //////////////////////////////////////////////////////
+            // The factory failed (or we were interrupted waiting)
+            LOGGER.warn("invoke: Problem creating the test", t);
+
+            smokeTestResult = null;
+        }
+
+        report.record(smokeTestResult, intendedNs, actualNs, System.nanoTime());
+    }
+
+    /**
+     * What happened to the invocations of a load run, the timings are kept in fixed memory histograms.
+     */
+    public static class Report {
+        private final long intendedInvocations;
+        private final LatencyHistogram responseTimes    = new LatencyHistogram();   // From intended start to end
+        private final LatencyHistogram serviceTimes     = new LatencyHistogram();   // From actual start to end
+        private final LatencyHistogram queueingDelays   = new LatencyHistogram();   // From intended to actual start
+        private final Map<SmokeTestResult.STATE, Long> stateCounts = new EnumMap<>(SmokeTestResult.STATE.class);
+        private long errors                             = 0;
+        private long elapsedNs                          = 0;
+        private long dispatchNs                         = 0;
+
+        Report(final long intendedInvocations) {
+            this.intendedInvocations = intendedInvocations;
+        }
+
+        synchronized void record(
+                final SmokeTestResult smokeTestResult,
+                final long intendedNs,
+                final long actualNs,
+                final long endNs) {
+
+            responseTimes.record(endNs - intendedNs);
+            serviceTimes.record(endNs - actualNs);
+            queueingDelays.record(actualNs - intendedNs);
+
+            if(null == smokeTestResult) {
+                errors++;
+            } else {
+                stateCounts.merge(smokeTestResult.getState(), 1L, Long::sum);
+            }
+        }
+
+        synchronized void finish(final long startNs, final long dispatchedNs, final long endNs) {
+            this.dispatchNs = dispatchedNs - startNs;
+            this.elapsedNs  = endNs - startNs;
+        }
+
+        public long getIntendedInvocations() {
+            return intendedInvocations;
+        }
+
+        /**
+         * @return How many invocations completed (those still running at the end are not counted)
+         */
+        public synchronized long getCompletedInvocations() {
+            return responseTimes.getCount();
+        }
+
+        /**
+         * @return How many of the completed invocations passed
+         */
+        public synchronized long getPassedInvocations() {
+            long passed = 0;
+
+            for(Map.Entry<SmokeTestResult.STATE, Long> entry : stateCounts.entrySet()) {
+                if(entry.getKey().isPass()) {
+                    passed += entry.getValue();
+                }
+            }
+
+            return passed;
+        }
+
+        /**
+         * @return How many of the completed invocations ended in each state
+         */
+        public synchronized Map<SmokeTestResult.STATE, Long> getStateCounts() {
+            return Collections.unmodifiableMap(new EnumMap<>(stateCounts));
+        }
+
+        /**
+         * @return From when each invocation was meant to start until it completed, including any queueing delay
+         */
+        public LatencyHistogram getResponseTimes() {
+            return responseTimes;
+        }
+
+        /**
+         * @return From when each invocation actually started until it completed
+         */
+        public LatencyHistogram getServiceTimes() {
+            return serviceTimes;
+        }
+
+        /**
+         * @return How late each invocation started, waiting for a thread
+         */
+        public LatencyHistogram getQueueingDelays() {
+            return queueingDelays;
+        }
+
+        /**
+         * @return The rate the invocations completed at, over the whole run
+         */
+        public synchronized double getAchievedRatePerSecond() {
+            return 0 == elapsedNs ? 0 : getCompletedInvocations() / (elapsedNs / (double)TimeUnit.SECONDS.toNanos(1));
+        }
+
+        public synchronized long getElapsedNs() {
+            return elapsedNs;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(
+                    "intended [%d], completed [%d], passed [%d], errors [%d], states %s, dispatched in [%d mS], " +
+                    "elapsed [%d mS], achieved [%.2f/S]",
+                    intendedInvocations,
+                    getCompletedInvocations(),
+                    getPassedInvocations(),
+                    errors,
+                    stateCounts,
+                    TimeUnit.NANOSECONDS.toMillis(dispatchNs),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNs),
+                    getAchievedRatePerSecond());
+        }
+    }
+
+    /**
+     * Configures, then builds, a SmokeTestLoadGenerator.
+     */
+    public static class Builder {
+        private double ratePerSecond                = 1;
+        private long durationInSeconds              = 60;
+        private int maxConcurrentInvocations        = 100;
+        private long drainTimeoutInSeconds          = 60;
+
+        private Builder() {
+        }
+
+        /**
+         * @param ratePerSecond How many invocations to start each second
+         */
+        public Builder ratePerSecond(final double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+
+            return this;
+        }
+
+        /**
+         * @param durationInSeconds How long to keep starting invocations for
+         */
+        public Builder durationInSeconds(final long durationInSeconds) {
+            this.durationInSeconds = durationInSeconds;
+
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentInvocations How many invocations can run at once, later ones queue (and are late)
+         */
+        public Builder maxConcurrentInvocations(final int maxConcurrentInvocations) {
+            this.maxConcurrentInvocations = maxConcurrentInvocations;
+
+            return this;
+        }
+
+        /**
+         * @param drainTimeoutInSeconds How long to wait for the invocations still running once all are dispatched
+         */
+        public Builder drainTimeoutInSeconds(final long drainTimeoutInSeconds) {
+            this.drainTimeoutInSeconds = drainTimeoutInSeconds;
+
+            return this;
+        }
+
+        public SmokeTestLoadGenerator build() {
+            ////////////////
+            // Sanity checks
+            if(! (ratePerSecond > 0)) {
+                throw new IllegalArgumentException("build: ratePerSecond must be > 0");
+            }
+
+            if(durationInSeconds < 1) {
+                throw new IllegalArgumentException("build: durationInSeconds must be > 0");
+            }
+
+            if(maxConcurrentInvocations < 1) {
+                throw new IllegalArgumentException("build: maxConcurrentInvocations must be > 0");
+            }
+
+            if(drainTimeoutInSeconds < 0) {
+                throw new IllegalArgumentException("build: drainTimeoutInSeconds must be >= 0");
+            }
+
+            return new SmokeTestLoadGenerator(this);
+        }
+    }
+}
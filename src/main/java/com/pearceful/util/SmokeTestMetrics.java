@@ -0,0 +1,316 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * The live telemetry of the smoke tests running in this JVM: tests queued, running, completed and failed, pool
+ * utilisation, process spawns, captured output and latencies per concurrency group.
+ *
+ * There is one instance per JVM (see getInstance), registered as a JMX MBean (see OBJECT_NAME) while any
+ * SmokeTestRunner (and so SmokeTestContext.runSmokeTests) is open, so a stalled run can be inspected with jconsole
+ * or any JMX client. The counts are LongAdders, so the threads running the tests never contend on a lock to update
+ * them, only a completed test's latency is recorded under a (per group) lock.
+ */
+public class SmokeTestMetrics implements SmokeTestMetricsMXBean {
+    public static final String OBJECT_NAME          = "com.pearceful.util:type=SmokeTestMetrics";
+    public static final String NO_GROUP             = "none";
+
+    private static final Logger LOGGER              = Logger.getLogger(SmokeTestMetrics.class);
+    private static final SmokeTestMetrics INSTANCE  = new SmokeTestMetrics();
+    private static final int RATE_WINDOW_SECONDS    = 60;
+
+    private final LongAdder testsQueued             = new LongAdder();
+    private final LongAdder testsRunning            = new LongAdder();
+    private final LongAdder testsCompleted          = new LongAdder();
+    private final LongAdder testsPassed             = new LongAdder();
+    private final LongAdder testsFailed             = new LongAdder();
+    private final LongAdder processesSpawned        = new LongAdder();
+    private final LongAdder capturedOutputBytes     = new LongAdder();
+    private final ConcurrentMap<String, LatencyHistogram> latenciesByGroup = new ConcurrentHashMap<>();
+
+    //////////////////////////////////////////////////////////////////////
+    // The spawns in each of the last RATE_WINDOW_SECONDS (a ring of slots)
+    private final AtomicLongArray spawnSlotSeconds  = new AtomicLongArray(RATE_WINDOW_SECONDS);
+    private final LongAdder[] spawnSlotCounts       = new LongAdder[RATE_WINDOW_SECONDS];
+
+    ///////////////////////////////////////////
+    // Guarded by this, only changed per runner
+    private int openRunners                         = 0;
+    private int maxConcurrentTests                  = 0;
+
+    SmokeTestMetrics() {
+        for(int slot = 0 ; slot < RATE_WINDOW_SECONDS ; slot++) {
+            spawnSlotCounts[slot] = new LongAdder();
+            spawnSlotSeconds.set(slot, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * @return The JVM's metrics
+     */
+    public static SmokeTestMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public long getTestsQueued() {
+        return testsQueued.sum();
+    }
+
+    @Override
+    public long getTestsRunning() {
+        return testsRunning.sum();
+    }
+
+    @Override
+    public long getTestsCompleted() {
+        return testsCompleted.sum();
+    }
+
+    @Override
+    public long getTestsPassed() {
+        return testsPassed.sum();
+    }
+
+    @Override
+    public long getTestsFailed() {
+        return testsFailed.sum();
+    }
+
+    @Override
+    public synchronized int getMaxConcurrentTests() {
+        return maxConcurrentTests;
+    }
+
+    @Override
+    public double getPoolUtilisation() {
+        int capacity = getMaxConcurrentTests();
+
+        return 0 == capacity ? 0 : Math.min(1.0, Math.max(0, getTestsRunning()) / (double)capacity);
+    }
+
+    @Override
+    public long getProcessesSpawned() {
+        return processesSpawned.sum();
+    }
+
+    @Override
+    public double getProcessSpawnsPerSecond() {
+        long nowSecond  = currentSecond();
+        long spawns     = 0;
+
+        for(int slot = 0 ; slot < RATE_WINDOW_SECONDS ; slot++) {
+            if(nowSecond - spawnSlotSeconds.get(slot) < RATE_WINDOW_SECONDS) {
+                spawns += spawnSlotCounts[slot].sum();
+            }
+        }
+
+        return spawns / (double)RATE_WINDOW_SECONDS;
+    }
+
+    @Override
+    public long getCapturedOutputBytes() {
+        return capturedOutputBytes.sum();
+    }
+
+    @Override
+    public Map<String, Latencies> getLatenciesByGroup() {
+        Map<String, Latencies> latencies = new TreeMap<>();
+
+        for(Map.Entry<String, LatencyHistogram> entry : latenciesByGroup.entrySet()) {
+            latencies.put(entry.getKey(), new Latencies(entry.getValue()));
+        }
+
+        return latencies;
+    }
+
+    /**
+     * Count a process (e.g. a command line) being started.
+     */
+    public void processSpawned() {
+        processesSpawned.increment();
+
+        ////////////////////////////////////////////////////////////////////////
+        // The first spawn in a new second claims (and empties) it's slot, a spawn
+        // racing that claim may be lost from the rate (but never from the count)
+        long second         = currentSecond();
+        int slot            = (int)Math.floorMod(second, (long)RATE_WINDOW_SECONDS);
+        long slotSecond     = spawnSlotSeconds.get(slot);
+
+        if(slotSecond != second && spawnSlotSeconds.compareAndSet(slot, slotSecond, second)) {
+            spawnSlotCounts[slot].reset();
+        }
+
+        spawnSlotCounts[slot].increment();
+    }
+
+    /**
+     * @param bytes How many bytes a process wrote to it's outputs
+     */
+    public void outputCaptured(final long bytes) {
+        capturedOutputBytes.add(bytes);
+    }
+
+    /**
+     * An attempt has been handed to an executor, see attemptStarted and attemptAbandoned.
+     */
+    void attemptQueued() {
+        testsQueued.increment();
+    }
+
+    /**
+     * A queued attempt has started running, see attemptEnded.
+     */
+    void attemptStarted() {
+        testsQueued.decrement();
+        testsRunning.increment();
+    }
+
+    /**
+     * A queued attempt will never start (e.g. cancelled).
+     */
+    void attemptAbandoned() {
+        testsQueued.decrement();
+    }
+
+    void attemptEnded() {
+        testsRunning.decrement();
+    }
+
+    /**
+     * @param smokeTestResult A result handed back by a runner
+     * @param failure true if the test ran (or was meant to run) and did not pass
+     */
+    void testCompleted(final SmokeTestResult smokeTestResult, final boolean failure) {
+        testsCompleted.increment();
+
+        if(smokeTestResult.getState().isPass()) {
+            testsPassed.increment();
+        } else if(failure) {
+            testsFailed.increment();
+        }
+    }
+
+    /**
+     * @param group The test's concurrency group, null for none
+     * @param elapsedNs How long the test took
+     */
+    void recordLatency(final String group, final long elapsedNs) {
+        latenciesByGroup
+                .computeIfAbsent(null == group ? NO_GROUP : group, key -> new LatencyHistogram())
+                .record(elapsedNs);
+    }
+
+    /**
+     * A runner has been built, register the MBean if it is the first one open.
+     *
+     * @param runnerMaxConcurrentTests How many tests the runner can run at once
+     */
+    synchronized void runnerOpened(final int runnerMaxConcurrentTests) {
+        maxConcurrentTests += runnerMaxConcurrentTests;
+
+        if(1 == ++openRunners) {
+            try {
+                MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName   = new ObjectName(OBJECT_NAME);
+
+                if(! mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.registerMBean(this, objectName);
+                }
+            } catch (JMException | SecurityException e) {
+                LOGGER.warn("runnerOpened: Problem registering MBean [" + OBJECT_NAME + "]", e);
+            }
+        }
+    }
+
+    /**
+     * A runner has been closed, unregister the MBean if it was the last one open.
+     *
+     * @param runnerMaxConcurrentTests How many tests the runner could run at once
+     */
+    synchronized void runnerClosed(final int runnerMaxConcurrentTests) {
+        maxConcurrentTests -= runnerMaxConcurrentTests;
+
+        if(0 == --openRunners) {
+            try {
+                MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName   = new ObjectName(OBJECT_NAME);
+
+                if(mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.unregisterMBean(objectName);
+                }
+            } catch (JMException | SecurityException e) {
+                LOGGER.warn("runnerClosed: Problem unregistering MBean [" + OBJECT_NAME + "]", e);
+            }
+        }
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    /**
+     * The latencies of a group's completed tests (a snapshot, in mS).
+     */
+    public static class Latencies {
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        Latencies(final LatencyHistogram histogram) {
+            synchronized (histogram) {
+                this.count      = histogram.getCount();
+                this.meanMillis = millis(histogram.getMeanNs());
+                this.p50Millis  = millis(histogram.getValueAtPercentile(50));
+                this.p90Millis  = millis(histogram.getValueAtPercentile(90));
+                this.p99Millis  = millis(histogram.getValueAtPercentile(99));
+                this.maxMillis  = millis(histogram.getMaxNs());
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        private static double millis(final long valueNs) {
+            return valueNs / (double)TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pearceful.util;
+
+import java.util.Map;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * The live telemetry of the smoke tests running in this JVM, as seen through JMX (e.g. jconsole), see
+ * SmokeTestMetrics.
+ */
+public interface SmokeTestMetricsMXBean {
+    public long     getTestsQueued();           // Tests (or retries) waiting for a thread or permit
+    public long     getTestsRunning();          // Tests (or retries) running now
+    public long     getTestsCompleted();        // Results handed back, of every state
+    public long     getTestsPassed();           // Results that passed (including cached passes)
+    public long     getTestsFailed();           // Results that ran (or were meant to run) and did not pass
+    public int      getMaxConcurrentTests();    // How many tests the open runners can run at once
+    public double   getPoolUtilisation();       // Running tests / max concurrent tests (0 to 1)
+    public long     getProcessesSpawned();      // Command line processes started
+    public double   getProcessSpawnsPerSecond();// Over the last minute
+    public long     getCapturedOutputBytes();   // Bytes written by the processes to stdout and stderr
+
+    // The latencies of the completed tests, per concurrency group
+    public Map<String, SmokeTestMetrics.Latencies> getLatenciesByGroup();
+}
@@ -1,5 +1,9 @@
 package com.pearceful.util;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * Created by pjp on 2015-12-26.
  *
@@ -10,12 +14,37 @@ public class SmokeTestResult implements Comparable<SmokeTestResult> {
     private STATE state;                // The state of the test result
     private long elapsedNanoSeconds;    // How long the test actually ran for.
     private String message;             // A result (or exception message)
+    private long[] attemptElapsedNanoSeconds;   // How long each attempt took, when the test was retried
+    private LatencyHistogram latencyHistogram;  // How long each iteration took, when the test was repeated
+    private Map<PHASE, Long> phaseNanoSeconds;  // Where the time went, for the phases that were timed
 
     public enum STATE {
         EXEC_ERROR,     // An error occured trying to execute the test
         USER_ERROR,     // A user defined problem occurred while running the test
         USER_PASS,      // The test ran and (all) the test conditions passed
-        USER_FAIL       // The test ran, but the test condition(s) failed
+        USER_FAIL,      // The test ran, but the test condition(s) failed
+        TIMEOUT,        // The test ran past it's own timeout and was terminated
+        SKIPPED,        // The test was not run, as a test it depends on did not pass
+        ABORTED,        // The test was cancelled (or never started) as the run was aborted after too many failures
+        CACHED_PASS;    // The test was not run, as it passed recently enough (e.g. a cached result)
+
+        /**
+         * @return true if the state counts as a pass
+         */
+        public boolean isPass() {
+            return USER_PASS == this || CACHED_PASS == this;
+        }
+    }
+
+    public enum PHASE {
+        QUEUE_WAIT,     // From being submitted until the strategy started (including any wait for a permit)
+        PRE_EXECUTE,    // The strategy's preExecute
+        EXECUTE,        // The strategy's execute
+        POST_EXECUTE,   // The strategy's postExecute
+        VALIDATE,       // The strategy's validate
+        SPAWN,          // Starting a command line's process
+        RUN,            // A command line's process running, from started until it exited (or timed out)
+        DRAIN           // Reading the rest of a command line's output, once it's process exited
     }
 
     /**
@@ -42,13 +71,73 @@ public class SmokeTestResult implements Comparable<SmokeTestResult> {
         this.state              = state;
         this.elapsedNanoSeconds = elapsedNanoSeconds;
         this.message            = message;
+        this.attemptElapsedNanoSeconds  = new long[] {elapsedNanoSeconds};
+        this.phaseNanoSeconds           = Collections.emptyMap();
+    }
+
+    /**
+     * A copy of this result, recording how many attempts were made (and how long each took) to get to it.
+     *
+     * @param attemptElapsedNanoSeconds How long each attempt took, in the order they were made
+     *
+     * @return The copy
+     */
+    public SmokeTestResult withAttempts(final long[] attemptElapsedNanoSeconds) {
+        if(null == attemptElapsedNanoSeconds || attemptElapsedNanoSeconds.length < 1) {
+            throw new IllegalArgumentException("attemptElapsedNanoSeconds cannot be null or empty");
+        }
+
+        SmokeTestResult smokeTestResult             = copy();
+        smokeTestResult.attemptElapsedNanoSeconds   = attemptElapsedNanoSeconds.clone();
+
+        return smokeTestResult;
+    }
+
+    /**
+     * A copy of this result, recording how long each (measured) iteration took when the test was repeated.
+     *
+     * @param latencyHistogram The timings of the iterations, no more are recorded into it once it is handed over
+     *
+     * @return The copy
+     */
+    public SmokeTestResult withLatencies(final LatencyHistogram latencyHistogram) {
+        if(null == latencyHistogram) {
+            throw new IllegalArgumentException("latencyHistogram cannot be null");
+        }
+
+        SmokeTestResult smokeTestResult     = copy();
+        smokeTestResult.latencyHistogram    = latencyHistogram;
+
+        return smokeTestResult;
+    }
+
+    /**
+     * A copy of this result, adding the timings of some (more) of the phases it went through.
+     *
+     * @param phaseNanoSeconds How long each phase took, replacing any timing this result already has for it
+     *
+     * @return The copy
+     */
+    public SmokeTestResult withPhases(final Map<PHASE, Long> phaseNanoSeconds) {
+        if(null == phaseNanoSeconds) {
+            throw new IllegalArgumentException("phaseNanoSeconds cannot be null");
+        }
+
+        Map<PHASE, Long> phases = new EnumMap<>(PHASE.class);
+        phases.putAll(this.phaseNanoSeconds);
+        phases.putAll(phaseNanoSeconds);
+
+        SmokeTestResult smokeTestResult     = copy();
+        smokeTestResult.phaseNanoSeconds    = Collections.unmodifiableMap(phases);
+
+        return smokeTestResult;
     }
 
     @Override
     public String toString() {
         return String.format(
-                "id [%s], state [%s], elapsedNs [%d], message [%s]",
-                id, state, elapsedNanoSeconds, message
+                "id [%s], state [%s], elapsedNs [%d], attempts [%d], message [%s]",
+                id, state, elapsedNanoSeconds, getAttempts(), getMessage()
         );
     }
 
@@ -66,6 +155,37 @@ public class SmokeTestResult implements Comparable<SmokeTestResult> {
         return message;
     }
 
+    public int getAttempts() {
+        return attemptElapsedNanoSeconds.length;
+    }
+
+    public long[] getAttemptElapsedNanoSeconds() {
+        return attemptElapsedNanoSeconds.clone();
+    }
+
+    /**
+     * @return How long each iteration took, or null if the test was not repeated
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    /**
+     * @return How long each timed phase took, in the order they happen
+     */
+    public Map<PHASE, Long> getPhaseNanoSeconds() {
+        return phaseNanoSeconds;
+    }
+
+    private SmokeTestResult copy() {
+        SmokeTestResult smokeTestResult             = new SmokeTestResult(id, state, elapsedNanoSeconds, message);
+        smokeTestResult.attemptElapsedNanoSeconds   = attemptElapsedNanoSeconds;
+        smokeTestResult.latencyHistogram            = latencyHistogram;
+        smokeTestResult.phaseNanoSeconds            = phaseNanoSeconds;
+
+        return smokeTestResult;
+    }
+
     public int compareTo(SmokeTestResult o) {
         return getId().compareTo(o.getId());
     }
@@ -0,0 +1,1111 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * A reusable Smoke test engine that owns a long-lived executor, so a suite can be run over and over again (e.g.
+ * from a monitoring loop) without creating and shutting down a thread pool each time. Create one with the Builder,
+ * call run as often as needed (from one or more threads), then close it.
+ *
+ * While it is open the JVM's SmokeTestMetrics are registered as a JMX MBean, counting it's tests as they run.
+ *
+ * The runner's own listeners (see Builder.listener and Builder.discoverListeners) are called from a thread of their
+ * own, through a bounded queue, so a slow listener never holds up the tests.
+ *
+ * A very large suite can be streamed through a run (see run(Iterator, SmokeTestListener)), it's tests are pulled as
+ * there is room for them, so memory is in proportion to how many tests run at once rather than the suite's size.
+ *
+ * <pre>
+ * try(SmokeTestRunner runner = SmokeTestRunner.builder().maxConcurrentTests(5).timeoutInSeconds(600).build()) {
+ *     List&lt;SmokeTestResult&gt; results = runner.run(smokeTestStrategies);
+ * }
+ * </pre>
+ */
+public class SmokeTestRunner implements AutoCloseable {
+    public static final int DEFAULT_LISTENER_QUEUE_CAPACITY = 10000;
+
+    private static final Logger LOGGER                  = Logger.getLogger(SmokeTestRunner.class);
+    private static final AtomicInteger RUNNER_COUNT     = new AtomicInteger();
+    private static final long LISTENER_DRAIN_SECONDS    = 30;
+    private static final int STREAMED_PER_TEST          = 2;    // Keeps the executor fed, without queueing every test
+
+    private final SmokeTestContext.EXECUTOR_MODE executorMode;
+    private final int maxConcurrentTests;
+    private final long timeoutInSeconds;
+    private final SmokeTestListenerDispatcher listenerDispatcher;
+    private final DurationHistory durationHistory;
+    private final int maxFailures;
+    private final int maxFailurePercent;
+    private final Map<String, Integer> groupLimits;
+    private final ExecutorService smokeTestExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final Semaphore concurrencyLimit;
+    private final int maxInFlight;
+    private final int maxStreamedInFlight;
+    private final AdaptiveConcurrencyLimit adaptiveLimit;
+    private final int warmupIterations;
+    private final int iterations;
+    private final SmokeTestMetrics metrics              = SmokeTestMetrics.getInstance();
+
+    private SmokeTestRunner(final Builder builder) {
+        this.executorMode       = builder.executorMode;
+        this.maxConcurrentTests = builder.maxConcurrentTests;
+        this.timeoutInSeconds   = builder.timeoutInSeconds;
+        this.durationHistory    = builder.durationHistory;
+        this.maxFailures        = builder.maxFailures;
+        this.maxFailurePercent  = builder.maxFailurePercent;
+        this.groupLimits        = Collections.unmodifiableMap(new HashMap<>(builder.groupLimits));
+        this.adaptiveLimit      = builder.adaptiveConcurrency ? new AdaptiveConcurrencyLimit(maxConcurrentTests) : null;
+        this.warmupIterations   = builder.warmupIterations;
+        this.iterations         = builder.iterations;
+
+        ////////////////////////////////////////////////////////////////
+        // Create the (possibly multi-threaded) executor, once, up front
+        String threadPrefix         = "st-runner-" + RUNNER_COUNT.incrementAndGet() + "-";
+        ExecutorService executor    = null;
+        Semaphore limit             = null;
+        int inFlight                = Integer.MAX_VALUE;
+
+        if(SmokeTestContext.EXECUTOR_MODE.VIRTUAL_THREADS == executorMode) {
+            executor = newVirtualThreadPerTaskExecutor();
+
+            if(null != executor) {
+                limit = new Semaphore(maxConcurrentTests);
+            } else {
+                LOGGER.warn("SmokeTestRunner: Virtual threads are not available in this JVM, using a fixed thread pool");
+            }
+        }
+
+        if(SmokeTestContext.EXECUTOR_MODE.ASYNC == executorMode) {
+            executor    = Executors.newFixedThreadPool(
+                            Runtime.getRuntime().availableProcessors(),
+                            namedThreads(threadPrefix));
+            inFlight    = maxConcurrentTests;
+        }
+
+        if(null == executor) {
+            executor = Executors.newFixedThreadPool(maxConcurrentTests, namedThreads(threadPrefix));
+        }
+
+        this.smokeTestExecutor  = executor;
+        this.retryScheduler     = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + "retry");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        this.concurrencyLimit   = limit;
+        this.maxInFlight        = inFlight;
+        this.maxStreamedInFlight    = (builder.maxStreamedInFlight > 0
+                                        ? builder.maxStreamedInFlight
+                                        : maxConcurrentTests * STREAMED_PER_TEST);
+        this.listenerDispatcher = new SmokeTestListenerDispatcher(
+                                        builder.smokeTestListeners,
+                                        builder.listenerQueueCapacity,
+                                        threadPrefix + "listeners");
+
+        metrics.runnerOpened(maxConcurrentTests);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public SmokeTestContext.EXECUTOR_MODE getExecutorMode() {
+        return executorMode;
+    }
+
+    public int getMaxConcurrentTests() {
+        return maxConcurrentTests;
+    }
+
+    public long getTimeoutInSeconds() {
+        return timeoutInSeconds;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public int getMaxFailurePercent() {
+        return maxFailurePercent;
+    }
+
+    public Map<String, Integer> getGroupLimits() {
+        return groupLimits;
+    }
+
+    /**
+     * @return The limit on tests in flight chosen as tests ran (shared by all runs), or null if not adaptive
+     */
+    public AdaptiveConcurrencyLimit getAdaptiveConcurrencyLimit() {
+        return adaptiveLimit;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return How many events the runner's listeners missed, as their queue was full
+     */
+    public long getDroppedListenerEvents() {
+        return listenerDispatcher.getDroppedCount();
+    }
+
+    public boolean isClosed() {
+        return smokeTestExecutor.isShutdown();
+    }
+
+    /**
+     * Run the smoke tests, handing each result to the runner's listeners as it arrives.
+     *
+     * @param smokeTestStrategies A set of smoke test strategies to be run
+     *
+     * @return A list of results from each of the smoke tests, in the same order as the passed in strategies.
+     *
+     * @throws SmokeTestException
+     */
+    public List<SmokeTestResult> run(final Set<SmokeTestStrategy> smokeTestStrategies) throws SmokeTestException {
+        ////////////////
+        // Sanity checks
+        if(null == smokeTestStrategies) {
+            throw new IllegalArgumentException("run: smokeTestStrategies list cannot be null");
+        }
+
+        ////////////////////////////////////////////////////////////////////
+        // Gather the results as they arrive, keyed on the id of the strategy
+        Map<String, SmokeTestResult> resultsById = new HashMap<>();
+
+        run(smokeTestStrategies, smokeTestResult -> resultsById.put(smokeTestResult.getId(), smokeTestResult));
+
+        /////////////////////////////////////////////////////////////////////
+        // Put the results back into the same order as the passed in strategies
+        List<SmokeTestResult> smokeTestResults = new ArrayList<SmokeTestResult>();
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            smokeTestResults.add(resultsById.get(strategy.getId()));
+        }
+
+        return smokeTestResults;
+    }
+
+    /**
+     * Run the smoke tests, handing each result to the runner's listeners (from their own thread), and the passed in
+     * listener, as soon as it's test has completed. The listeners' onStart, onTestStart and onRunComplete are called
+     * too, and the run waits (a while) for the runner's listeners to be handed all of it's events before returning.
+     *
+     * Any tests still running when the timeout expires are cancelled, and the listeners are handed an EXEC_ERROR
+     * result for each of them.
+     *
+     * A test is only started once all the tests it depends on (see SmokeTestStrategy.getDependsOn) have passed, if
+     * one of them does not pass the test is handed back as SKIPPED without being run. Independent tests run as
+     * concurrently as the executor allows, the ones expected to take longest (see DurationHistory) first.
+     *
+     * At most the group's limit (see Builder.groupLimit) of the tests in a concurrency group (see
+     * SmokeTestStrategy.getGroup) are in flight at once, the tests of other groups are started in the meantime.
+     *
+     * A test that does not pass is re-run as it's RetryPolicy allows (see SmokeTestStrategy.getRetryPolicy), it's
+     * result is that of the final attempt.
+     *
+     * If the runner repeats tests (see Builder.repeat), each test is run it's warm-up iterations then it's measured
+     * iterations, one after the other, and it's result is that of the last iteration (or the first that did not
+     * pass) with the timings of the measured iterations (see SmokeTestResult.getLatencyHistogram). The timeout is
+     * for all the iterations.
+     *
+     * If the runner has a failure threshold (see Builder.maxFailures and Builder.maxFailurePercent) and it is
+     * reached, the run is aborted: the tests still running are cancelled (interrupted), and the listeners are
+     * handed an ABORTED result for each of them and for each test not yet started, straight away.
+     *
+     * @param smokeTestStrategies A set of smoke test strategies to be run
+     * @param smokeTestListener Called (on the calling thread) with each result in completion order
+     *
+     * @throws SmokeTestException
+     */
+    public void run(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final SmokeTestListener smokeTestListener) throws SmokeTestException {
+
+        ////////////////
+        // Sanity checks
+        if(null == smokeTestStrategies) {
+            throw new IllegalArgumentException("run: smokeTestStrategies list cannot be null");
+        }
+
+        if(null == smokeTestListener) {
+            throw new IllegalArgumentException("run: smokeTestListener cannot be null");
+        }
+
+        if(isClosed()) {
+            throw new IllegalStateException("run: SmokeTestRunner has been closed");
+        }
+
+        long startNs    = System.nanoTime();
+        long deadlineNs = startNs + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+
+        LOGGER.info(String.format("run: Processing %d test(s)", smokeTestStrategies.size()));
+
+        listenerDispatcher.onStart(smokeTestStrategies);
+        smokeTestListener.onStart(smokeTestStrategies);
+
+        //////////////////////////////////////////////////////////////////
+        // The futures still to complete, mapped back to their strategies
+        Map<Future<SmokeTestResult>, SmokeTestStrategy> outstanding = new LinkedHashMap<>();
+        BlockingQueue<Future<SmokeTestResult>> completed            = new LinkedBlockingQueue<>();
+        SmokeTestSchedule schedule                                  = new SmokeTestSchedule(smokeTestStrategies, durationHistory, groupLimits);
+        boolean outOfTime                                           = false;
+        boolean aborted                                             = false;
+        int failures                                                = 0;
+
+        try {
+            while(true) {
+                //////////////////////////////////////////////////////////////////
+                // Do the work (possibly multi-threaded), as prerequisites allow
+                SmokeTestStrategy smokeTestStrategy;
+
+                while(outstanding.size() < getInFlightLimit() && null != (smokeTestStrategy = schedule.nextReady())) {
+                    outstanding.put(startSmokeTest(smokeTestStrategy, completed, smokeTestListener), smokeTestStrategy);
+                }
+
+                if(outstanding.isEmpty()) {
+                    break;
+                }
+
+                //////////////////////////////////////////////////////////////
+                // Hand back each result as it arrives, until we run out of time
+                long remainingNs = deadlineNs - System.nanoTime();
+
+                Future<SmokeTestResult> future =
+                        remainingNs > 0 ? completed.poll(remainingNs, TimeUnit.NANOSECONDS) : null;
+
+                if(null == future) {
+                    outOfTime = true;
+                    break;
+                }
+
+                smokeTestStrategy               = outstanding.remove(future);
+                SmokeTestResult smokeTestResult = getResult(smokeTestStrategy, future);
+
+                notifyListeners(smokeTestResult, smokeTestListener);
+
+                if(null != adaptiveLimit) {
+                    adaptiveLimit.onTestComplete(smokeTestResult.getElapsedNanoSeconds(), outstanding.size() + 1);
+                }
+
+                ///////////////////////////////////////////////////////////////////
+                // Anything depending on a test that didn't pass will never run
+                for(SmokeTestResult skippedResult : schedule.completed(smokeTestStrategy, smokeTestResult)) {
+                    notifyListeners(skippedResult, smokeTestListener);
+                }
+
+                ///////////////////////////////////////////////////////////
+                // Give up on a clearly broken deployment straight away
+                if(isFailure(smokeTestResult)
+                        && failureThresholdReached(++failures, smokeTestStrategies.size())) {
+                    LOGGER.warn(String.format("run: Aborting after %d failure(s)", failures));
+
+                    aborted = true;
+                    break;
+                }
+            }
+
+            if(aborted) {
+                abort(outstanding, schedule.getPending().iterator(), smokeTestListener);
+            } else {
+                //////////////////////////////////////////////////////
+                // Anything still outstanding has run out of time
+                for(Map.Entry<Future<SmokeTestResult>, SmokeTestStrategy> entry : outstanding.entrySet()) {
+                    entry.getKey().cancel(true);
+
+                    notifyListeners(getResult(entry.getValue(), entry.getKey()), smokeTestListener);
+                }
+
+                ///////////////////////////////////////////////////////////////////////
+                // As has anything that never got the chance to start, if we didn't run
+                // out of time then they are waiting on each other (a dependency cycle)
+                for(SmokeTestStrategy smokeTestStrategy : schedule.getPending()) {
+                    String strategyId = smokeTestStrategy.getId();
+                    String errMsg;
+
+                    if(outOfTime) {
+                        LOGGER.warn("run: Test [" + strategyId + "] not started due to Executor timeout");
+
+                        errMsg = new CancellationException("Not started before the Executor timeout").toString();
+                    } else {
+                        LOGGER.error("run: Test [" + strategyId + "] not started due to a dependency cycle");
+
+                        errMsg =
+                                "Not started, part of (or depends on) a dependency cycle "
+                                + smokeTestStrategy.getDependsOn();
+                    }
+
+                    notifyListeners(
+                            new SmokeTestResult(strategyId, SmokeTestResult.STATE.EXEC_ERROR, 0L, errMsg),
+                            smokeTestListener);
+                }
+            }
+        } catch (InterruptedException e) {
+            ////////////////////////////////////////////////////////
+            // Don't leave our tests running on the shared executor
+            for(Future<SmokeTestResult> future : outstanding.keySet()) {
+                future.cancel(true);
+            }
+
+            LOGGER.error("run: Problem executing tests", e);
+            throw new SmokeTestException(e);
+        }
+
+        long endNs = System.nanoTime();
+
+        listenerDispatcher.onRunComplete(endNs - startNs);
+        smokeTestListener.onRunComplete(endNs - startNs);
+
+        LOGGER.info("run: Completed in " + ((endNs - startNs) / 1000000) + "mS");
+
+        awaitListeners();
+    }
+
+    /**
+     * Run a stream of smoke tests, as the Set based run does, except that the tests are pulled from the iterator
+     * lazily, only as there is room for them to be in flight, so a run holds on to (roughly) maxConcurrentTests
+     * tests at a time and just the ids of the rest, however large the suite.
+     *
+     * As the suite is never seen as a whole, the tests are started in the order they are pulled, and:
+     * <ul>
+     *     <li>A test that depends on (see SmokeTestStrategy.getDependsOn) a test still running waits for it, and
+     *     pulling waits with it, a dependency that has not been pulled yet is ignored, so dependencies must come
+     *     first.</li>
+     *     <li>A test whose concurrency group is full waits for a place, and pulling waits with it.</li>
+     *     <li>A test with the same id as an earlier one is not run, the listeners are handed an EXEC_ERROR result
+     *     for it.</li>
+     *     <li>Only Builder.maxFailures aborts a run, Builder.maxFailurePercent needs the size of the suite.</li>
+     * </ul>
+     *
+     * The listeners' onStart is handed an empty set, as the tests are not known up front.
+     *
+     * @param smokeTestStrategies The smoke test strategies to be run, pulled as they are needed
+     * @param smokeTestListener Called (on the calling thread) with each result in completion order
+     *
+     * @throws SmokeTestException
+     */
+    public void run(
+            final Iterator<? extends SmokeTestStrategy> smokeTestStrategies,
+            final SmokeTestListener smokeTestListener) throws SmokeTestException {
+
+        ////////////////
+        // Sanity checks
+        if(null == smokeTestStrategies) {
+            throw new IllegalArgumentException("run: smokeTestStrategies iterator cannot be null");
+        }
+
+        if(null == smokeTestListener) {
+            throw new IllegalArgumentException("run: smokeTestListener cannot be null");
+        }
+
+        if(isClosed()) {
+            throw new IllegalStateException("run: SmokeTestRunner has been closed");
+        }
+
+        if(maxFailurePercent > 0) {
+            LOGGER.warn("run: maxFailurePercent is ignored when streaming tests, the size of the suite is not known");
+        }
+
+        long startNs    = System.nanoTime();
+        long deadlineNs = startNs + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+
+        LOGGER.info(String.format("run: Streaming tests, at most %d in flight", getStreamedInFlightLimit()));
+
+        listenerDispatcher.onStart(Collections.emptySet());
+        smokeTestListener.onStart(Collections.emptySet());
+
+        //////////////////////////////////////////////////////////////////////
+        // Only the tests in flight are held on to, the rest are just their ids
+        PushbackIterator pending                                    = new PushbackIterator(smokeTestStrategies);
+        Map<Future<SmokeTestResult>, SmokeTestStrategy> outstanding = new LinkedHashMap<>();
+        BlockingQueue<Future<SmokeTestResult>> completed            = new LinkedBlockingQueue<>();
+        Set<String> pulledIds                                       = new HashSet<>();
+        Set<String> inFlightIds                                     = new HashSet<>();
+        Set<String> notPassedIds                                    = new HashSet<>();
+        Map<String, Integer> groupInFlight                          = new HashMap<>();
+        boolean outOfTime                                           = false;
+        boolean aborted                                             = false;
+        int failures                                                = 0;
+
+        try {
+            while(true) {
+                ///////////////////////////////////////////////////////////////
+                // Pull (and start) tests while there is room, unless the next
+                // one has to wait for a test it depends on, or for it's group
+                while(outstanding.size() < getStreamedInFlightLimit() && pending.hasNext()) {
+                    boolean pushedBack                  = pending.hasPushedBack();
+                    SmokeTestStrategy smokeTestStrategy = pending.next();
+                    String strategyId                   = smokeTestStrategy.getId();
+
+                    if(! pushedBack && ! pulledIds.add(strategyId)) {
+                        LOGGER.error("run: Test [" + strategyId + "] not started, it's id is a duplicate");
+
+                        notifyListeners(
+                                new SmokeTestResult(
+                                        strategyId,
+                                        SmokeTestResult.STATE.EXEC_ERROR,
+                                        0L,
+                                        "Not started, an earlier test has the same id"),
+                                smokeTestListener);
+
+                        continue;
+                    }
+
+                    String notPassedId  = null;
+                    boolean waiting     = false;
+
+                    for(String dependsOnId : smokeTestStrategy.getDependsOn()) {
+                        if(notPassedIds.contains(dependsOnId)) {
+                            notPassedId = dependsOnId;
+                        } else if(inFlightIds.contains(dependsOnId)) {
+                            waiting = true;
+                        }
+                    }
+
+                    ////////////////////////////////////////////////////////////
+                    // Anything depending on a test that didn't pass never runs
+                    if(null != notPassedId) {
+                        LOGGER.info(
+                                String.format(
+                                        "run: Skipping test [%s] as [%s] did not pass", strategyId, notPassedId));
+
+                        notPassedIds.add(strategyId);
+                        notifyListeners(
+                                new SmokeTestResult(
+                                        strategyId,
+                                        SmokeTestResult.STATE.SKIPPED,
+                                        0L,
+                                        String.format("Skipped as test [%s] it depends on did not pass", notPassedId)),
+                                smokeTestListener);
+
+                        continue;
+                    }
+
+                    String group    = smokeTestStrategy.getGroup();
+                    Integer limit   = (null != group ? groupLimits.get(group) : null);
+
+                    if(waiting || (null != limit && groupInFlight.getOrDefault(group, 0) >= limit)) {
+                        pending.pushBack(smokeTestStrategy);
+                        break;
+                    }
+
+                    if(null != limit) {
+                        groupInFlight.merge(group, 1, Integer::sum);
+                    }
+
+                    inFlightIds.add(strategyId);
+                    outstanding.put(startSmokeTest(smokeTestStrategy, completed, smokeTestListener), smokeTestStrategy);
+                }
+
+                /////////////////////////////////////////////////////////////////////
+                // Only a test in flight can be waited on, so nothing is left to pull
+                if(outstanding.isEmpty()) {
+                    break;
+                }
+
+                //////////////////////////////////////////////////////////////
+                // Hand back each result as it arrives, until we run out of time
+                long remainingNs = deadlineNs - System.nanoTime();
+
+                Future<SmokeTestResult> future =
+                        remainingNs > 0 ? completed.poll(remainingNs, TimeUnit.NANOSECONDS) : null;
+
+                if(null == future) {
+                    outOfTime = true;
+                    break;
+                }
+
+                SmokeTestStrategy smokeTestStrategy = outstanding.remove(future);
+                SmokeTestResult smokeTestResult     = getResult(smokeTestStrategy, future);
+                String group                        = smokeTestStrategy.getGroup();
+
+                inFlightIds.remove(smokeTestStrategy.getId());
+
+                if(null != group && groupInFlight.containsKey(group)) {
+                    groupInFlight.merge(group, -1, Integer::sum);
+                }
+
+                if(! smokeTestResult.getState().isPass()) {
+                    notPassedIds.add(smokeTestStrategy.getId());
+                }
+
+                notifyListeners(smokeTestResult, smokeTestListener);
+
+                if(null != adaptiveLimit) {
+                    adaptiveLimit.onTestComplete(smokeTestResult.getElapsedNanoSeconds(), outstanding.size() + 1);
+                }
+
+                ///////////////////////////////////////////////////////////
+                // Give up on a clearly broken deployment straight away
+                if(isFailure(smokeTestResult) && maxFailures > 0 && ++failures >= maxFailures) {
+                    LOGGER.warn(String.format("run: Aborting after %d failure(s)", failures));
+
+                    aborted = true;
+                    break;
+                }
+            }
+
+            if(aborted) {
+                abort(outstanding, pending, smokeTestListener);
+            } else {
+                //////////////////////////////////////////////////////
+                // Anything still outstanding has run out of time
+                for(Map.Entry<Future<SmokeTestResult>, SmokeTestStrategy> entry : outstanding.entrySet()) {
+                    entry.getKey().cancel(true);
+
+                    notifyListeners(getResult(entry.getValue(), entry.getKey()), smokeTestListener);
+                }
+
+                ////////////////////////////////////////////////////////////
+                // As has anything that never got the chance to be pulled
+                while(pending.hasNext()) {
+                    String strategyId = pending.next().getId();
+
+                    LOGGER.warn("run: Test [" + strategyId + "] not started due to Executor timeout");
+
+                    notifyListeners(
+                            new SmokeTestResult(
+                                    strategyId,
+                                    SmokeTestResult.STATE.EXEC_ERROR,
+                                    0L,
+                                    new CancellationException("Not started before the Executor timeout").toString()),
+                            smokeTestListener);
+                }
+            }
+        } catch (InterruptedException e) {
+            ////////////////////////////////////////////////////////
+            // Don't leave our tests running on the shared executor
+            for(Future<SmokeTestResult> future : outstanding.keySet()) {
+                future.cancel(true);
+            }
+
+            LOGGER.error("run: Problem executing tests", e);
+            throw new SmokeTestException(e);
+        }
+
+        long endNs = System.nanoTime();
+
+        listenerDispatcher.onRunComplete(endNs - startNs);
+        smokeTestListener.onRunComplete(endNs - startNs);
+
+        LOGGER.info("run: Completed in " + ((endNs - startNs) / 1000000) + "mS");
+
+        awaitListeners();
+    }
+
+    /**
+     * Shut down the executor, any tests still running are left to finish (but are not retried).
+     */
+    @Override
+    public synchronized void close() {
+        if(isClosed()) {
+            return;
+        }
+
+        retryScheduler.shutdownNow();
+        smokeTestExecutor.shutdown();
+        listenerDispatcher.close();
+
+        metrics.runnerClosed(maxConcurrentTests);
+    }
+
+    /**
+     * Cancel (interrupting) the tests still running, handing back an ABORTED result for each of them and for each
+     * test not yet started. A test that managed to complete before it could be cancelled keeps it's own result.
+     */
+    private void abort(
+            final Map<Future<SmokeTestResult>, SmokeTestStrategy> outstanding,
+            final Iterator<? extends SmokeTestStrategy> notStarted,
+            final SmokeTestListener smokeTestListener) {
+
+        for(Map.Entry<Future<SmokeTestResult>, SmokeTestStrategy> entry : outstanding.entrySet()) {
+            String strategyId = entry.getValue().getId();
+
+            if(entry.getKey().cancel(true)) {
+                LOGGER.warn("abort: Test [" + strategyId + "] cancelled as the run was aborted");
+
+                notifyListeners(
+                        new SmokeTestResult(
+                                strategyId,
+                                SmokeTestResult.STATE.ABORTED,
+                                0L,
+                                "Cancelled, the run was aborted as too many tests failed"),
+                        smokeTestListener);
+            } else {
+                notifyListeners(getResult(entry.getValue(), entry.getKey()), smokeTestListener);
+            }
+        }
+
+        while(notStarted.hasNext()) {
+            notifyListeners(
+                    new SmokeTestResult(
+                            notStarted.next().getId(),
+                            SmokeTestResult.STATE.ABORTED,
+                            0L,
+                            "Not started, the run was aborted as too many tests failed"),
+                    smokeTestListener);
+        }
+    }
+
+    /**
+     * @return true if the test ran (or was meant to run) and did not pass, a skipped test was never going to run
+     */
+    private static boolean isFailure(final SmokeTestResult smokeTestResult) {
+        return ! smokeTestResult.getState().isPass()
+                && SmokeTestResult.STATE.SKIPPED != smokeTestResult.getState();
+    }
+
+    /**
+     * @param failures How many tests have failed so far
+     * @param testCount How many tests are in the run
+     *
+     * @return true if the run should be aborted
+     */
+    private boolean failureThresholdReached(final int failures, final int testCount) {
+        if(maxFailures > 0 && failures >= maxFailures) {
+            return true;
+        }
+
+        return maxFailurePercent > 0 && (failures * 100L) >= ((long)maxFailurePercent * testCount);
+    }
+
+    /**
+     * @return How many tests can be in flight right now
+     */
+    private int getInFlightLimit() {
+        return null == adaptiveLimit ? maxInFlight : Math.min(maxInFlight, adaptiveLimit.getLimit());
+    }
+
+    /**
+     * @return How many tests of a streamed run can be in flight right now, whatever the executor mode (see
+     * Builder.maxStreamedInFlight)
+     */
+    private int getStreamedInFlightLimit() {
+        return Math.min(getInFlightLimit(), maxStreamedInFlight);
+    }
+
+    /**
+     * Hand a result to the runner's listeners (queued), then the run's own listener.
+     */
+    private void notifyListeners(final SmokeTestResult smokeTestResult, final SmokeTestListener smokeTestListener) {
+        metrics.testCompleted(smokeTestResult, isFailure(smokeTestResult));
+
+        listenerDispatcher.onTestComplete(smokeTestResult);
+        smokeTestListener.onTestComplete(smokeTestResult);
+    }
+
+    /**
+     * Wait for the runner's listeners to be handed the run's events, but not forever (e.g. a stuck remote sink).
+     */
+    private void awaitListeners() throws SmokeTestException {
+        try {
+            if(! listenerDispatcher.awaitDispatched(LISTENER_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("awaitListeners: Listeners still busy after " + LISTENER_DRAIN_SECONDS + " S, not waiting");
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("awaitListeners: Interrupted waiting for listeners", e);
+            throw new SmokeTestException(e);
+        }
+    }
+
+    /**
+     * Start a test running, the returned future is added to the completed queue as soon as it is done (after any
+     * retries).
+     *
+     * @param smokeTestStrategy The strategy to start
+     * @param completed The queue of completed futures
+     * @param smokeTestListener The run's own listener
+     *
+     * @return The future holding the strategy's result
+     */
+    private Future<SmokeTestResult> startSmokeTest(
+            final SmokeTestStrategy smokeTestStrategy,
+            final BlockingQueue<Future<SmokeTestResult>> completed,
+            final SmokeTestListener smokeTestListener) {
+
+        listenerDispatcher.onTestStart(smokeTestStrategy);
+        smokeTestListener.onTestStart(smokeTestStrategy);
+
+        boolean async =
+                SmokeTestContext.EXECUTOR_MODE.ASYNC == executorMode
+                && smokeTestStrategy instanceof AsyncSmokeTestStrategy;
+
+        RetryingSmokeTest future =
+                new RetryingSmokeTest(
+                        smokeTestStrategy,
+                        async,
+                        smokeTestExecutor,
+                        concurrencyLimit,
+                        retryScheduler,
+                        warmupIterations,
+                        iterations);
+
+        future.whenComplete((smokeTestResult, t) -> completed.add(future));
+
+        return future.start();
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task, the method is looked up reflectively
+     * as the framework still targets Java 8.
+     *
+     * @return The executor, or null if the running JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return (ExecutorService)factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("newVirtualThreadPerTaskExecutor: Not available", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Name the pool's threads, so a long-lived runner can be spotted in a thread dump.
+     */
+    private static ThreadFactory namedThreads(final String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return runnable -> new Thread(runnable, prefix + threadCount.incrementAndGet());
+    }
+
+    /**
+     * Extract the result from a completed (or cancelled) future.
+     *
+     * @param strategy The strategy the future was created for
+     * @param future The future holding the result
+     *
+     * @return The strategy's result, or an EXEC_ERROR result if it could not be retrieved
+     */
+    private static SmokeTestResult getResult(
+            final SmokeTestStrategy strategy,
+            final Future<SmokeTestResult> future) {
+
+        String strategyId = strategy.getId();
+        SmokeTestResult smokeTestResult;
+
+        try {
+            /////////////////////////////////
+            // Get the result from the future
+            smokeTestResult = future.get();
+
+            ////////////////
+            // Sanity checks
+            if(! strategyId.equals(smokeTestResult.getId())) {
+                String errMsg =
+                        "run: result's id ["
+                        + smokeTestResult.getId()
+                        + "] does not match expected id ["
+                        + strategyId
+                        + "]";
+
+                throw new SmokeTestException(errMsg);
+            }
+        } catch(Throwable t) {
+            if (t instanceof CancellationException) {
+                LOGGER.warn("run: Test [" + strategyId + "] cancelled due to Executor timeout", t);
+            } else {
+                LOGGER.error("run: Test [" + strategyId + "] Executor error", t);
+            }
+
+            smokeTestResult = new SmokeTestResult(
+                    strategyId,
+                    SmokeTestResult.STATE.EXEC_ERROR,
+                    0L,
+                    t.toString());
+        }
+
+        return smokeTestResult;
+    }
+
+    /**
+     * The tests of a streamed run still to be started, a test that has to wait can be pushed back to be pulled
+     * again next time.
+     */
+    private static class PushbackIterator implements Iterator<SmokeTestStrategy> {
+        private final Iterator<? extends SmokeTestStrategy> smokeTestStrategies;
+        private SmokeTestStrategy pushedBack = null;
+
+        PushbackIterator(final Iterator<? extends SmokeTestStrategy> smokeTestStrategies) {
+            this.smokeTestStrategies = smokeTestStrategies;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != pushedBack || smokeTestStrategies.hasNext();
+        }
+
+        @Override
+        public SmokeTestStrategy next() {
+            if(null == pushedBack) {
+                return smokeTestStrategies.next();
+            }
+
+            SmokeTestStrategy smokeTestStrategy = pushedBack;
+            pushedBack                          = null;
+
+            return smokeTestStrategy;
+        }
+
+        boolean hasPushedBack() {
+            return null != pushedBack;
+        }
+
+        void pushBack(final SmokeTestStrategy smokeTestStrategy) {
+            pushedBack = smokeTestStrategy;
+        }
+    }
+
+    /**
+     * Configures, then builds, a SmokeTestRunner.
+     */
+    public static class Builder {
+        private SmokeTestContext.EXECUTOR_MODE executorMode     = SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS;
+        private int maxConcurrentTests                          = 5;
+        private long timeoutInSeconds                           = 600;
+        private List<SmokeTestListener> smokeTestListeners      = new ArrayList<>();
+        private int listenerQueueCapacity                       = DEFAULT_LISTENER_QUEUE_CAPACITY;
+        private DurationHistory durationHistory                 = null;
+        private int maxFailures                                 = 0;
+        private int maxFailurePercent                           = 0;
+        private Map<String, Integer> groupLimits                = new HashMap<>();
+        private boolean adaptiveConcurrency                     = false;
+        private int warmupIterations                            = 0;
+        private int iterations                                  = 1;
+        private int maxStreamedInFlight                         = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * @param executorMode How the tests are to be run, defaults to PLATFORM_THREADS
+         */
+        public Builder executorMode(final SmokeTestContext.EXECUTOR_MODE executorMode) {
+            this.executorMode = executorMode;
+
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentTests The thread pool size, or how many virtual threads can run a test at once
+         */
+        public Builder maxConcurrentTests(final int maxConcurrentTests) {
+            this.maxConcurrentTests = maxConcurrentTests;
+
+            return this;
+        }
+
+        /**
+         * @param threadPoolSize The thread pool size to run the tests in (the same as maxConcurrentTests)
+         */
+        public Builder threadPoolSize(final int threadPoolSize) {
+            return maxConcurrentTests(threadPoolSize);
+        }
+
+        /**
+         * @param timeoutInSeconds How long each run waits for all of it's tests to complete
+         */
+        public Builder timeoutInSeconds(final long timeoutInSeconds) {
+            this.timeoutInSeconds = timeoutInSeconds;
+
+            return this;
+        }
+
+        /**
+         * @param smokeTestListener Called with every result of every run, in completion order
+         */
+        public Builder listener(final SmokeTestListener smokeTestListener) {
+            if(null == smokeTestListener) {
+                throw new IllegalArgumentException("listener: smokeTestListener cannot be null");
+            }
+
+            smokeTestListeners.add(smokeTestListener);
+
+            return this;
+        }
+
+        /**
+         * Register every listener named in a META-INF/services/com.pearceful.util.SmokeTestListener file on the
+         * class path (see ServiceLoader).
+         */
+        public Builder discoverListeners() {
+            for(SmokeTestListener smokeTestListener : ServiceLoader.load(SmokeTestListener.class)) {
+                LOGGER.info("discoverListeners: Registering [" + smokeTestListener.getClass().getName() + "]");
+
+                listener(smokeTestListener);
+            }
+
+            return this;
+        }
+
+        /**
+         * @param listenerQueueCapacity How many events can wait for the runner's listeners, once full further test
+         *                              events are dropped (rather than hold up the tests), a run's onStart and
+         *                              onRunComplete are always queued
+         */
+        public Builder listenerQueueCapacity(final int listenerQueueCapacity) {
+            this.listenerQueueCapacity = listenerQueueCapacity;
+
+            return this;
+        }
+
+        /**
+         * @param durationHistory If not null, the tests expected to take longest are started first, the history is
+         *                        only read, record the results into it (and save it) as needed
+         */
+        public Builder durationHistory(final DurationHistory durationHistory) {
+            this.durationHistory = durationHistory;
+
+            return this;
+        }
+
+        /**
+         * Abort each run on it's first failure, the same as maxFailures(1).
+         */
+        public Builder failFast() {
+            return maxFailures(1);
+        }
+
+        /**
+         * @param maxFailures Abort a run once this many tests have failed, 0 (the default) to never abort
+         */
+        public Builder maxFailures(final int maxFailures) {
+            this.maxFailures = maxFailures;
+
+            return this;
+        }
+
+        /**
+         * @param maxFailurePercent Abort a run once this percentage (1-100) of it's tests have failed, 0 (the
+         *                          default) to never abort
+         */
+        public Builder maxFailurePercent(final int maxFailurePercent) {
+            this.maxFailurePercent = maxFailurePercent;
+
+            return this;
+        }
+
+        /**
+         * @param group The name of a concurrency group (e.g. a shared backend)
+         * @param maxInFlight How many of the group's tests can be in flight at once, a group without a limit is
+         *                    only limited by maxConcurrentTests
+         */
+        public Builder groupLimit(final String group, final int maxInFlight) {
+            if(null == group) {
+                throw new IllegalArgumentException("groupLimit: group cannot be null");
+            }
+
+            if(maxInFlight < 1) {
+                throw new IllegalArgumentException("groupLimit: maxInFlight must be > 0 for group [" + group + "]");
+            }
+
+            groupLimits.put(group, maxInFlight);
+
+            return this;
+        }
+
+        /**
+         * @param groupLimits How many tests of each concurrency group can be in flight at once
+         */
+        public Builder groupLimits(final Map<String, Integer> groupLimits) {
+            for(Map.Entry<String, Integer> entry : groupLimits.entrySet()) {
+                groupLimit(entry.getKey(), entry.getValue());
+            }
+
+            return this;
+        }
+
+        /**
+         * @param adaptiveConcurrency If true, start a few tests at once and raise (or lower) that as tests run,
+         *                            from their latency and the host's load, maxConcurrentTests is the ceiling
+         */
+        public Builder adaptiveConcurrency(final boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+
+            return this;
+        }
+
+        /**
+         * @param warmupIterations How many times to run each test, untimed, first (e.g. to warm caches and JITs)
+         * @param iterations How many times to then run (and time) each test, for it's latency percentiles, 1 (the
+         *                   default) without warm-up runs each test once
+         */
+        public Builder repeat(final int warmupIterations, final int iterations) {
+            this.warmupIterations   = warmupIterations;
+            this.iterations         = iterations;
+
+            return this;
+        }
+
+        /**
+         * @param maxStreamedInFlight How many tests of a streamed run (see run(Iterator, SmokeTestListener)) can be
+         *                            pulled and in flight at once, 0 (the default) for a few more than
+         *                            maxConcurrentTests, so the executor never waits for the next test to be pulled
+         */
+        public Builder maxStreamedInFlight(final int maxStreamedInFlight) {
+            this.maxStreamedInFlight = maxStreamedInFlight;
+
+            return this;
+        }
+
+        public SmokeTestRunner build() {
+            ////////////////
+            // Sanity checks
+            if(null == executorMode) {
+                throw new IllegalArgumentException("build: executorMode cannot be null");
+            }
+
+            if(maxConcurrentTests < 1) {
+                throw new IllegalArgumentException("build: maxConcurrentTests must > 0");
+            }
+
+            if(timeoutInSeconds < 1) {
+                throw new IllegalArgumentException("build: timeoutInSeconds must be > 0");
+            }
+
+            if(maxFailures < 0) {
+                throw new IllegalArgumentException("build: maxFailures must be >= 0");
+            }
+
+            if(maxStreamedInFlight < 0) {
+                throw new IllegalArgumentException("build: maxStreamedInFlight must be >= 0");
+            }
+
+            if(maxFailurePercent < 0 || maxFailurePercent > 100) {
+                throw new IllegalArgumentException("build: maxFailurePercent must be between 0 and 100");
+            }
+
+            if(warmupIterations < 0) {
+                throw new IllegalArgumentException("build: warmupIterations must be >= 0");
+            }
+
+            if(iterations < 1) {
+                throw new IllegalArgumentException("build: iterations must be > 0");
+            }
+
+            if(listenerQueueCapacity < 1) {
+                throw new IllegalArgumentException("build: listenerQueueCapacity must be > 0");
+            }
+
+            return new SmokeTestRunner(this);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.pearceful.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Decides which of a run's tests can be started, in dependency (DAG) order.
+ *
+ * A test is ready once every test it depends on has passed, tests with no dependencies are ready straight away, in
+ * the order they were passed in. If a test does not pass, every test that (directly or indirectly) depends on it is
+ * skipped. Dependencies on ids that are not part of the run are ignored.
+ *
+ * Of the tests that are ready, the one with the longest expected critical path (it's own estimated duration plus
+ * the longest chain of tests waiting on it) is started first, so the slow tests don't end up starting last.
+ * Without a DurationHistory every test has the same estimate, so they start in the order they were passed in.
+ *
+ * A test in a concurrency group that already has it's limit of tests in flight is parked, so the tests of other
+ * groups can start in the meantime, until one of it's group finishes.
+ */
+class SmokeTestSchedule {
+    private static final Logger LOGGER                          = Logger.getLogger(SmokeTestSchedule.class);
+
+    private final Map<String, SmokeTestStrategy> pending        = new LinkedHashMap<>();    // Not yet ready, or ready
+    private final Map<String, Integer> unmetDependencyCount     = new HashMap<>();
+    private final Map<String, List<String>> dependents          = new HashMap<>();
+    private final Map<String, Long> criticalPathNs              = new HashMap<>();
+    private final Map<String, Integer> order                    = new HashMap<>();
+    private final PriorityQueue<SmokeTestStrategy> ready;
+    private final Map<String, Integer> groupLimits;
+    private final Map<String, Integer> groupInFlight            = new HashMap<>();
+    private final Map<String, PriorityQueue<SmokeTestStrategy>> parked = new HashMap<>();    // Ready, group full
+
+    /**
+     * @param smokeTestStrategies The run's strategies
+     * @param durationHistory If not null, how long each test is expected to take
+     * @param groupLimits How many tests of each concurrency group can be in flight at once
+     */
+    SmokeTestSchedule(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final DurationHistory durationHistory,
+            final Map<String, Integer> groupLimits) {
+
+        this.groupLimits = groupLimits;
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            pending.put(strategy.getId(), strategy);
+            order.put(strategy.getId(), order.size());
+        }
+
+        /////////////////////////////////////////////////////////////////////
+        // Longest critical path first, then in the order they were passed in
+        ready = new PriorityQueue<>(
+                Math.max(1, smokeTestStrategies.size()),
+                Comparator.<SmokeTestStrategy>comparingLong(strategy -> - criticalPathNs.getOrDefault(strategy.getId(), 0L))
+                        .thenComparingInt(strategy -> order.get(strategy.getId())));
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            int unmet = 0;
+
+            for(String dependsOnId : strategy.getDependsOn()) {
+                if(! pending.containsKey(dependsOnId)) {
+                    LOGGER.warn(
+                            String.format(
+                                    "SmokeTestSchedule: Test [%s] depends on [%s] which is not part of this run, ignoring",
+                                    strategy.getId(),
+                                    dependsOnId));
+
+                    continue;
+                }
+
+                dependents.computeIfAbsent(dependsOnId, id -> new ArrayList<>()).add(strategy.getId());
+                unmet++;
+            }
+
+            unmetDependencyCount.put(strategy.getId(), unmet);
+        }
+
+        //////////////////////////////////////////////////////////////////
+        // Without a history every estimate is 0, so every path is too
+        if(null != durationHistory) {
+            calculateCriticalPaths(durationHistory);
+        }
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            if(0 == unmetDependencyCount.get(strategy.getId())) {
+                ready.add(strategy);
+            }
+        }
+    }
+
+    /**
+     * @return The next test to start (it is no longer pending), or null if none can start now
+     */
+    SmokeTestStrategy nextReady() {
+        while(! ready.isEmpty()) {
+            SmokeTestStrategy strategy  = ready.poll();
+            String group                = strategy.getGroup();
+            Integer limit               = (null != group ? groupLimits.get(group) : null);
+
+            if(null != limit) {
+                int inFlight = groupInFlight.getOrDefault(group, 0);
+
+                //////////////////////////////////////////////////////////
+                // It's group is full, park it until a group member finishes
+                if(inFlight >= limit) {
+                    parked.computeIfAbsent(group, key -> new PriorityQueue<>(ready.comparator())).add(strategy);
+                    continue;
+                }
+
+                groupInFlight.put(group, inFlight + 1);
+            }
+
+            pending.remove(strategy.getId());
+
+            return strategy;
+        }
+
+        return null;
+    }
+
+    /**
+     * Record that a test has finished, any dependents that are now ready are queued to start.
+     *
+     * @param smokeTestStrategy The finished test
+     * @param smokeTestResult The finished test's result
+     *
+     * @return A SKIPPED result for each pending test that can now never run, in the order they were skipped
+     */
+    List<SmokeTestResult> completed(final SmokeTestStrategy smokeTestStrategy, final SmokeTestResult smokeTestResult) {
+        List<SmokeTestResult> skipped = new ArrayList<>();
+        String group                  = smokeTestStrategy.getGroup();
+
+        //////////////////////////////////////////////////////////
+        // A place in the group is free, the best parked test can have it
+        if(null != group && groupInFlight.containsKey(group)) {
+            groupInFlight.merge(group, -1, Integer::sum);
+
+            PriorityQueue<SmokeTestStrategy> parkedInGroup = parked.get(group);
+
+            if(null != parkedInGroup && ! parkedInGroup.isEmpty()) {
+                ready.add(parkedInGroup.poll());
+            }
+        }
+
+        if(smokeTestResult.getState().isPass()) {
+            for(String dependentId : dependents.getOrDefault(smokeTestResult.getId(), Collections.emptyList())) {
+                if(! pending.containsKey(dependentId)) {
+                    continue;
+                }
+
+                int unmet = unmetDependencyCount.merge(dependentId, -1, Integer::sum);
+
+                if(0 == unmet) {
+                    ready.add(pending.get(dependentId));
+                }
+            }
+        } else {
+            skipDependents(smokeTestResult.getId(), skipped);
+        }
+
+        return skipped;
+    }
+
+    /**
+     * @return The tests that have not been started (or skipped), in the order they were passed in
+     */
+    Collection<SmokeTestStrategy> getPending() {
+        return pending.values();
+    }
+
+    /**
+     * Each test's critical path is it's estimated duration plus the longest critical path of the tests that depend on
+     * it. Worked out without recursion (a chain of dependencies can be as long as the run), from the last tests in
+     * dependency order back to the first. The tests in a dependency cycle never run, they just get their estimate.
+     */
+    private void calculateCriticalPaths(final DurationHistory durationHistory) {
+        //////////////////////////////////////////////////////////////
+        // Dependency (topological) order, as the tests would be ready
+        Map<String, Integer> unmet  = new HashMap<>(unmetDependencyCount);
+        List<String> dependencyOrder = new ArrayList<>(pending.size());
+
+        for(String id : pending.keySet()) {
+            if(0 == unmet.get(id)) {
+                dependencyOrder.add(id);
+            }
+        }
+
+        for(int next = 0 ; next < dependencyOrder.size() ; next++) {
+            for(String dependentId : dependents.getOrDefault(dependencyOrder.get(next), Collections.emptyList())) {
+                if(0 == unmet.merge(dependentId, -1, Integer::sum)) {
+                    dependencyOrder.add(dependentId);
+                }
+            }
+        }
+
+        //////////////////////////////////////////////////////////////////
+        // Every dependent's path is known by the time it's test is reached
+        for(int next = dependencyOrder.size() - 1 ; next >= 0 ; next--) {
+            String id               = dependencyOrder.get(next);
+            long longestDependentNs = 0;
+
+            for(String dependentId : dependents.getOrDefault(id, Collections.emptyList())) {
+                longestDependentNs = Math.max(longestDependentNs, criticalPathNs.get(dependentId));
+            }
+
+            criticalPathNs.put(id, durationHistory.getEstimateNs(id) + longestDependentNs);
+        }
+
+        for(String id : pending.keySet()) {
+            criticalPathNs.computeIfAbsent(id, durationHistory::getEstimateNs);
+        }
+    }
+
+    /**
+     * Skip everything that depends on the failed test, and then everything that depends on those.
+     */
+    private void skipDependents(final String failedId, final List<SmokeTestResult> skipped) {
+        Deque<String> failedIds = new ArrayDeque<>();
+        failedIds.add(failedId);
+
+        while(! failedIds.isEmpty()) {
+            String id = failedIds.poll();
+
+            for(String dependentId : dependents.getOrDefault(id, Collections.emptyList())) {
+                if(null == pending.remove(dependentId)) {
+                    continue;
+                }
+
+                LOGGER.info(String.format("skipDependents: Skipping test [%s] as [%s] did not pass", dependentId, id));
+
+                skipped.add(
+                        new SmokeTestResult(
+                                dependentId,
+                                SmokeTestResult.STATE.SKIPPED,
+                                0L,
+                                String.format("Skipped as test [%s] it depends on did not pass", id)));
+
+                failedIds.add(dependentId);
+            }
+        }
+    }
+}
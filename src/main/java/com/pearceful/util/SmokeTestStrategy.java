@@ -1,5 +1,8 @@
 package com.pearceful.util;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Created by pjp on 2015-12-26.
  *
@@ -11,4 +14,13 @@ public interface SmokeTestStrategy {
     public void             execute() throws SmokeTestException;    // Called to actually perform the smoke test.
     public void             postExecute();  // Called after the execute method to finalize any results.
     public SmokeTestResult  validate();     // Called to retrieve the result of running this test
+
+    // The ids of the tests that must pass before this one is run
+    public default Set<String> getDependsOn() { return Collections.emptySet(); }
+
+    // How often (and how soon) the test is re-run if it does not pass
+    public default RetryPolicy getRetryPolicy() { return RetryPolicy.NONE; }
+
+    // The concurrency group (e.g. a shared backend) the test belongs to, null for none
+    public default String getGroup() { return null; }
 }
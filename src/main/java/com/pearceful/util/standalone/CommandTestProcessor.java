@@ -0,0 +1,730 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.AsyncSmokeTestStrategy;
+import com.pearceful.util.BaseSmokeTestStrategy;
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestMetrics;
+import com.pearceful.util.SmokeTestResult;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Common superclass of the strategies that execute a command line in a shell and capture it's output
+ * and exit status. If the exit status is !=0, then the strategy will denote a failure of the test.
+ *
+ * If a per-test timeout is set and the command line is still running when it expires, the command (and
+ * everything it started) is destroyed and the strategy denotes a TIMEOUT.
+ *
+ * The command line can be run blocking (execute), it's outputs drained as it runs (see OutputCapture), or without
+ * a thread waiting for it (executeAsync), it's outputs written to files and only the head and tail read back once
+ * it exits.
+ *
+ * If a result cache is set and the command line passed within the cache's time to live, it is not run at all and
+ * the strategy denotes a CACHED_PASS.
+ *
+ * The result splits out how long the process took to spawn, run and have it's output drained (see
+ * SmokeTestResult.PHASE), and when run without a thread waiting, how long it waited to be started.
+ */
+public abstract class CommandTestProcessor extends BaseSmokeTestStrategy implements AsyncSmokeTestStrategy, Cloneable {
+    public static final long NO_TIMEOUT     = 0;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // How long to wait for the output to be drained once the process has exited,
+    // something it started in the background may still be holding it open
+    public static final long DRAIN_WAIT_SECONDS = 5;
+
+    protected SmokeTestResult.STATE state   = SmokeTestResult.STATE.USER_FAIL;
+    protected String cmdLine                = "";
+    protected long timeoutSeconds           = NO_TIMEOUT;
+    protected long elapsedNs                = 0 ;
+    protected String msg                    = "";
+    protected boolean timedOut              = false;
+    protected int maxOutputBytes            = OutputCapture.DEFAULT_MAX_BYTES;
+    protected Path outputSpillDirectory     = null;
+    protected ResultCache resultCache       = null;
+    protected String cacheTag               = null;
+    protected long cacheTtlSeconds          = 0;
+
+    private OutputCapture stdoutCapture;
+    private OutputCapture stderrCapture;
+
+    //////////////////////////////////////////////////////////////////
+    // Where the outputs were redirected to, null if they were drained
+    private Path stdoutFile;
+    private Path stderrFile;
+    private boolean outputFilesSpilled;
+
+    ////////////////////////////////////////////////
+    // Phase timings of the last execution, 0 if not
+    private long queueWaitNs;
+    private long spawnNs;
+    private long spawnedAtNs;
+    private boolean spawned;
+    private long runNs;
+    private long drainNs;
+
+    private String idLabel;
+    private static final Logger LOGGER                  = Logger.getLogger(CommandTestProcessor.class);
+
+    /**
+     *
+     * @param id The unique id of the test
+     * @param idLabel How the id is described in the result message, e.g. 'line'
+     * @param cmdLine The command line to execute
+     * @param timeoutSeconds How long the command line can run for, or NO_TIMEOUT
+     */
+    protected CommandTestProcessor(
+            final String id,
+            final String idLabel,
+            final String cmdLine,
+            final long timeoutSeconds) {
+        this.id             = id;
+        this.idLabel        = idLabel;
+        this.cmdLine        = cmdLine;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public String getCmdLine() {
+        return cmdLine;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * Set how the stdout and stderr of the command line are captured.
+     *
+     * @param maxOutputBytes How much of each stream is kept in memory (the head and tail)
+     * @param outputSpillDirectory If not null, the complete streams are also written to files in this directory
+     */
+    public void setOutputCapture(final int maxOutputBytes, final Path outputSpillDirectory) {
+        this.maxOutputBytes         = maxOutputBytes;
+        this.outputSpillDirectory   = outputSpillDirectory;
+    }
+
+    /**
+     * Set the cache of recent passes, a command line that passed within the time to live is not run again.
+     *
+     * @param resultCache The cache of recent passes, or null to always run the command line
+     * @param cacheTag The selector tag, part of what identifies the test in the cache
+     * @param cacheTtlSeconds How long a pass is good for, if <=0 the command line is always run (and the pass cached)
+     */
+    public void setResultCache(final ResultCache resultCache, final String cacheTag, final long cacheTtlSeconds) {
+        this.resultCache        = resultCache;
+        this.cacheTag           = cacheTag;
+        this.cacheTtlSeconds    = cacheTtlSeconds;
+    }
+
+    /**
+     * A fresh copy of the strategy, with the same command line and settings but none of this one's outcome, e.g.
+     * so it can be run at the same time as this one.
+     *
+     * @return The copy
+     */
+    public CommandTestProcessor copy() {
+        try {
+            CommandTestProcessor copy = (CommandTestProcessor)super.clone();
+            copy.reset();
+
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            ////////////////////////////
+            // We are Cloneable, so never
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void execute() throws SmokeTestException {
+        long startNs                = System.nanoTime();
+        Process proc                = null;
+
+        reset();
+
+        if(processCached()) {
+            return;
+        }
+
+        ///////////////////////////
+        // Process the command line
+        try {
+            proc = startProcess(false);
+
+            ////////////////////////////////////////////
+            // Wait for the command line to complete
+            boolean completed = true;
+
+            if(timeoutSeconds > NO_TIMEOUT) {
+                completed = proc.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            } else {
+                proc.waitFor();
+            }
+
+            if(! completed) {
+                processExpired(proc, startNs);
+            }
+
+            ///////////////////////////////////////////////////////////
+            // Does nothing if it was still running and has been expired
+            processExited(proc, startNs);
+        } catch (IOException e) {
+            processFailed(e, startNs);
+        } catch (InterruptedException e) {
+            ////////////////////////////////////////////////////////////////////
+            // Cancelled (e.g. the overall timeout), don't leave anything running
+            ProcessSupport.destroyProcessTree(proc);
+
+            processFailed(e, startNs);
+        }
+    }
+
+    /**
+     * Start the command line and return straight away, the result is produced once the process exits (Process.onExit
+     * on Java 9+), so no thread is blocked while the command line runs.
+     *
+     * @param executor For the short pieces of work before and after the command line runs
+     *
+     * @return A future completed with the result of validate
+     */
+    @Override
+    public CompletableFuture<SmokeTestResult> executeAsync(final Executor executor) {
+        CompletableFuture<SmokeTestResult> resultFuture = new CompletableFuture<>();
+        long submittedNs                                = System.nanoTime();
+
+        executor.execute(() -> {
+            long startNs    = System.nanoTime();
+
+            reset();
+
+            synchronized (this) {
+                queueWaitNs = startNs - submittedNs;
+            }
+
+            if(processCached()) {
+                resultFuture.complete(validate());
+
+                return;
+            }
+
+            try {
+                preExecute();
+
+                Process proc = startProcess(true);
+
+                ScheduledFuture<?> timeout = null;
+                if(timeoutSeconds > NO_TIMEOUT) {
+                    timeout = ProcessSupport.schedule(() -> processExpired(proc, startNs), timeoutSeconds);
+                }
+
+                ////////////////////////////////////////////////////////////////////
+                // Cancelled (e.g. the overall timeout), don't leave anything running
+                resultFuture.whenComplete((result, t) -> {
+                    if(resultFuture.isCancelled()) {
+                        ProcessSupport.destroyProcessTree(proc);
+                    }
+                });
+
+                final ScheduledFuture<?> pendingTimeout = timeout;
+
+                ProcessSupport.onExit(proc).whenCompleteAsync((exitedProc, t) -> {
+                    if(null != pendingTimeout) {
+                        pendingTimeout.cancel(false);
+                    }
+
+                    try {
+                        if(null != t) {
+                            throw t;
+                        }
+
+                        processExited(exitedProc, startNs);
+                        postExecute();
+
+                        resultFuture.complete(validate());
+                    } catch (Throwable e) {
+                        resultFuture.completeExceptionally(e);
+                    }
+                }, executor);
+            } catch (IOException e) {
+                processFailed(e, startNs);
+                postExecute();
+
+                resultFuture.complete(validate());
+            } catch (Throwable t) {
+                resultFuture.completeExceptionally(t);
+            }
+        });
+
+        return resultFuture;
+    }
+
+    @Override
+    public synchronized SmokeTestResult validate() {
+        // Simply create a Strategy result to indicate PASS or FAIL, the actual
+        // validation was done in the execute method
+        SmokeTestResult result  = new SmokeTestResult(id, state, elapsedNs, msg).withPhases(getPhases());
+
+        LOGGER.trace(String.format("validate: result [%s] %s [%s %s]", result, idLabel, id, cmdLine));
+
+        return result;
+    }
+
+    /**
+     * Clear the outcome of any previous execution.
+     */
+    protected synchronized void reset() {
+        state       = SmokeTestResult.STATE.USER_FAIL;
+        msg         = "";
+        elapsedNs   = 0;
+        timedOut    = false;
+        queueWaitNs = 0;
+        spawnNs     = 0;
+        spawnedAtNs = 0;
+        spawned     = false;
+        runNs       = 0;
+        drainNs     = 0;
+        stdoutFile  = null;
+        stderrFile  = null;
+    }
+
+    /**
+     * @return The phases of the last execution that were timed
+     */
+    protected synchronized Map<SmokeTestResult.PHASE, Long> getPhases() {
+        Map<SmokeTestResult.PHASE, Long> phases = new EnumMap<>(SmokeTestResult.PHASE.class);
+
+        if(queueWaitNs > 0) {
+            phases.put(SmokeTestResult.PHASE.QUEUE_WAIT, queueWaitNs);
+        }
+
+        if(spawned) {
+            phases.put(SmokeTestResult.PHASE.SPAWN, spawnNs);
+            phases.put(SmokeTestResult.PHASE.RUN, runNs);
+            phases.put(SmokeTestResult.PHASE.DRAIN, drainNs);
+        }
+
+        return phases;
+    }
+
+    /**
+     * Start the command line running in the appropriate shell.
+     *
+     * @param redirectOutputs true to write the outputs to files (read once it exits), so no thread is tied up
+     *                        draining them; else false to drain them as it runs
+     *
+     * @return The started process
+     *
+     * @throws IOException If the process could not be started
+     */
+    protected Process startProcess(final boolean redirectOutputs) throws IOException {
+        boolean runningInWindows    = ConfigProcessor.onWindows();
+        ProcessBuilder pb           = null;
+
+        if (runningInWindows) {
+            pb = new ProcessBuilder(ConfigProcessor.WINDOWS_SHELL, ConfigProcessor.WINDOWS_SHELL_PARAM, cmdLine);
+        } else {
+            pb = new ProcessBuilder(ConfigProcessor.UNIX_SHELL, ConfigProcessor.UNIX_SHELL_PARAM, cmdLine);
+        }
+
+        //////////////////////////////////////////
+        // Set any bespoke environmental variables
+        setEnvVariables(pb.environment(), runningInWindows);
+
+        String spillPrefix  = spillPrefix();
+        boolean redirected  = redirectOutputs && redirectOutputs(pb, spillPrefix);
+
+        long spawnStartNs   = System.nanoTime();
+        Process proc;
+
+        try {
+            proc = pb.start();
+        } catch (IOException e) {
+            deleteOutputFiles();
+
+            throw e;
+        }
+
+        synchronized (this) {
+            spawnedAtNs = System.nanoTime();
+            spawnNs     = spawnedAtNs - spawnStartNs;
+            spawned     = true;
+        }
+
+        SmokeTestMetrics.getInstance().processSpawned();
+
+        /////////////////////////////////////////////////////////////////
+        // Drain the outputs while it runs, so it can never block on a full pipe
+        if(! redirected) {
+            stdoutCapture =
+                    OutputCapture.start(proc.getInputStream(), maxOutputBytes, spillFile(spillPrefix, "stdout"));
+            stderrCapture =
+                    OutputCapture.start(proc.getErrorStream(), maxOutputBytes, spillFile(spillPrefix, "stderr"));
+        }
+
+        return proc;
+    }
+
+    /**
+     * Redirect the outputs to the spill files, or (if not spilling) to temporary files deleted once read.
+     *
+     * @param pb The process to be started
+     * @param spillPrefix The id and unique part of this execution's spill files, or null if not spilling
+     *
+     * @return true if redirected; else false (the outputs are drained as it runs)
+     */
+    private synchronized boolean redirectOutputs(final ProcessBuilder pb, final String spillPrefix) {
+        outputFilesSpilled = null != spillPrefix;
+
+        try {
+            if(outputFilesSpilled) {
+                stdoutFile = spillFile(spillPrefix, "stdout");
+                stderrFile = spillFile(spillPrefix, "stderr");
+            } else {
+                stdoutFile = Files.createTempFile("st-output-", ".stdout");
+                stderrFile = Files.createTempFile("st-output-", ".stderr");
+            }
+        } catch (IOException e) {
+            LOGGER.warn(String.format(
+                    "redirectOutputs: %s [%s] problem creating output files, draining the outputs instead",
+                    idLabel, id), e);
+
+            deleteOutputFiles();
+
+            return false;
+        }
+
+        pb.redirectOutput(stdoutFile.toFile());
+        pb.redirectError(stderrFile.toFile());
+
+        return true;
+    }
+
+    /**
+     * If the outputs were redirected, capture the head and tail of what has been written to the files so far, then
+     * delete them (unless they are the spill files).
+     */
+    private synchronized void readOutputFiles() {
+        if(null == stdoutFile) {
+            return;
+        }
+
+        stdoutCapture = OutputCapture.read(stdoutFile, maxOutputBytes, outputFilesSpilled ? stdoutFile : null);
+        stderrCapture = OutputCapture.read(stderrFile, maxOutputBytes, outputFilesSpilled ? stderrFile : null);
+
+        deleteOutputFiles();
+    }
+
+    /**
+     * Delete the temporary output files (the spill files are kept), and forget them.
+     */
+    private synchronized void deleteOutputFiles() {
+        for(Path outputFile : new Path[] {stdoutFile, stderrFile}) {
+            if(null != outputFile && ! outputFilesSpilled) {
+                try {
+                    Files.deleteIfExists(outputFile);
+                } catch (IOException e) {
+                    LOGGER.warn("deleteOutputFiles: Problem deleting output file [" + outputFile + "]", e);
+                }
+            }
+        }
+
+        stdoutFile = null;
+        stderrFile = null;
+    }
+
+    /**
+     * The same test can be executing more than once at a time (e.g. copies driven by a load generator, or a retry
+     * while the daemon's next run starts), so each execution's spill files get a unique name, id.NNN.stream.
+     *
+     * @return The id and unique part of this execution's spill files, or null if not spilling
+     */
+    protected String spillPrefix() {
+        if(null == outputSpillDirectory) {
+            return null;
+        }
+
+        String prefix = id.replaceAll("[^A-Za-z0-9._-]", "_") + ".";
+
+        try {
+            Files.createDirectories(outputSpillDirectory);
+
+            ////////////////////////////////////////////////////////////////
+            // Reserve the name (by creating the stdout file), then share it
+            Path reserved   = Files.createTempFile(outputSpillDirectory, prefix, ".stdout");
+            String name     = reserved.getFileName().toString();
+
+            return name.substring(0, name.length() - ".stdout".length());
+        } catch (IOException e) {
+            /////////////////////////////////////////////////
+            // Only the complete output is lost, so just warn
+            LOGGER.warn(String.format(
+                    "spillPrefix: %s [%s] problem creating spill file in [%s], not spilling",
+                    idLabel, id, outputSpillDirectory), e);
+
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @param spillPrefix The id and unique part of this execution's spill files (see spillPrefix)
+     * @param streamName
+     * @return The file to spill the complete stream to, or null if not spilling
+     */
+    protected Path spillFile(final String spillPrefix, final String streamName) {
+        if(null == spillPrefix) {
+            return null;
+        }
+
+        return outputSpillDirectory.resolve(spillPrefix + "." + streamName);
+    }
+
+    /**
+     * Record the outcome of a process that has exited, unless it had already timed out.
+     *
+     * @param proc The exited process
+     * @param startNs When the process was started
+     */
+    protected synchronized void processExited(final Process proc, final long startNs) {
+        if(timedOut) {
+            return;
+        }
+
+        long exitedNs   = System.nanoTime();
+
+        elapsedNs   = exitedNs - startNs;
+        runNs       = exitedNs - spawnedAtNs;
+        msg         = gatherOutputs(proc, elapsedNs);
+        drainNs     = System.nanoTime() - exitedNs;
+
+        if(proc.exitValue() == 0) {
+            // Strategy test PASSED
+            state = SmokeTestResult.STATE.USER_PASS;
+
+            recordPass(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Note in the result cache (if any) that the command line passed, e.g. as it did in a shard.
+     *
+     * @param passedAtMillis When it passed
+     */
+    protected void recordPass(final long passedAtMillis) {
+        if(null != resultCache) {
+            resultCache.recordPass(cacheKey(), passedAtMillis);
+        }
+    }
+
+    /**
+     * If the command line passed recently enough, denote a CACHED_PASS rather than running it again.
+     *
+     * @return true if the cached pass was used; else false (the command line needs to be run)
+     */
+    protected synchronized boolean processCached() {
+        if(null == resultCache || cacheTtlSeconds <= 0) {
+            return false;
+        }
+
+        long passedAtMillis = resultCache.getPassedAtMillis(cacheKey());
+        long ageMillis      = System.currentTimeMillis() - passedAtMillis;
+
+        if(ResultCache.NOT_CACHED == passedAtMillis || ageMillis < 0 || ageMillis > TimeUnit.SECONDS.toMillis(cacheTtlSeconds)) {
+            return false;
+        }
+
+        state   = SmokeTestResult.STATE.CACHED_PASS;
+        msg     = String.format(
+                "%s, passed %d S ago (ttl %d S)",
+                cmdDetails("CACHED_PASS", id, cmdLine, elapsedNs),
+                TimeUnit.MILLISECONDS.toSeconds(ageMillis),
+                cacheTtlSeconds);
+
+        LOGGER.debug(String.format("processCached: %s [%s %s] %s", idLabel, id, cmdLine, msg));
+
+        return true;
+    }
+
+    /**
+     * @return What identifies this command line, as it would be run, in the result cache
+     */
+    protected String cacheKey() {
+        Map<String, String> env = new TreeMap<>();
+        setEnvVariables(env, ConfigProcessor.onWindows());
+
+        return ResultCache.key(id, cmdLine, env, cacheTag);
+    }
+
+    /**
+     * The process ran out of time, keep whatever it had written so far and then destroy it (and anything it started).
+     *
+     * @param proc The still running process
+     * @param startNs When the process was started
+     */
+    protected synchronized void processExpired(final Process proc, final long startNs) {
+        if(! proc.isAlive()) {
+            return;
+        }
+
+        long expiredNs  = System.nanoTime();
+
+        elapsedNs   = expiredNs - startNs;
+        runNs       = expiredNs - spawnedAtNs;
+        msg         = gatherPartialOutputs(proc, elapsedNs);
+        state       = SmokeTestResult.STATE.TIMEOUT;
+        timedOut    = true;
+
+        ProcessSupport.destroyProcessTree(proc);
+
+        LOGGER.warn(String.format("processExpired: %s [%s %s] timed out after %d S", idLabel, id, cmdLine, timeoutSeconds));
+    }
+
+    /**
+     * The process could not be started, or waiting for it was interrupted.
+     *
+     * @param e The problem
+     * @param startNs When the attempt to run the process started
+     */
+    protected synchronized void processFailed(final Exception e, final long startNs) {
+        elapsedNs = System.nanoTime() - startNs;
+
+        LOGGER.error(String.format("execute: %s [%s %s]", idLabel, id, cmdLine), e);
+
+        msg = cmdDetails(-1, id, cmdLine, elapsedNs) + ", ERROR: " + e.toString();
+
+        state = SmokeTestResult.STATE.EXEC_ERROR;
+    }
+
+    /**
+     * Set any bespoke environmental variables the command line needs.
+     *
+     * @param env The map of current environmental variables (will be added to)
+     * @param runningInWindows flag to say what OS we are running in
+     */
+    protected abstract void setEnvVariables(Map<String, String> env, boolean runningInWindows);
+
+    /**
+     * Extract the outputs of the process.
+     *
+     * @param proc The process
+     * @param elapsedNs how long the process executed for
+     *
+     * @return A String representation of the proc's output
+     */
+    protected String gatherOutputs(final Process proc, final long elapsedNs) {
+        if(null != stdoutFile) {
+            readOutputFiles();
+        } else {
+            awaitDrained(stdoutCapture);
+            awaitDrained(stderrCapture);
+        }
+
+        SmokeTestMetrics.getInstance().outputCaptured(stdoutCapture.getTotalBytes() + stderrCapture.getTotalBytes());
+
+        return String.format(
+                "%s, stdout [%s], stderr [%s]%s",
+                cmdDetails(proc.exitValue(), id, cmdLine, elapsedNs),
+                stdoutCapture,
+                stderrCapture,
+                spillDetails());
+    }
+
+    /**
+     * Extract whatever output a still running process has written so far, without waiting for any more.
+     *
+     * @param proc The process
+     * @param elapsedNs how long the process executed for
+     *
+     * @return A String representation of the proc's output
+     */
+    protected String gatherPartialOutputs(final Process proc, final long elapsedNs) {
+        readOutputFiles();
+
+        SmokeTestMetrics.getInstance().outputCaptured(stdoutCapture.getTotalBytes() + stderrCapture.getTotalBytes());
+
+        return String.format(
+                "%s, timeoutSeconds [%d], stdout [%s], stderr [%s]%s",
+                cmdDetails("TIMEOUT", id, cmdLine, elapsedNs),
+                timeoutSeconds,
+                stdoutCapture,
+                stderrCapture,
+                spillDetails());
+    }
+
+    /**
+     * Wait (a short while) for all the output to be read.
+     *
+     * @param capture The output being captured
+     */
+    private void awaitDrained(final OutputCapture capture) {
+        try {
+            if(! capture.await(DRAIN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn(String.format(
+                        "awaitDrained: %s [%s] output still open %d S after exit, using what has been read",
+                        idLabel, id, DRAIN_WAIT_SECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Where the complete outputs were written, or empty if not spilling
+     */
+    private String spillDetails() {
+        if(null == outputSpillDirectory) {
+            return "";
+        }
+
+        return String.format(
+                ", outputFiles [%s, %s]",
+                stdoutCapture.getSpillFile(),
+                stderrCapture.getSpillFile());
+    }
+
+    /**
+     * Extract the current process details.
+     *
+     * @param exitCode The proc's exit code
+     * @param id The id of this Strategy
+     * @param cmdLine The command line that was executed.
+     * @param elapsedNs how long the process executed for
+     *
+     * @return A String representation of the process details
+     */
+    protected String cmdDetails(final int exitCode, final String id, final String cmdLine, final long elapsedNs) {
+        return cmdDetails((exitCode == 0 ? "PASS" : "FAIL"), id, cmdLine, elapsedNs);
+    }
+
+    /**
+     * Extract the current process details.
+     *
+     * @param outcome How the process finished, e.g. PASS
+     * @param id The id of this Strategy
+     * @param cmdLine The command line that was executed.
+     * @param elapsedNs how long the process executed for
+     *
+     * @return A String representation of the process details
+     */
+    protected String cmdDetails(final String outcome, final String id, final String cmdLine, final long elapsedNs) {
+        return String.format(
+                "%s: %s [%s], cmd [%s], elapsedNs [%d]",
+                outcome,
+                idLabel,
+                id,
+                cmdLine,
+                elapsedNs);
+    }
+}
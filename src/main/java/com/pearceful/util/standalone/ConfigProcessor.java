@@ -1,11 +1,24 @@
 package com.pearceful.util.standalone;
 
+import com.pearceful.util.AdaptiveConcurrencyLimit;
+import com.pearceful.util.CompactResultStore;
+import com.pearceful.util.DurationHistory;
+import com.pearceful.util.SmokeTestContext;
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestListener;
+import com.pearceful.util.SmokeTestLoadGenerator;
 import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestRunner;
+import com.pearceful.util.SmokeTestStrategy;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Created by ppearce on 2016-03-08.
@@ -20,6 +33,7 @@ public abstract class ConfigProcessor {
     public static final String NOT_SELECTED_PREFIX  = "-";
     public static final String VALUE_SENTINAL       = "=";
     public static final String GLOBAL_SENTINAL      = "@";
+    public static final String GROUP_PREFIX         = "@";
 
     public static final String UNIX_SHELL           = "bash";
     public static final String UNIX_SHELL_PARAM     = "-c";
@@ -27,77 +41,408 @@ public abstract class ConfigProcessor {
     public static final String WINDOWS_SHELL        = "cmd";
     public static final String WINDOWS_SHELL_PARAM  = "/c";
 
+    ////////////////////////////////////////////////////////////////////
+    // Set st.load.rate to drive each selected test at that rate (per S)
+    public static final String LOAD_RATE_KEY        = "st.load.rate";
+    public static final String LOAD_SECONDS_KEY     = "st.load.seconds";
+    public static final String LOAD_CONCURRENCY_KEY = "st.load.concurrency";
+
+    //////////////////////////////////////////////////////////////////////
+    // Set st.results.compact to true to keep a huge run's results compact
+    public static final String COMPACT_RESULTS_KEY  = "st.results.compact";
+
+    ///////////////////////////////////////////////////////////////////////
+    // Override how many slowest passes, and which sections, are summarised
+    public static final String REPORT_SLOWEST_KEY   = "st.report.slowest";
+    public static final String REPORT_SECTIONS_KEY  = "st.report.sections";
+
+    ////////////////////////////////////////////////////////////////////
+    // Set st.output.live to true to display each result as it completes
+    public static final String LIVE_OUTPUT_KEY      = "st.output.live";
+
+    //////////////////////////////////////////////////////////////////////////
+    // Set st.suite.stream to true to stream a huge suite, rather than hold it
+    public static final String STREAM_SUITE_KEY     = "st.suite.stream";
+
+    private static final Logger LOGGER              = Logger.getLogger(ConfigProcessor.class);
+
 
     /**
+     * Display each result (unless they were displayed as they arrived), then the summaries, gathered in the same
+     * pass.
      *
-     * @param results
-     * @return
+     * @param results The results of the run
+     * @param summary The summaries to gather and display
+     * @param displayResults true to display each result; else false
+     * @return The number of tests that did not pass
      */
-    protected static int processResults(List<SmokeTestResult> results) {
-        int failedCount = 0;
+    protected static int processResults(
+            final List<SmokeTestResult> results,
+            final ResultSummary summary,
+            final boolean displayResults) {
+
+        ResultCollector collector = new ResultCollector(displayResults, summary);
 
         ///////////////////////////////////
         // Display the result for each test
         for(SmokeTestResult result : results) {
-            if(! result.getState().equals(SmokeTestResult.STATE.USER_PASS)) {
-                failedCount++;
+            collector.onTestComplete(result);
+        }
+
+        return processResults(collector);
+    }
+
+    /**
+     * Display the results, then fold their elapsed times into the duration history and save it, so the next run
+     * can start the slowest tests first.
+     *
+     * @param results The results of the run
+     * @param summary The summaries to gather and display
+     * @param displayResults true to display each result; else false
+     * @param durationHistory If not null, the history to update
+     * @param historyFile Where to save the history
+     * @return The number of tests that did not pass
+     */
+    protected static int processResults(
+            final List<SmokeTestResult> results,
+            final ResultSummary summary,
+            final boolean displayResults,
+            final DurationHistory durationHistory,
+            final Path historyFile) {
+
+        int failedCount = processResults(results, summary, displayResults);
+
+        if(null != durationHistory && null != historyFile) {
+            for(SmokeTestResult result : results) {
+                durationHistory.record(result);
             }
 
-            System.out.println(result.getMessage());
+            try {
+                durationHistory.save(historyFile);
+            } catch (IOException e) {
+                ///////////////////////////////////////////////////////////
+                // Only the next run's ordering suffers, so just warn
+                LOGGER.warn("processResults: Problem saving history file [" + historyFile + "]", e);
+            }
         }
 
-        /////////////////////////////////
-        // Determine the slowest commands
-        List<SmokeTestResult> slowestResults = new ArrayList<>() ;
-        slowestResults.addAll(results);
+        return failedCount;
+    }
 
-        Collections.sort(slowestResults, new Comparator<SmokeTestResult>() {
-            @Override
-            public int compare(SmokeTestResult o1, SmokeTestResult o2) {
-                int result = 0;
+    /**
+     * Display the limits on tests in flight chosen as the tests ran.
+     *
+     * @param adaptiveLimit If null (concurrency was not adaptive), nothing is displayed
+     */
+    protected static void processConcurrencySummary(final AdaptiveConcurrencyLimit adaptiveLimit) {
+        if(null == adaptiveLimit) {
+            return;
+        }
 
-                if (o1.getElapsedNanoSeconds() > o2.getElapsedNanoSeconds()) {
-                    result = -1;
-                } else if (o1.getElapsedNanoSeconds() < o2.getElapsedNanoSeconds()) {
-                    result = 1;
-                }
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: Adaptive concurrency " + adaptiveLimit);
+    }
 
-                return result;
-            }
-        });
+    /**
+     * @return true if the selected tests are to be driven at a rate (st.load.rate), rather than run once
+     */
+    protected static boolean isLoadTest() {
+        return null != System.getProperty(LOAD_RATE_KEY);
+    }
 
-        //////////////////////////
-        // Display the top slowest
-        int max = 5;
-        System.out.println("COMM: ################################################");
-        System.out.println("SUMM: Top " + max + " Slowest (PASS) responses follow.");
+    /**
+     * A streamed suite's tests are pulled into the run as there is room for them, rather than all held up front
+     * (see SmokeTestRunner.run(Iterator, SmokeTestListener)), if st.suite.stream is true. It is off by default, as
+     * the longest first ordering, MAX_FAILURE_PERCENT, dependencies on later tests, filling the pool around a full
+     * group and listing the results in file order all need the whole suite. Load tests and shards are never
+     * streamed.
+     *
+     * @return true if the selected tests are to be streamed into the run; else false
+     */
+    protected static boolean isStreamed() {
+        if(isLoadTest() || ShardCoordinator.isCoordinator() || ShardCoordinator.isWorker()) {
+            return false;
+        }
+
+        return Boolean.getBoolean(STREAM_SUITE_KEY);
+    }
+
+    /**
+     * Run the suite in this JVM, streaming it's tests if it is streamed, keeping the results compactly (see
+     * openCompactResultStore) and displaying them as they arrive (see openConsoleWriter) if asked to.
+     *
+     * @param smokeTestRunner The runner to run the tests with
+     * @param suite The suite being run
+     * @param summary The summaries, told about each test pulled from a streamed suite (for it's group)
+     * @param compactResults If not null, the store to keep the results in
+     * @param consoleWriter If not null, the writer to display each result with as it arrives
+     * @return The results of the run
+     *
+     * @throws SmokeTestException
+     * @throws IOException If a streamed suite could not be read
+     */
+    protected static List<SmokeTestResult> runLocally(
+            final SmokeTestRunner smokeTestRunner,
+            final SmokeTestSuite suite,
+            final ResultSummary summary,
+            final CompactResultStore compactResults,
+            final ConsoleWriter consoleWriter) throws SmokeTestException, IOException {
+
+        if(! suite.isStreamed() && null == compactResults && null == consoleWriter) {
+            return smokeTestRunner.run(suite.getSmokeTestStrategies());
+        }
+
+        ////////////////////////////////////////////////////////////
+        // Keep a huge run's results compact, messages spilled, and
+        // display each result as soon as it's complete
+        List<SmokeTestResult> arrived   = new ArrayList<>();
+        List<SmokeTestResult> results   = (null != compactResults ? compactResults : arrived);
+        SmokeTestListener listener      =
+                displayOnArrival(null != compactResults ? compactResults : arrived::add, consoleWriter);
+
+        if(! suite.isStreamed()) {
+            smokeTestRunner.run(suite.getSmokeTestStrategies(), listener);
+
+            return results;
+        }
+
+        try(Stream<SmokeTestStrategy> smokeTestStrategies = suite.openTests()) {
+            smokeTestRunner.run(smokeTestStrategies.peek(summary::addTest).iterator(), listener);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return results;
+    }
 
-        int count = 1;
-        for(SmokeTestResult result : slowestResults) {
-            if (count > max) {
-                break;
+    /**
+     * Drive each selected test, one after the other, at st.load.rate invocations per second for st.load.seconds
+     * (default 60), with at most st.load.concurrency (default 100) invocations running at once, then display the
+     * response times (from when each invocation was meant to start), service times and queueing delays.
+     *
+     * @param smokeTestStrategies The selected tests
+     * @return The number of tests with an invocation that did not pass (or complete)
+     *
+     * @throws SmokeTestException
+     */
+    protected static int processLoad(final Set<SmokeTestStrategy> smokeTestStrategies) throws SmokeTestException {
+        double ratePerSecond    = Double.parseDouble(System.getProperty(LOAD_RATE_KEY));
+        long durationInSeconds  = Long.getLong(LOAD_SECONDS_KEY, 60);
+        int concurrency         = Integer.getInteger(LOAD_CONCURRENCY_KEY, 100);
+        int failedCount         = 0;
+
+        for(SmokeTestStrategy smokeTestStrategy : smokeTestStrategies) {
+            CommandTestProcessor command = (CommandTestProcessor)smokeTestStrategy;
+
+            SmokeTestLoadGenerator.Report report =
+                    SmokeTestContext.generateLoad(command::copy, ratePerSecond, durationInSeconds, concurrency);
+
+            System.out.println("COMM: ################################################");
+            System.out.println(String.format("SUMM: Load id [%s], cmd [%s], %s", command.getId(), command.getCmdLine(), report));
+            System.out.println(String.format("LOAD: id [%s], response times, %s", command.getId(), report.getResponseTimes()));
+            System.out.println(String.format("LOAD: id [%s], service times, %s", command.getId(), report.getServiceTimes()));
+            System.out.println(String.format("LOAD: id [%s], queueing delays, %s", command.getId(), report.getQueueingDelays()));
+
+            if(report.getPassedInvocations() < report.getIntendedInvocations()) {
+                failedCount++;
             }
+        }
 
-            if(result.getState().equals(SmokeTestResult.STATE.USER_PASS)) {
-                System.out.println(result.getMessage());
-                count++ ;
+        return failedCount;
+    }
+
+    /**
+     * Save the passes recorded during the run, a problem saving is only logged as the run itself is unaffected.
+     *
+     * @param resultCache If not null, the cache the tests used
+     */
+    protected static void saveResultCache(final ResultCache resultCache) {
+        if(null == resultCache) {
+            return;
+        }
+
+        try {
+            resultCache.save();
+        } catch (IOException e) {
+            LOGGER.warn("saveResultCache: Problem saving cache file [" + resultCache.getCacheFile() + "]", e);
+        }
+    }
+
+    /**
+     * Note the passes merged from the shards in the result cache, as only the coordinator saves it (each worker
+     * loads it, but would otherwise overwrite the others' passes with it's own).
+     *
+     * @param smokeTestStrategies The tests handed to the shards
+     * @param results The merged results
+     */
+    protected static void recordPasses(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final List<SmokeTestResult> results) {
+
+        Map<String, SmokeTestResult> resultsById    = new HashMap<>();
+        long passedAtMillis                         = System.currentTimeMillis();
+
+        for(SmokeTestResult result : results) {
+            resultsById.put(result.getId(), result);
+        }
+
+        for(SmokeTestStrategy smokeTestStrategy : smokeTestStrategies) {
+            SmokeTestResult result = resultsById.get(smokeTestStrategy.getId());
+
+            if(smokeTestStrategy instanceof CommandTestProcessor
+                    && null != result
+                    && SmokeTestResult.STATE.USER_PASS == result.getState()) {
+
+                ((CommandTestProcessor)smokeTestStrategy).recordPass(passedAtMillis);
             }
         }
+    }
 
-        ////////////////////////////
-        // Display just the failures
-        System.out.println("COMM: ################################################");
-        System.out.println("SUMM: All (FAIL) responses follow.");
+    /**
+     * Start exporting the results for Prometheus, if asked to (see PrometheusExporter), a problem (e.g. the port is
+     * in use) is only logged as the run itself is unaffected.
+     *
+     * @return The exporter, or null if not exporting
+     */
+    protected static PrometheusExporter startPrometheusExporter() {
+        try {
+            return PrometheusExporter.fromSystemProperties();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("startPrometheusExporter: Problem starting the Prometheus exporter", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Hand results that did not arrive through a runner's listener (e.g. merged from the shards) to the exporter.
+     *
+     * @param prometheusExporter If not null, the exporter
+     * @param results The results of the run
+     */
+    protected static void recordResults(
+            final PrometheusExporter prometheusExporter,
+            final List<SmokeTestResult> results) {
+
+        if(null == prometheusExporter) {
+            return;
+        }
 
         for(SmokeTestResult result : results) {
-            if(! result.getState().equals(SmokeTestResult.STATE.USER_PASS)) {
-                System.out.println(result.getMessage());
+            prometheusExporter.onTestComplete(result);
+        }
+    }
+
+    /**
+     * Open a store to keep the results in compactly (their messages spilled to a file), if asked to (see
+     * COMPACT_RESULTS_KEY), a problem opening it is only logged.
+     *
+     * @return The store, or null to keep the results as they are
+     */
+    protected static CompactResultStore openCompactResultStore() {
+        if(! Boolean.getBoolean(COMPACT_RESULTS_KEY)) {
+            return null;
+        }
+
+        try {
+            return new CompactResultStore();
+        } catch (IOException e) {
+            LOGGER.warn("openCompactResultStore: Problem creating the spill file, keeping the results as they are", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * @return A writer displaying each result as it arrives, or null if not asked for (see LIVE_OUTPUT_KEY)
+     */
+    protected static ConsoleWriter openConsoleWriter() {
+        return Boolean.getBoolean(LIVE_OUTPUT_KEY) ? new ConsoleWriter() : null;
+    }
+
+    /**
+     * @param listener The run's own listener
+     * @param consoleWriter If not null, the writer to display each result with as well
+     * @return A listener handing each result to both, or just the listener
+     */
+    protected static SmokeTestListener displayOnArrival(
+            final SmokeTestListener listener,
+            final ConsoleWriter consoleWriter) {
+
+        if(null == consoleWriter) {
+            return listener;
+        }
+
+        return result -> {
+            listener.onTestComplete(result);
+            consoleWriter.onTestComplete(result);
+        };
+    }
+
+    /**
+     * Count the run, write the text file (if asked to) and stop serving, a problem writing is only logged.
+     *
+     * @param prometheusExporter If not null, the exporter
+     */
+    protected static void finishPrometheusExporter(final PrometheusExporter prometheusExporter) {
+        if(null == prometheusExporter) {
+            return;
+        }
+
+        prometheusExporter.runCompleted();
+
+        try {
+            prometheusExporter.writeTextFile();
+        } catch (IOException e) {
+            LOGGER.warn("finishPrometheusExporter: Problem writing the Prometheus text file", e);
+        }
+
+        prometheusExporter.close();
+    }
+
+    /**
+     * @param results The results of the run
+     * @return true if the run was aborted after too many failures; else false
+     */
+    protected static boolean wasAborted(final List<SmokeTestResult> results) {
+        for(SmokeTestResult result : results) {
+            if(SmokeTestResult.STATE.ABORTED == result.getState()) {
+                return true;
             }
         }
 
+        return false;
+    }
+
+    /**
+     * Display the summaries for results that have already been handed to (and possibly displayed by) the collector.
+     *
+     * @param collector The collector the results were streamed into
+     * @return The number of tests that did not pass
+     */
+    protected static int processResults(ResultCollector collector) {
+        collector.getSummary().print();
+
         ////////////////////////////////////////////////
         // Indicate if there was a failure to the caller
-        return failedCount;
+        return collector.getFailedCount();
+    }
+
+    /**
+     * Create the summaries for a run of the suite, as many slowest passes and the sections it asks for, unless
+     * overridden by the REPORT_SLOWEST_KEY and REPORT_SECTIONS_KEY system properties.
+     *
+     * @param suite The suite being run
+     * @return The (empty) summaries
+     */
+    protected static ResultSummary newResultSummary(final SmokeTestSuite suite) {
+        int slowestCount            = Integer.getInteger(REPORT_SLOWEST_KEY, suite.getReportSlowestCount());
+        String sections             = System.getProperty(REPORT_SECTIONS_KEY);
+
+        return new ResultSummary(
+                slowestCount,
+                (null != sections ? ResultSummary.parseSections(sections) : suite.getReportSections()),
+                suite.getSmokeTestStrategies());
     }
 
     /**
@@ -260,6 +605,65 @@ public abstract class ConfigProcessor {
         return false;
     }
 
+    /**
+     * Find the concurrency group marker (e.g. the db in #:DEV:@db:) in the line's tag descriptor.
+     *
+     * @param line The line from the input file
+     *
+     * @return The group, or null if there is no marker
+     */
+    protected static String groupToBeSelected(final String line) {
+        String descriptor = tagDescriptor(line);
+
+        if(null == descriptor) return null;
+
+        for(String part : descriptor.substring(COMMENT_LEADER.length()).split(TAG_SENTINAL)) {
+            if(part.startsWith(GROUP_PREFIX) && part.length() > GROUP_PREFIX.length()) {
+                return part.substring(GROUP_PREFIX.length());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove any concurrency group marker from the line's tag descriptor, so it isn't mistaken for a tag.
+     *
+     * @param line The line from the input file
+     *
+     * @return The line without the marker
+     */
+    protected static String stripGroup(final String line) {
+        String descriptor = tagDescriptor(line);
+
+        if(null == descriptor) return line;
+
+        StringBuilder stripped = new StringBuilder(COMMENT_LEADER);
+
+        for(String part : descriptor.substring(COMMENT_LEADER.length()).split(TAG_SENTINAL)) {
+            if(! part.startsWith(GROUP_PREFIX)) {
+                stripped.append(part).append(TAG_SENTINAL);
+            }
+        }
+
+        return stripped + line.substring(descriptor.length());
+    }
+
+    /**
+     * @return The line's leading tag descriptor (e.g. #:DEV:UAT:), or null if it doesn't start with one
+     */
+    private static String tagDescriptor(final String line) {
+        if(null == line || ! line.startsWith(COMMENT_LEADER + TAG_SENTINAL)) return null;
+
+        int end = 0;
+
+        while(end < line.length() && ! Character.isWhitespace(line.charAt(end))) {
+            end++;
+        }
+
+        return line.substring(0, end);
+    }
+
     protected static String valueToBeSelected(final String line, final String tag) {
         if(null == line)        return null;
 
@@ -284,6 +688,50 @@ public abstract class ConfigProcessor {
         return null;
     }
 
+    /**
+     * Counts (and optionally displays) each result as it arrives from SmokeTestContext.runSmokeTests.
+     */
+    static class ResultCollector implements SmokeTestListener {
+        private final ResultSummary summary;
+        private final boolean displayOnArrival;
+        private int failedCount                       = 0;
+
+        /**
+         *
+         * @param displayOnArrival true to display each result's message as soon as it arrives; else false
+         * @param summary The summaries each result is folded into
+         */
+        public ResultCollector(final boolean displayOnArrival, final ResultSummary summary) {
+            this.displayOnArrival   = displayOnArrival;
+            this.summary            = summary;
+        }
+
+        @Override
+        public void onTestComplete(final SmokeTestResult result) {
+            if(! result.getState().isPass()) {
+                failedCount++;
+            }
+
+            summary.add(result);
+
+            if(displayOnArrival) {
+                System.out.println(result.getMessage());
+            }
+        }
+
+        public ResultSummary getSummary() {
+            return summary;
+        }
+
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        public int getPassedCount() {
+            return (int)summary.getCount() - failedCount;
+        }
+    }
+
     /**
      *
      */
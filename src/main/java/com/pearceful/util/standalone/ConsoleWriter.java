@@ -0,0 +1,139 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestListener;
+import com.pearceful.util.SmokeTestResult;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Writes each result's message (it's PASS/FAIL line) to the console as soon as it's test completes, so a long run
+ * is not a blank terminal until the summaries. The lines are queued and written by a thread of it's own, through a
+ * single buffered writer that is flushed whenever the queue runs dry, so whoever hands the lines over never waits
+ * on (or contends for) the console.
+ *
+ * No line is dropped, close waits (a while) for the queued lines to be written, so close it before displaying
+ * anything else.
+ */
+public class ConsoleWriter implements SmokeTestListener, AutoCloseable {
+    private static final Logger LOGGER                  = Logger.getLogger(ConsoleWriter.class);
+    private static final int BUFFER_CHARS               = 64 * 1024;
+    private static final long CLOSE_TIMEOUT_SECONDS     = 30;
+    private static final String END_OF_OUTPUT           = new String("END_OF_OUTPUT");  // Compared by reference
+
+    private final Writer out;
+    private final BlockingQueue<String> lines           = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed                     = false;
+
+    /**
+     * Write to System.out.
+     */
+    public ConsoleWriter() {
+        this(System.out);
+    }
+
+    /**
+     * @param out Where to write the lines to, it is flushed but not closed
+     */
+    public ConsoleWriter(final OutputStream out) {
+        ////////////////
+        // Sanity checks
+        if(null == out) {
+            throw new IllegalArgumentException("ConsoleWriter: out cannot be null");
+        }
+
+        this.out    = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), BUFFER_CHARS);
+        this.writer = new Thread(this::write, "st-console-writer");
+
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void onTestComplete(final SmokeTestResult smokeTestResult) {
+        println(smokeTestResult.getMessage());
+    }
+
+    /**
+     * Queue a line to be written, never waits.
+     */
+    public void println(final String line) {
+        if(closed) {
+            LOGGER.warn("println: Closed, not writing [" + line + "]");
+
+            return;
+        }
+
+        lines.add(String.valueOf(line));
+    }
+
+    /**
+     * Wait for the queued lines to be written, then stop, later lines are not written.
+     */
+    @Override
+    public void close() {
+        if(closed) {
+            return;
+        }
+
+        closed = true;
+        lines.add(END_OF_OUTPUT);
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(writer.isAlive()) {
+            LOGGER.warn("close: Console output still being written after " + CLOSE_TIMEOUT_SECONDS + " S");
+        }
+    }
+
+    private void write() {
+        List<String> batch = new ArrayList<>();
+
+        try {
+            while(true) {
+                //////////////////////////////////////////////////////////////
+                // Write whatever has been queued, only flushing once it's dry
+                batch.add(lines.take());
+                lines.drainTo(batch);
+
+                for(String line : batch) {
+                    if(END_OF_OUTPUT == line) {
+                        out.flush();
+
+                        return;
+                    }
+
+                    out.write(line);
+                    out.write(System.lineSeparator());
+                }
+
+                batch.clear();
+
+                if(lines.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("write: Stopped");
+        } catch (IOException e) {
+            LOGGER.error("write: Problem writing to the console, no more results are displayed as they arrive", e);
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.pearceful.util.standalone;
 
-import com.pearceful.util.SmokeTestContext;
+import com.pearceful.util.AdaptiveConcurrencyLimit;
+import com.pearceful.util.CompactResultStore;
+import com.pearceful.util.DurationHistory;
 import com.pearceful.util.SmokeTestException;
 import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestRunner;
 import com.pearceful.util.SmokeTestStrategy;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 
 /**
@@ -26,10 +31,7 @@ public class JsonConfigProcessor extends ConfigProcessor {
 
     public static void main(String[] args) {
         int exitStatus      = 0;
-        int threadPoolSize  = 5;
-        int timeoutSeconds  = 600;
         String filter       = null;
-        TestSelectionFilter selectionFilter   =   null;
 
         if(args.length < 2) {
             exitStatus      = 1;
@@ -42,8 +44,6 @@ public class JsonConfigProcessor extends ConfigProcessor {
 
         if(args.length > 2) {
             filter  = args[2];
-
-            selectionFilter = new TestSelectionFilter(filter);
         }
 
         if(null == stTag || stTag.trim().length() < 1) {
@@ -65,70 +65,114 @@ public class JsonConfigProcessor extends ConfigProcessor {
             System.exit(3) ;
         }
 
-        Set<SmokeTestStrategy> jsonTests = new CopyOnWriteArraySet<>();
-
         int failedCount = 0;
         int passedCount = 0;
 
         long start      = System.nanoTime();
 
+        PrometheusExporter prometheusExporter = null;
+        CompactResultStore compactResults     = null;
+        ConsoleWriter consoleWriter           = null;
+
         try{
-            for(StandaloneJsonConfig.JsonTestDefinition testDef : config.testDefinitions) {
-
-                ////////////////////////////////////////////
-                // Start the selection process for this line
-                boolean selected        = testToBeSelected(stTag, testDef);
-                boolean passedFilter    = false;
-
-                if(selected) {
-                    //////////////////////////
-                    // Matched the environment
-                    String cmdLine = testDef.getCmd();
-
-                    if (null != selectionFilter) {
-                        //////////////////////////////////////
-                        // A command line filter was specified
-                        passedFilter = selectionFilter.isMatch(testDef.getId(), cmdLine);
+            SmokeTestSuite suite                = loadSuite(config, stTag, filter, isStreamed());
+            Set<SmokeTestStrategy> jsonTests    = suite.getSmokeTestStrategies();
+            DurationHistory durationHistory     = suite.getDurationHistory();
+
+            if(isLoadTest()) {
+                ///////////////////////////////////////////////////
+                // Drive the selected tests at a rate, not just once
+                failedCount = processLoad(jsonTests);
+                passedCount = jsonTests.size() - failedCount;
+
+                processSummaryAndExit(LOGGER, (failedCount > 0 ? 5 : 0), failedCount, passedCount, start);
+                return;
+            }
+
+            //////////////////////////////
+            // Run the scripts in parallel
+            List<SmokeTestResult> results;
+            AdaptiveConcurrencyLimit adaptiveLimit = null;
+            ResultSummary summary                  = newResultSummary(suite);
+
+            prometheusExporter = startPrometheusExporter();
+
+            if(ShardCoordinator.isCoordinator()) {
+                ///////////////////////////////////////////////////////////
+                // Hand the tests to worker JVMs, one per shard, and merge
+                results = ShardCoordinator.coordinate(
+                        JsonConfigProcessor.class, args, jsonTests, durationHistory, suite.getTimeoutInSeconds());
+
+                recordResults(prometheusExporter, results);
+                recordPasses(jsonTests, results);
+                saveResultCache(suite.getResultCache());
+            } else {
+                SmokeTestRunner.Builder runnerBuilder = suite.getRunnerBuilder();
+
+                if(null != prometheusExporter) {
+                    runnerBuilder.listener(prometheusExporter);
+                }
+
+                try(SmokeTestRunner smokeTestRunner = runnerBuilder.build()) {
+                    if(ShardCoordinator.isWorker()) {
+                        results = ShardCoordinator.runShard(smokeTestRunner, jsonTests, durationHistory);
                     } else {
-                        passedFilter = true;
+                        compactResults  = openCompactResultStore();
+                        consoleWriter   = openConsoleWriter();
+                        results         = runLocally(smokeTestRunner, suite, summary, compactResults, consoleWriter);
                     }
 
-                    /////////////////////////////////////////////////////////////
-                    // Finally check if the line passed all checks to be executed
-                    if(passedFilter) {
-                        jsonTests.add(new JsonTestProcessor(config.setup, testDef));
-                    }
+                    adaptiveLimit = smokeTestRunner.getAdaptiveConcurrencyLimit();
                 }
 
-                LOGGER.debug(
-                        String.format(
-                                "main: selected [%-5s], passedFilter [%-5s], id [%4s], envValue [%s], cmd [%s]",
-                                selected,
-                                passedFilter,
-                                testDef.getId(),
-                                config.setup.getEnvronmentalVariables(),
-                                testDef.getCmd()));
+                ////////////////////////////////////////////////////////////
+                // Only the coordinator saves the (merged) result cache too
+                if(! ShardCoordinator.isWorker()) {
+                    saveResultCache(suite.getResultCache());
+                }
             }
 
-            //////////////////////////////
-            // Run the scripts in parallel
-            List<SmokeTestResult> results =
-                    SmokeTestContext.runSmokeTests(
-                            jsonTests, threadPoolSize, timeoutSeconds);
+            /////////////////////////////////////////////////////////////////
+            // The live output is written before the summaries are displayed,
+            // and only the coordinator saves the (merged) history file
+            if(null != consoleWriter) {
+                consoleWriter.close();
+            }
 
-            failedCount = processResults(results);
+            failedCount = processResults(
+                    results,
+                    summary,
+                    null == consoleWriter,
+                    durationHistory,
+                    ShardCoordinator.isWorker() ? null : suite.getHistoryFile());
+            processConcurrencySummary(adaptiveLimit);
             passedCount = results.size() - failedCount;
 
             ////////////////////////////////////////////////
             // Indicate if there was a failure to the caller
-            if(failedCount > 0) {
+            if(wasAborted(results)) {
+                exitStatus = 6;
+            } else if(failedCount > 0) {
                 exitStatus = 5;
             }
+        } catch (IOException e) {
+            System.err.println(e);
+            exitStatus = 4;
         } catch (SmokeTestException e) {
             System.err.println(e);
             exitStatus = 3;
         }
 
+        finishPrometheusExporter(prometheusExporter);
+
+        if(null != consoleWriter) {
+            consoleWriter.close();
+        }
+
+        if(null != compactResults) {
+            compactResults.close();
+        }
+
         processSummaryAndExit(LOGGER, exitStatus, failedCount, passedCount, start);
     }
 
@@ -185,6 +229,183 @@ public class JsonConfigProcessor extends ConfigProcessor {
         doExit(LOGGER, exitStatus);
     }
 
+    /**
+     * Select the tests to run for the tag (and filter), as the CLI (or a daemon) would.
+     *
+     * @param config The parsed configuration file
+     * @param stTag The selector tag, e.g. DEV
+     * @param filter If not null, a further filter on the selected tests (see showUsage)
+     *
+     * @return The selected tests, and the settings to run them with
+     */
+    public static SmokeTestSuite loadSuite(final StandaloneJsonConfig config, final String stTag, final String filter) {
+        return loadSuite(config, stTag, filter, false);
+    }
+
+    /**
+     * Select the tests to run for the tag (and filter), as the CLI (or a daemon) would.
+     *
+     * A streamed suite does not hold on to it's tests, each test definition is only made into a test as it is pulled
+     * into a run (see SmokeTestSuite.openTests).
+     *
+     * @param config The parsed configuration file
+     * @param stTag The selector tag, e.g. DEV
+     * @param filter If not null, a further filter on the selected tests (see showUsage)
+     * @param streamed true to stream the selected tests into a run; else false to hold on to them
+     *
+     * @return The selected tests (or a stream of them), and the settings to run them with
+     */
+    public static SmokeTestSuite loadSuite(
+            final StandaloneJsonConfig config,
+            final String stTag,
+            final String filter,
+            final boolean streamed) {
+
+        TestSelectionFilter selectionFilter = (null != filter ? new TestSelectionFilter(filter) : null);
+        Set<SmokeTestStrategy> jsonTests    = new LinkedHashSet<>();    // Hashed on the id, in file order
+        Map<String, Long> intervals         = new HashMap<>();
+
+        ////////////////////////////////////////////////////////////
+        // Tests that passed recently enough are not run again
+        ResultCache resultCache = null;
+
+        if(null != config.setup.getCacheFile()) {
+            resultCache = ResultCache.load(Paths.get(config.setup.getCacheFile()), config.setup.getCacheMaxEntries());
+        }
+
+        for(StandaloneJsonConfig.JsonTestDefinition testDef : config.testDefinitions) {
+            JsonTestProcessor jsonTest = selectTest(config, stTag, selectionFilter, resultCache, testDef);
+
+            if(null == jsonTest || streamed) {
+                if(null != jsonTest && testDef.getIntervalSeconds() > 0) {
+                    intervals.put(testDef.getId(), testDef.getIntervalSeconds());
+                }
+
+                continue;
+            }
+
+            /////////////////////////////////////////////////
+            // An id can only be run once, the first one wins
+            if(! jsonTests.add(jsonTest)) {
+                LOGGER.warn("loadSuite: Duplicate test id [" + testDef.getId() + "], ignoring cmd [" + testDef.getCmd() + "]");
+            } else if(testDef.getIntervalSeconds() > 0) {
+                intervals.put(testDef.getId(), testDef.getIntervalSeconds());
+            }
+        }
+
+        ////////////////////////////////////////////////////////////////
+        // Only make each definition into a test as it is pulled
+        SmokeTestSuite.TestStream testStream = null;
+
+        if(streamed) {
+            final ResultCache streamedResultCache = resultCache;
+
+            testStream = () -> config.testDefinitions.stream()
+                    .<SmokeTestStrategy>map(testDef ->
+                            selectTest(config, stTag, selectionFilter, streamedResultCache, testDef))
+                    .filter(Objects::nonNull);
+        }
+
+        ///////////////////////////////////////////////////////////////
+        // The slowest tests (from previous runs) are started first
+        Path historyFile                = null;
+        DurationHistory durationHistory = null;
+
+        if(null != config.setup.getHistoryFile()) {
+            historyFile     = Paths.get(config.setup.getHistoryFile());
+            durationHistory = DurationHistory.load(historyFile, config.setup.getHistoryMaxEntries());
+        }
+
+        return new SmokeTestSuite(
+                jsonTests,
+                SmokeTestRunner.builder()
+                        .executorMode(config.setup.getExecutorMode())
+                        .maxConcurrentTests(config.setup.getThreadPoolSize())
+                        .timeoutInSeconds(config.setup.getTimeoutSecondsForAllTests())
+                        .durationHistory(durationHistory)
+                        .maxFailures(config.setup.getMaxFailures())
+                        .maxFailurePercent(config.setup.getMaxFailurePercent())
+                        .groupLimits(config.setup.getConcurrencyGroups())
+                        .adaptiveConcurrency(config.setup.isAdaptiveConcurrency())
+                        .repeat(config.setup.getWarmupIterations(), config.setup.getIterations())
+                        .discoverListeners(),
+                config.setup.getTimeoutSecondsForAllTests(),
+                durationHistory,
+                historyFile,
+                intervals,
+                resultCache,
+                config.setup.getReportSlowestCount(),
+                config.setup.getReportSections(),
+                testStream);
+    }
+
+    /**
+     * Make the test definition into a test, if it is to be run for the tag (and filter).
+     *
+     * @param config The parsed configuration file
+     * @param stTag The selector tag, e.g. DEV
+     * @param selectionFilter If not null, a further filter on the selected tests
+     * @param resultCache If not null, the cache of recent passes
+     * @param testDef The test definition
+     *
+     * @return The test, or null if not selected
+     */
+    private static JsonTestProcessor selectTest(
+            final StandaloneJsonConfig config,
+            final String stTag,
+            final TestSelectionFilter selectionFilter,
+            final ResultCache resultCache,
+            final StandaloneJsonConfig.JsonTestDefinition testDef) {
+
+        ////////////////////////////////////////////
+        // Start the selection process for this line
+        boolean selected            = testToBeSelected(stTag, testDef);
+        boolean passedFilter        = false;
+        JsonTestProcessor jsonTest  = null;
+
+        if(selected) {
+            //////////////////////////
+            // Matched the environment
+            String cmdLine = testDef.getCmd();
+
+            if (null != selectionFilter) {
+                //////////////////////////////////////
+                // A command line filter was specified
+                passedFilter = selectionFilter.isMatch(testDef.getId(), cmdLine);
+            } else {
+                passedFilter = true;
+            }
+
+            /////////////////////////////////////////////////////////////
+            // Finally check if the line passed all checks to be executed
+            if(passedFilter) {
+                jsonTest = new JsonTestProcessor(config.setup, testDef);
+
+                if(null != resultCache) {
+                    long cacheTtlSeconds = testDef.getCacheTtlSeconds();
+
+                    if(StandaloneJsonConfig.JsonTestDefinition.USE_SETUP_CACHE_TTL == cacheTtlSeconds) {
+                        cacheTtlSeconds = config.setup.getCacheTtlSeconds();
+                    }
+
+                    jsonTest.setResultCache(resultCache, stTag, cacheTtlSeconds);
+                }
+
+            }
+        }
+
+        LOGGER.debug(
+                String.format(
+                        "selectTest: selected [%-5s], passedFilter [%-5s], id [%4s], envValue [%s], cmd [%s]",
+                        selected,
+                        passedFilter,
+                        testDef.getId(),
+                        config.setup.getEnvronmentalVariables(),
+                        testDef.getCmd()));
+
+        return jsonTest;
+    }
+
     /**
      * Determine if the test can be selected for execution
      *
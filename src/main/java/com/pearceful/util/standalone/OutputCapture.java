@@ -0,0 +1,312 @@
+package com.pearceful.util.standalone;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Drains a child process's output stream while the process is still running, so a command that writes more than
+ * the OS pipe buffer can never block.
+ *
+ * Only the first and last maxBytes/2 bytes are kept in memory (the tail in a ring buffer), anything in between is
+ * counted and skipped. If a spill file is given, the complete output is also written to it through a FileChannel.
+ *
+ * Each stream is drained by a (daemon) thread of it's own for as long as it is open, so a blocking command costs two
+ * drainer threads on top of the thread waiting for it. A command run without a thread waiting (ASYNC) writes it's
+ * output to files instead (see ProcessBuilder.redirectOutput), and just the head and tail are read back (see read).
+ */
+public class OutputCapture implements Runnable {
+    public static final int DEFAULT_MAX_BYTES   = 64 * 1024;
+
+    private static final Logger LOGGER          = Logger.getLogger(OutputCapture.class);
+    private static final int READ_BUFFER_SIZE   = 8192;
+
+    private static final ExecutorService DRAINERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "st-output-drain");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private final InputStream inputStream;
+    private final Path spillFile;
+    private final byte[] head;
+    private final byte[] tail;
+    private int headLength                      = 0;
+    private long tailCount                      = 0;    // Bytes ever written to the tail ring buffer
+    private long totalBytes                     = 0;
+    private final CountDownLatch drained        = new CountDownLatch(1);
+
+    /**
+     *
+     * @param inputStream The stream to drain
+     * @param maxBytes How many bytes (at most) to keep in memory
+     * @param spillFile If not null, the file to write the complete output to
+     */
+    public OutputCapture(final InputStream inputStream, final int maxBytes, final Path spillFile) {
+        if(maxBytes < 2) {
+            throw new IllegalArgumentException("maxBytes must be > 1");
+        }
+
+        this.inputStream    = inputStream;
+        this.spillFile      = spillFile;
+        this.head           = new byte[maxBytes / 2];
+        this.tail           = new byte[maxBytes - head.length];
+    }
+
+    /**
+     * Start draining a stream on a (shared) background thread.
+     *
+     * @param inputStream The stream to drain
+     * @param maxBytes How many bytes (at most) to keep in memory
+     * @param spillFile If not null, the file to write the complete output to
+     *
+     * @return The capture, which fills as the stream is read
+     */
+    public static OutputCapture start(final InputStream inputStream, final int maxBytes, final Path spillFile) {
+        OutputCapture capture = new OutputCapture(inputStream, maxBytes, spillFile);
+
+        DRAINERS.execute(capture);
+
+        return capture;
+    }
+
+    @Override
+    public void run() {
+        byte[] buffer               = new byte[READ_BUFFER_SIZE];
+        FileChannel spillChannel    = openSpillChannel();
+
+        try {
+            int read;
+
+            while((read = inputStream.read(buffer)) >= 0) {
+                append(buffer, read);
+
+                if(null != spillChannel) {
+                    spillChannel = spill(spillChannel, buffer, read);
+                }
+            }
+        } catch (IOException e) {
+            ///////////////////////////////////////////////////////////////////
+            // Expected if the process is destroyed while we are still reading
+            LOGGER.debug("run: Stopped draining output", e);
+        } finally {
+            closeSpillChannel(spillChannel);
+
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                LOGGER.debug("run: Problem closing output stream", e);
+            }
+
+            drained.countDown();
+        }
+    }
+
+    /**
+     * Capture the output a process has written to a file (so far), reading just the head and tail of it.
+     *
+     * @param outputFile The file the output was redirected to
+     * @param maxBytes How many bytes (at most) to keep in memory
+     * @param spillFile If not null, where the complete output is, typically the output file itself
+     *
+     * @return The capture, already drained (and empty if the file could not be read)
+     */
+    public static OutputCapture read(final Path outputFile, final int maxBytes, final Path spillFile) {
+        OutputCapture capture = new OutputCapture(null, maxBytes, spillFile);
+
+        try(FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.READ)) {
+            capture.readHeadAndTail(channel);
+        } catch (IOException e) {
+            LOGGER.warn("read: Problem reading output file [" + outputFile + "]", e);
+        } finally {
+            capture.drained.countDown();
+        }
+
+        return capture;
+    }
+
+    /**
+     * Wait for the stream to be completely drained (the process, and anything it started, has closed it).
+     *
+     * @param timeout How long to wait
+     * @param unit The unit of the timeout
+     *
+     * @return true if drained; else false
+     *
+     * @throws InterruptedException
+     */
+    public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return drained.await(timeout, unit);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public Path getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * @return The head and tail of the output captured so far, noting how much was skipped in between
+     */
+    @Override
+    public synchronized String toString() {
+        int tailLength  = (int)Math.min(tailCount, tail.length);
+        long skipped    = totalBytes - headLength - tailLength;
+
+        StringBuilder output = new StringBuilder(new String(head, 0, headLength));
+
+        if(skipped > 0) {
+            output.append(String.format("\n...[%d bytes skipped]...\n", skipped));
+        }
+
+        if(tailCount <= tail.length) {
+            output.append(new String(tail, 0, tailLength));
+        } else {
+            ///////////////////////////////////////////////////
+            // The ring has wrapped, the oldest byte is next up
+            int oldest  = (int)(tailCount % tail.length);
+            byte[] ring = new byte[tail.length];
+
+            System.arraycopy(tail, oldest, ring, 0, tail.length - oldest);
+            System.arraycopy(tail, 0, ring, tail.length - oldest, oldest);
+
+            output.append(new String(ring));
+        }
+
+        return output.toString().replaceAll("[\r\n]+$", "");
+    }
+
+    /**
+     * @return The channel to spill the complete output to, or null if not spilling (or the file could not be opened)
+     */
+    private FileChannel openSpillChannel() {
+        if(null == spillFile) {
+            return null;
+        }
+
+        try {
+            Files.createDirectories(spillFile.toAbsolutePath().getParent());
+
+            return FileChannel.open(
+                    spillFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            ///////////////////////////////////////////////////////////
+            // Only the spill file is lost, the output is still drained
+            LOGGER.warn("openSpillChannel: Problem opening spill file [" + spillFile + "], not spilling", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Write the bytes to the spill file, a problem (e.g. the disk is full) stops the spilling but not the draining.
+     *
+     * @return The channel to keep spilling to, or null if spilling has stopped
+     */
+    private FileChannel spill(final FileChannel spillChannel, final byte[] buffer, final int length) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+
+        try {
+            while(byteBuffer.hasRemaining()) {
+                spillChannel.write(byteBuffer);
+            }
+
+            return spillChannel;
+        } catch (IOException e) {
+            LOGGER.warn("spill: Problem writing spill file [" + spillFile + "], the rest is not spilled", e);
+
+            closeSpillChannel(spillChannel);
+
+            return null;
+        }
+    }
+
+    private void closeSpillChannel(final FileChannel spillChannel) {
+        if(null == spillChannel) {
+            return;
+        }
+
+        try {
+            spillChannel.close();
+        } catch (IOException e) {
+            LOGGER.warn("closeSpillChannel: Problem closing spill file [" + spillFile + "]", e);
+        }
+    }
+
+    /**
+     * Read the first and last bytes of the channel, skipping (but counting) anything in between.
+     */
+    private synchronized void readHeadAndTail(final FileChannel channel) throws IOException {
+        long size   = channel.size();
+
+        headLength  = readFully(channel, 0, head, (int)Math.min(size, head.length));
+
+        long tailStart  = Math.max(headLength, size - tail.length);
+        tailCount       = readFully(channel, tailStart, tail, (int)Math.max(0, size - tailStart));
+        totalBytes      = tailStart + tailCount;
+    }
+
+    /**
+     * @return How many bytes were read, fewer than asked for if the channel ends first
+     */
+    private static int readFully(
+            final FileChannel channel,
+            final long position,
+            final byte[] into,
+            final int length) throws IOException {
+
+        ByteBuffer byteBuffer = ByteBuffer.wrap(into, 0, length);
+
+        while(byteBuffer.hasRemaining()) {
+            if(channel.read(byteBuffer, position + byteBuffer.position()) < 0) {
+                break;
+            }
+        }
+
+        return byteBuffer.position();
+    }
+
+    /**
+     * Keep the bytes if they are part of the head, else add them to the tail ring buffer.
+     */
+    private synchronized void append(final byte[] buffer, final int length) {
+        int offset  = 0;
+
+        totalBytes += length;
+
+        if(headLength < head.length) {
+            int toHead = Math.min(length, head.length - headLength);
+
+            System.arraycopy(buffer, 0, head, headLength, toHead);
+            headLength  += toHead;
+            offset      += toHead;
+        }
+
+        while(offset < length) {
+            int position    = (int)(tailCount % tail.length);
+            int toTail      = Math.min(length - offset, tail.length - position);
+
+            System.arraycopy(buffer, offset, tail, position, toTail);
+            tailCount   += toTail;
+            offset      += toTail;
+        }
+    }
+}
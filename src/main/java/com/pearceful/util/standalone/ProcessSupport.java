@@ -0,0 +1,166 @@
+package com.pearceful.util.standalone;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Helpers for managing the child processes started by the test processors.
+ *
+ * The framework still targets Java 8, so the Java 9+ ProcessHandle API is looked up reflectively and only used when
+ * the running JVM provides it.
+ */
+public final class ProcessSupport {
+    private static final Logger LOGGER                  = Logger.getLogger(ProcessSupport.class);
+
+    private static final Method DESCENDANTS             = findMethod(Process.class, "descendants");
+    private static final Method HANDLE_DESTROY_FORCIBLY = findMethod(classForName("java.lang.ProcessHandle"), "destroyForcibly");
+    private static final Method ON_EXIT                 = findMethod(Process.class, "onExit");
+
+    ///////////////////////////////////////////////////////////////////////
+    // Java 8 only, threads to wait for processes that have no onExit method
+    private static final ExecutorService WAITERS        = Executors.newCachedThreadPool(daemonThreads("st-process-waiter"));
+
+    /////////////////////////////////////////////////
+    // Fires the per-test timeouts of async commands
+    private static final ScheduledExecutorService TIMERS =
+            Executors.newSingleThreadScheduledExecutor(daemonThreads("st-process-timer"));
+
+    private ProcessSupport() {
+    }
+
+    /**
+     * Forcibly terminate a process and (when running on Java 9+) all of it's descendants, so that nothing started
+     * by a 'bash -c' or 'cmd /c' command line is left running.
+     *
+     * @param proc The process to terminate
+     */
+    public static void destroyProcessTree(final Process proc) {
+        if(null == proc) return;
+
+        //////////////////////////////////////////////////////////////////
+        // Snapshot the descendants first, once the parent has gone they
+        // are re-parented and can no longer be found from it
+        List<Object> descendants = descendantsOf(proc);
+
+        proc.destroyForcibly();
+
+        for(Object descendant : descendants) {
+            try {
+                HANDLE_DESTROY_FORCIBLY.invoke(descendant);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warn("destroyProcessTree: Problem destroying descendant process [" + descendant + "]", e);
+            }
+        }
+
+        LOGGER.debug(String.format("destroyProcessTree: Destroyed process and %d descendant(s)", descendants.size()));
+    }
+
+    /**
+     * A future that completes when the process exits, without tying up a thread to wait for it when running on
+     * Java 9+ (Process.onExit). On Java 8 a (cached) waiter thread blocks in waitFor instead.
+     *
+     * @param proc The process
+     *
+     * @return A future completed with the process once it has exited
+     */
+    public static CompletableFuture<Process> onExit(final Process proc) {
+        if(null != ON_EXIT) {
+            try {
+                ////////////////////////////////////////////////////////
+                // Process.onExit is declared CompletableFuture<Process>
+                @SuppressWarnings("unchecked")
+                CompletableFuture<Process> exited = (CompletableFuture<Process>)ON_EXIT.invoke(proc);
+
+                return exited;
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warn("onExit: Problem calling Process.onExit, falling back to a waiter thread", e);
+            }
+        }
+
+        CompletableFuture<Process> exited = new CompletableFuture<>();
+
+        WAITERS.execute(() -> {
+            try {
+                proc.waitFor();
+                exited.complete(proc);
+            } catch (InterruptedException e) {
+                exited.completeExceptionally(e);
+            }
+        });
+
+        return exited;
+    }
+
+    /**
+     * Run a task once after a delay, on a shared timer thread.
+     *
+     * @param task The (short) task to run
+     * @param delaySeconds How long to wait before running it
+     *
+     * @return The future that can be used to cancel the task
+     */
+    public static ScheduledFuture<?> schedule(final Runnable task, final long delaySeconds) {
+        return TIMERS.schedule(task, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     *
+     * @param proc
+     * @return The ProcessHandle's of all the descendants of the process, or empty if not supported
+     */
+    private static List<Object> descendantsOf(final Process proc) {
+        if(null == DESCENDANTS || null == HANDLE_DESTROY_FORCIBLY) {
+            LOGGER.debug("descendantsOf: ProcessHandle not available, only the direct child will be destroyed");
+
+            return Collections.emptyList();
+        }
+
+        try {
+            ///////////////////////////////////////////////////////////////////////////////////
+            // Process.descendants is declared Stream<ProcessHandle>, only seen as Objects here
+            @SuppressWarnings("unchecked")
+            Stream<Object> descendants = (Stream<Object>)DESCENDANTS.invoke(proc);
+
+            return descendants.collect(Collectors.toList());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("descendantsOf: Problem finding descendant processes", e);
+
+            return Collections.emptyList();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+    private static Class<?> classForName(final String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(final Class<?> clazz, final String name) {
+        if(null == clazz) return null;
+
+        try {
+            return clazz.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestListener;
+import com.pearceful.util.SmokeTestResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Exposes the tests' results in the Prometheus text format, so smoke test latencies and states can be graphed next
+ * to the services they test: each test's last state and duration, a histogram of it's durations, and counts of the
+ * results (by state) and runs.
+ *
+ * With -Dst.prometheus.port=n the metrics are served (by the JDK's own HTTP server) at http://host:n/metrics for as
+ * long as a CLI (or the daemon) runs, with -Dst.prometheus.textfile=file.prom they are written to the file at the
+ * end of a CLI run (for the node exporter's textfile collector).
+ *
+ * Results are recorded (as a SmokeTestListener) into per-test counters without taking a lock, a scrape renders them
+ * on the server's own thread, so serving a scrape never holds up the tests.
+ */
+public class PrometheusExporter implements SmokeTestListener, AutoCloseable {
+    public static final String PORT_KEY             = "st.prometheus.port";
+    public static final String TEXTFILE_KEY         = "st.prometheus.textfile";
+    public static final String METRICS_PATH         = "/metrics";
+    public static final String CONTENT_TYPE         = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Logger LOGGER              = Logger.getLogger(PrometheusExporter.class);
+
+    //////////////////////////////////////////////////////////
+    // The duration histogram's bucket upper bounds (seconds)
+    private static final double[] BUCKET_SECONDS    =
+            {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600};
+
+    private final ConcurrentMap<String, TestSeries> tests                   = new ConcurrentHashMap<>();
+    private final Map<SmokeTestResult.STATE, LongAdder> resultsByState      = new EnumMap<>(SmokeTestResult.STATE.class);
+    private final LongAdder runs                                            = new LongAdder();
+    private final Path textFile;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    /**
+     * @param textFile If not null, where writeTextFile writes the metrics
+     */
+    public PrometheusExporter(final Path textFile) {
+        this.textFile = textFile;
+
+        for(SmokeTestResult.STATE state : SmokeTestResult.STATE.values()) {
+            resultsByState.put(state, new LongAdder());
+        }
+    }
+
+    /**
+     * An exporter as configured by the st.prometheus.* system properties, serving if a port was given. A shard
+     * worker never exports (it's coordinator does).
+     *
+     * @return The exporter, or null if neither a port nor a text file was given
+     *
+     * @throws IOException If the port cannot be served
+     */
+    public static PrometheusExporter fromSystemProperties() throws IOException {
+        Integer port        = Integer.getInteger(PORT_KEY);
+        String textFile     = System.getProperty(TEXTFILE_KEY);
+
+        if((null == port && null == textFile) || ShardCoordinator.isWorker()) {
+            return null;
+        }
+
+        PrometheusExporter exporter = new PrometheusExporter(null != textFile ? Paths.get(textFile) : null);
+
+        if(null != port) {
+            exporter.serve(port);
+        }
+
+        return exporter;
+    }
+
+    /**
+     * Start serving the metrics (at METRICS_PATH) on a daemon thread of it's own.
+     *
+     * @param port The port to listen on, 0 for any free port
+     *
+     * @return The port being listened on
+     *
+     * @throws IOException If the port cannot be listened on
+     */
+    public synchronized int serve(final int port) throws IOException {
+        ////////////////
+        // Sanity checks
+        if(null != httpServer) {
+            throw new IllegalStateException("serve: Already serving on port " + httpServer.getAddress().getPort());
+        }
+
+        httpExecutor    = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "st-prometheus");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        httpServer      = HttpServer.create(new InetSocketAddress(port), 0);
+
+        httpServer.createContext(METRICS_PATH, this::handleScrape);
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+
+        LOGGER.info("serve: Serving metrics at http://localhost:" + httpServer.getAddress().getPort() + METRICS_PATH);
+
+        return httpServer.getAddress().getPort();
+    }
+
+    @Override
+    public void onTestComplete(final SmokeTestResult smokeTestResult) {
+        tests.computeIfAbsent(smokeTestResult.getId(), id -> new TestSeries()).record(smokeTestResult);
+        resultsByState.get(smokeTestResult.getState()).increment();
+    }
+
+    /**
+     * Count a run (of some or all of the tests) as over.
+     */
+    public void runCompleted() {
+        runs.increment();
+    }
+
+    /**
+     * Write the metrics to the text file, replacing it in one go so the collector never reads a partial file.
+     *
+     * @throws IOException
+     */
+    public void writeTextFile() throws IOException {
+        if(null == textFile) {
+            return;
+        }
+
+        Path parent = textFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path tempFile = Files.createTempFile(parent, textFile.getFileName().toString(), ".tmp");
+
+        try {
+            try(Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(render());
+            }
+
+            Files.move(tempFile, textFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * @return The metrics, in the Prometheus text format
+     */
+    public String render() {
+        StringBuilder text                  = new StringBuilder();
+        Map<String, TestSeries> byId        = new TreeMap<>();
+
+        ///////////////////////////////////////////////////////////
+        // Leave out a test whose first result is still being recorded
+        for(Map.Entry<String, TestSeries> entry : tests.entrySet()) {
+            if(null != entry.getValue().lastState) {
+                byId.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        header(text, "smoketest_last_pass", "gauge", "1 if the test's latest result passed, else 0");
+        for(Map.Entry<String, TestSeries> entry : byId.entrySet()) {
+            sample(text, "smoketest_last_pass", idLabel(entry.getKey()), entry.getValue().lastState.isPass() ? 1 : 0);
+        }
+
+        header(text, "smoketest_last_state", "gauge", "The state of the test's latest result (always 1)");
+        for(Map.Entry<String, TestSeries> entry : byId.entrySet()) {
+            sample(
+                    text,
+                    "smoketest_last_state",
+                    idLabel(entry.getKey()) + ",state=\"" + entry.getValue().lastState + "\"",
+                    1);
+        }
+
+        header(text, "smoketest_last_duration_seconds", "gauge", "How long the test's latest run took");
+        for(Map.Entry<String, TestSeries> entry : byId.entrySet()) {
+            sample(text, "smoketest_last_duration_seconds", idLabel(entry.getKey()), entry.getValue().lastSeconds);
+        }
+
+        header(text, "smoketest_last_completed_timestamp_seconds", "gauge", "When the test's latest run completed");
+        for(Map.Entry<String, TestSeries> entry : byId.entrySet()) {
+            sample(
+                    text,
+                    "smoketest_last_completed_timestamp_seconds",
+                    idLabel(entry.getKey()),
+                    entry.getValue().lastCompletedMillis / 1000.0);
+        }
+
+        header(text, "smoketest_duration_seconds", "histogram", "How long each run of the test took");
+        for(Map.Entry<String, TestSeries> entry : byId.entrySet()) {
+            entry.getValue().renderHistogram(text, idLabel(entry.getKey()));
+        }
+
+        header(text, "smoketest_results_total", "counter", "The results handed back, by state");
+        for(Map.Entry<SmokeTestResult.STATE, LongAdder> entry : resultsByState.entrySet()) {
+            sample(text, "smoketest_results_total", "state=\"" + entry.getKey() + "\"", entry.getValue().sum());
+        }
+
+        header(text, "smoketest_runs_total", "counter", "The runs completed");
+        sample(text, "smoketest_runs_total", null, runs.sum());
+
+        return text.toString();
+    }
+
+    /**
+     * Stop serving, waiting for any scrape in progress.
+     */
+    @Override
+    public synchronized void close() {
+        if(null != httpServer) {
+            httpServer.stop(0);
+            httpExecutor.shutdown();
+
+            httpServer = null;
+        }
+    }
+
+    private void handleScrape(final HttpExchange exchange) throws IOException {
+        try {
+            if(! "GET".equals(exchange.getRequestMethod()) && ! "HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+
+                return;
+            }
+
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+
+            if("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void header(final StringBuilder text, final String name, final String type, final String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(final StringBuilder text, final String name, final String labels, final double value) {
+        text.append(name);
+
+        if(null != labels) {
+            text.append('{').append(labels).append('}');
+        }
+
+        text.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String formatValue(final double value) {
+        if(Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long)value) : Double.toString(value);
+    }
+
+    private static String idLabel(final String id) {
+        return "id=\"" + escape(id) + "\"";
+    }
+
+    /**
+     * Escape a label value, as the text format requires.
+     */
+    static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * A test's latest result and it's histogram, written by the listener and read (without a lock, so possibly a
+     * result behind) by a scrape.
+     */
+    private static class TestSeries {
+        private final LongAdder[] bucketCounts  = new LongAdder[BUCKET_SECONDS.length];
+        private final LongAdder count           = new LongAdder();
+        private final LongAdder totalNs         = new LongAdder();
+        private volatile SmokeTestResult.STATE lastState;
+        private volatile double lastSeconds;
+        private volatile long lastCompletedMillis;
+
+        TestSeries() {
+            for(int bucket = 0 ; bucket < bucketCounts.length ; bucket++) {
+                bucketCounts[bucket] = new LongAdder();
+            }
+        }
+
+        void record(final SmokeTestResult smokeTestResult) {
+            long elapsedNs  = Math.max(0, smokeTestResult.getElapsedNanoSeconds());
+            double seconds  = elapsedNs / (double)TimeUnit.SECONDS.toNanos(1);
+
+            ////////////////////////////////////////////////////////////////////
+            // Only count the first bucket it fits, the rendering accumulates
+            for(int bucket = 0 ; bucket < BUCKET_SECONDS.length ; bucket++) {
+                if(seconds <= BUCKET_SECONDS[bucket]) {
+                    bucketCounts[bucket].increment();
+                    break;
+                }
+            }
+
+            totalNs.add(elapsedNs);
+            count.increment();
+
+            lastState           = smokeTestResult.getState();
+            lastSeconds         = seconds;
+            lastCompletedMillis = System.currentTimeMillis();
+        }
+
+        void renderHistogram(final StringBuilder text, final String idLabel) {
+            long total      = count.sum();
+            long cumulative = 0;
+
+            for(int bucket = 0 ; bucket < BUCKET_SECONDS.length ; bucket++) {
+                cumulative += bucketCounts[bucket].sum();
+
+                sample(
+                        text,
+                        "smoketest_duration_seconds_bucket",
+                        idLabel + ",le=\"" + formatValue(BUCKET_SECONDS[bucket]) + "\"",
+                        Math.min(cumulative, total));
+            }
+
+            sample(text, "smoketest_duration_seconds_bucket", idLabel + ",le=\"+Inf\"", Math.max(cumulative, total));
+            sample(text, "smoketest_duration_seconds_sum", idLabel, totalNs.sum() / (double)TimeUnit.SECONDS.toNanos(1));
+            sample(text, "smoketest_duration_seconds_count", idLabel, Math.max(cumulative, total));
+        }
+    }
+}
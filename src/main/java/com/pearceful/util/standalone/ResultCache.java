@@ -0,0 +1,262 @@
+package com.pearceful.util.standalone;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * When each test last passed, so a test that passed recently enough (within it's time to live) can be reported as
+ * CACHED_PASS without running it's command again, e.g. when CI runs the same suite against the same environment
+ * many times an hour.
+ *
+ * A test is identified by a SHA-256 hash of it's id, command line, the environmental variables it is run with and
+ * the selector tag, so changing any of them means it is run again. The cache is kept in a compact binary file
+ * between runs, at most maxEntries passes are kept, the least recent pass is evicted first.
+ */
+public class ResultCache {
+    public static final int DEFAULT_MAX_ENTRIES     = 10000;
+    public static final long NOT_CACHED             = -1;
+
+    private static final Logger LOGGER              = Logger.getLogger(ResultCache.class);
+    private static final int FILE_MAGIC             = 0x53545243;   // "STRC"
+    private static final int FILE_VERSION           = 1;
+    private static final int KEY_BYTES              = 32;           // SHA-256
+
+    private final Path cacheFile;
+    private final int maxEntries;
+
+    ///////////////////////////////////////////////////////////
+    // Key (hex) to when it last passed, least recent pass first
+    private final LinkedHashMap<String, Long> passedAtMillis = new LinkedHashMap<>();
+
+    /**
+     * @param cacheFile Where the cache is saved
+     * @param maxEntries How many passes (at most) are kept
+     */
+    public ResultCache(final Path cacheFile, final int maxEntries) {
+        ////////////////
+        // Sanity checks
+        if(null == cacheFile) {
+            throw new IllegalArgumentException("cacheFile cannot be null");
+        }
+
+        if(maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+
+        this.cacheFile  = cacheFile;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Load the cache from a file written by save, a missing or unreadable file gives an empty cache.
+     *
+     * @param cacheFile The file to read (and later save to)
+     * @param maxEntries How many passes (at most) are kept
+     *
+     * @return The cache
+     */
+    public static ResultCache load(final Path cacheFile, final int maxEntries) {
+        ResultCache resultCache = new ResultCache(cacheFile, maxEntries);
+
+        if(Files.notExists(cacheFile)) {
+            LOGGER.info("load: No cache file [" + cacheFile + "] yet, starting afresh");
+
+            return resultCache;
+        }
+
+        try {
+            resultCache.merge(read(cacheFile));
+
+            LOGGER.debug(String.format("load: Read %d pass(es) from [%s]", resultCache.size(), cacheFile));
+        } catch (IOException e) {
+            LOGGER.warn("load: Problem reading cache file [" + cacheFile + "], starting afresh", e);
+        }
+
+        return resultCache;
+    }
+
+    /**
+     * @param id The test's id
+     * @param cmdLine The test's command line
+     * @param env The (bespoke) environmental variables the command line is run with
+     * @param tag The selector tag
+     *
+     * @return The key the test's passes are cached under
+     */
+    public static String key(final String id, final String cmdLine, final Map<String, String> env, final String tag) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            update(digest, id);
+            update(digest, cmdLine);
+            update(digest, tag);
+
+            for(Map.Entry<String, String> entry : new TreeMap<>(env).entrySet()) {
+                update(digest, entry.getKey());
+                update(digest, entry.getValue());
+            }
+
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            /////////////////////////////////////////
+            // Every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param key The test's key
+     *
+     * @return When (epoch mS) the test last passed, or NOT_CACHED
+     */
+    public synchronized long getPassedAtMillis(final String key) {
+        return passedAtMillis.getOrDefault(key, NOT_CACHED);
+    }
+
+    /**
+     * @param key The test's key
+     * @param passedAtMillis When (epoch mS) the test passed
+     */
+    public synchronized void recordPass(final String key, final long passedAtMillis) {
+        this.passedAtMillis.remove(key);
+        this.passedAtMillis.put(key, passedAtMillis);
+
+        evict();
+    }
+
+    public synchronized int size() {
+        return passedAtMillis.size();
+    }
+
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Write the cache to it's file, keeping any newer passes saved there (e.g. by another run) in the meantime, and
+     * replacing it in one go so a reader never sees a partial file.
+     *
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        if(Files.exists(cacheFile)) {
+            try {
+                merge(read(cacheFile));
+            } catch (IOException e) {
+                LOGGER.warn("save: Problem reading cache file [" + cacheFile + "], overwriting it", e);
+            }
+        }
+
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path tempFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+
+        try {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(passedAtMillis.size());
+
+                for(Map.Entry<String, Long> entry : passedAtMillis.entrySet()) {
+                    out.write(fromHex(entry.getKey()));
+                    out.writeLong(entry.getValue());
+                }
+            }
+
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Keep the newer pass of each key, then evict down to maxEntries.
+     */
+    private synchronized void merge(final Map<String, Long> passes) {
+        List<Map.Entry<String, Long>> oldestFirst = new ArrayList<>(passes.entrySet());
+        oldestFirst.addAll(passedAtMillis.entrySet());
+        oldestFirst.sort(Map.Entry.comparingByValue());
+
+        ////////////////////////////////////////////////////////////
+        // Later (newer) passes of a key replace, and move, earlier ones
+        Map<String, Long> merged = new LinkedHashMap<>();
+
+        for(Map.Entry<String, Long> entry : oldestFirst) {
+            merged.remove(entry.getKey());
+            merged.put(entry.getKey(), entry.getValue());
+        }
+
+        passedAtMillis.clear();
+        passedAtMillis.putAll(merged);
+
+        evict();
+    }
+
+    private void evict() {
+        Iterator<String> leastRecent = passedAtMillis.keySet().iterator();
+
+        while(passedAtMillis.size() > maxEntries) {
+            leastRecent.next();
+            leastRecent.remove();
+        }
+    }
+
+    private static Map<String, Long> read(final Path cacheFile) throws IOException {
+        Map<String, Long> passes = new LinkedHashMap<>();
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if(FILE_MAGIC != in.readInt() || FILE_VERSION != in.readInt()) {
+                throw new IOException("Not a (supported) cache file");
+            }
+
+            int count   = in.readInt();
+            byte[] key  = new byte[KEY_BYTES];
+
+            for(int i = 0 ; i < count ; i++) {
+                in.readFully(key);
+                passes.put(toHex(key), in.readLong());
+            }
+        }
+
+        return passes;
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        if(null != value) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        digest.update((byte)0);
+    }
+
+    private static String toHex(final byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+        for(byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(final String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+
+        for(int i = 0 ; i < bytes.length ; i++) {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,314 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.LatencyHistogram;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestStrategy;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * The end of run summaries of the standalone CLIs, gathered in a single pass over the results as they are handed
+ * over (see add), then displayed (see print), so even a huge run is summarised in O(n log N) for the N slowest.
+ *
+ * Only what the sections need is held on to: the N slowest passes (in a bounded min-heap), a count per state, a
+ * latency histogram per concurrency group and per phase, the repeated tests (for their percentiles) and the
+ * failures, by state.
+ */
+public class ResultSummary {
+    public static final int DEFAULT_SLOWEST_COUNT       = 5;
+    public static final Set<SECTION> DEFAULT_SECTIONS   = Collections.unmodifiableSet(EnumSet.allOf(SECTION.class));
+
+    public enum SECTION {
+        SLOWEST,        // The slowest passes (or the latency percentiles of each test, when the tests were repeated)
+        STATES,         // How many results there were in each state
+        GROUPS,         // The latencies of each concurrency group's tests
+        PHASES,         // Where the time went, each phase totalled over all the tests
+        FAILURES        // Every result that did not pass, by state
+    }
+
+    private final int slowestCount;
+    private final Set<SECTION> sections;
+    private final Map<String, String> groupsById                            = new ConcurrentHashMap<>();
+
+    private final PriorityQueue<Slowest> slowest;                           // Fastest of the slowest at the head
+    private long addedCount                                                 = 0;
+    private final Map<SmokeTestResult.STATE, Integer> stateCounts           = new EnumMap<>(SmokeTestResult.STATE.class);
+    private final Map<String, LatencyHistogram> groupLatencies              = new TreeMap<>();
+    private final Map<SmokeTestResult.PHASE, LatencyHistogram> phases       = new EnumMap<>(SmokeTestResult.PHASE.class);
+    private final List<SmokeTestResult> repeated                            = new ArrayList<>();
+    private final Map<SmokeTestResult.STATE, List<SmokeTestResult>> failures
+                                                                            = new EnumMap<>(SmokeTestResult.STATE.class);
+
+    /**
+     * @param slowestCount How many of the slowest passes to display
+     * @param sections Which sections to display, in any order (they are displayed in SECTION order)
+     * @param smokeTestStrategies The run's tests, for their concurrency groups
+     */
+    public ResultSummary(
+            final int slowestCount,
+            final Set<SECTION> sections,
+            final Collection<? extends SmokeTestStrategy> smokeTestStrategies) {
+
+        ////////////////
+        // Sanity checks
+        if(slowestCount < 0) {
+            throw new IllegalArgumentException("ResultSummary: slowestCount must be >= 0");
+        }
+
+        if(null == sections) {
+            throw new IllegalArgumentException("ResultSummary: sections cannot be null");
+        }
+
+        this.slowestCount   = slowestCount;
+        this.sections       = EnumSet.noneOf(SECTION.class);
+        this.slowest        = new PriorityQueue<>(Math.max(1, slowestCount + 1));
+
+        this.sections.addAll(sections);
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            addTest(strategy);
+        }
+    }
+
+    /**
+     * Note a test of the run, for it's concurrency group, as it is pulled from a streamed suite (the results can be
+     * added at the same time).
+     */
+    public void addTest(final SmokeTestStrategy strategy) {
+        if(null != strategy.getGroup()) {
+            groupsById.put(strategy.getId(), strategy.getGroup());
+        }
+    }
+
+    /**
+     * @param sections A comma separated list of SECTION names (case insensitive), or ALL
+     *
+     * @return The sections
+     */
+    public static Set<SECTION> parseSections(final String sections) {
+        Set<SECTION> parsed = EnumSet.noneOf(SECTION.class);
+
+        for(String section : sections.split(",")) {
+            String name = section.trim().toUpperCase();
+
+            if("ALL".equals(name)) {
+                parsed.addAll(DEFAULT_SECTIONS);
+            } else if(! name.isEmpty()) {
+                try {
+                    parsed.add(SECTION.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "parseSections: Unknown section [" + section.trim() + "], expected one of "
+                            + Arrays.toString(SECTION.values()));
+                }
+            }
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Fold a result into the summaries, it's message is only looked at when (if) it is displayed.
+     */
+    public void add(final SmokeTestResult result) {
+        SmokeTestResult.STATE state = result.getState();
+        long sequence               = addedCount++;
+
+        stateCounts.merge(state, 1, Integer::sum);
+
+        /////////////////////////////////////////////////////////
+        // Keep the N slowest passes, dropping the fastest of them
+        if(SmokeTestResult.STATE.USER_PASS == state && slowestCount > 0) {
+            slowest.add(new Slowest(result, sequence));
+
+            if(slowest.size() > slowestCount) {
+                slowest.poll();
+            }
+        }
+
+        String group = groupsById.get(result.getId());
+
+        if(null != group) {
+            groupLatencies.computeIfAbsent(group, key -> new LatencyHistogram()).record(result.getElapsedNanoSeconds());
+        }
+
+        for(Map.Entry<SmokeTestResult.PHASE, Long> phase : result.getPhaseNanoSeconds().entrySet()) {
+            phases.computeIfAbsent(phase.getKey(), key -> new LatencyHistogram()).record(phase.getValue());
+        }
+
+        if(null != result.getLatencyHistogram()) {
+            repeated.add(result);
+        }
+
+        if(! state.isPass()) {
+            failures.computeIfAbsent(state, key -> new ArrayList<>()).add(result);
+        }
+    }
+
+    /**
+     * @return How many results were added
+     */
+    public long getCount() {
+        return addedCount;
+    }
+
+    /**
+     * @return How many of the results were in the state
+     */
+    public int getCount(final SmokeTestResult.STATE state) {
+        return stateCounts.getOrDefault(state, 0);
+    }
+
+    /**
+     * @return The slowest passes, slowest first (the earliest first, of those that took as long)
+     */
+    public List<SmokeTestResult> getSlowest() {
+        List<Slowest> sorted = new ArrayList<>(slowest);
+        Collections.sort(sorted, Collections.reverseOrder());
+
+        List<SmokeTestResult> results = new ArrayList<>(sorted.size());
+
+        for(Slowest entry : sorted) {
+            results.add(entry.result);
+        }
+
+        return results;
+    }
+
+    /**
+     * Display the chosen sections.
+     */
+    public void print() {
+        if(sections.contains(SECTION.SLOWEST)) {
+            if(! repeated.isEmpty()) {
+                printLatencies();
+            } else {
+                printSlowest();
+            }
+        }
+
+        if(sections.contains(SECTION.STATES)) {
+            printStates();
+        }
+
+        if(sections.contains(SECTION.GROUPS)) {
+            printGroups();
+        }
+
+        if(sections.contains(SECTION.PHASES)) {
+            printPhases();
+        }
+
+        if(sections.contains(SECTION.FAILURES)) {
+            printFailures();
+        }
+    }
+
+    private void printSlowest() {
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: Top " + slowestCount + " Slowest (PASS) responses follow.");
+
+        for(SmokeTestResult result : getSlowest()) {
+            System.out.println(result.getMessage());
+        }
+    }
+
+    /**
+     * When the tests were repeated, display each test's latency percentiles (rather than the slowest single runs).
+     */
+    private void printLatencies() {
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: Latency percentiles (per test) follow.");
+
+        for(SmokeTestResult result : repeated) {
+            System.out.println(
+                    String.format(
+                            "LATS: id [%s], state [%s], %s",
+                            result.getId(),
+                            result.getState(),
+                            result.getLatencyHistogram()));
+        }
+    }
+
+    private void printStates() {
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: Results (by state) follow.");
+
+        for(Map.Entry<SmokeTestResult.STATE, Integer> state : stateCounts.entrySet()) {
+            System.out.println(String.format("STAT: %-12s [%d]", state.getKey(), state.getValue()));
+        }
+    }
+
+    private void printGroups() {
+        if(groupLatencies.isEmpty()) {
+            return;
+        }
+
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: Latencies (per concurrency group) follow.");
+
+        for(Map.Entry<String, LatencyHistogram> group : groupLatencies.entrySet()) {
+            System.out.println(String.format("GRPS: group [%s], %s", group.getKey(), group.getValue()));
+        }
+    }
+
+    /**
+     * Display where the time went, each phase (see SmokeTestResult.PHASE) totalled over all the tests.
+     */
+    private void printPhases() {
+        if(phases.isEmpty()) {
+            return;
+        }
+
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: Phase timings (all tests) follow.");
+
+        for(Map.Entry<SmokeTestResult.PHASE, LatencyHistogram> phase : phases.entrySet()) {
+            System.out.println(
+                    String.format(
+                            "PHAS: %-12s total [%d mS], %s",
+                            phase.getKey(),
+                            TimeUnit.NANOSECONDS.toMillis(phase.getValue().getTotalNs()),
+                            phase.getValue()));
+        }
+    }
+
+    private void printFailures() {
+        //////////////////////////////////////
+        // Display just the failures, by state
+        System.out.println("COMM: ################################################");
+        System.out.println("SUMM: All (FAIL) responses follow.");
+
+        for(Map.Entry<SmokeTestResult.STATE, List<SmokeTestResult>> state : failures.entrySet()) {
+            System.out.println(String.format("FGRP: %s [%d]", state.getKey(), state.getValue().size()));
+
+            for(SmokeTestResult result : state.getValue()) {
+                System.out.println(result.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One of the slowest passes, ordered by elapsed time, then the later one first (so it is dropped first).
+     */
+    private static class Slowest implements Comparable<Slowest> {
+        private final SmokeTestResult result;
+        private final long sequence;
+
+        Slowest(final SmokeTestResult result, final long sequence) {
+            this.result     = result;
+            this.sequence   = sequence;
+        }
+
+        @Override
+        public int compareTo(final Slowest other) {
+            int compared = Long.compare(result.getElapsedNanoSeconds(), other.result.getElapsedNanoSeconds());
+
+            return 0 != compared ? compared : Long.compare(other.sequence, sequence);
+        }
+    }
+}
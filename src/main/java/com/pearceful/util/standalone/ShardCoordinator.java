@@ -0,0 +1,636 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.DurationHistory;
+import com.pearceful.util.LatencyHistogram;
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestListener;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestRunner;
+import com.pearceful.util.SmokeTestStrategy;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Splits a run across worker JVMs, for suites too big for one JVM (and one process table).
+ *
+ * Running a CLI with -Dst.shards=N (N > 1) makes it the coordinator: after selecting the tests as usual it starts
+ * N workers (see ShardLauncher), each running the same CLI with the same arguments, accepts their results over a
+ * loopback socket and merges them into one report. Each worker selects the same tests, keeps just those of it's own
+ * shard, runs them and streams each result back as it completes.
+ *
+ * Tests are assigned to shards deterministically by id, tests linked by dependencies (see
+ * SmokeTestStrategy.getDependsOn) always share a shard. With -Dst.shard.balance=true the shards are instead
+ * balanced by the expected durations from the history file, the longest first onto the least loaded shard.
+ */
+public class ShardCoordinator {
+    public static final String SHARDS_KEY           = "st.shards";
+    public static final String SHARD_BALANCE_KEY    = "st.shard.balance";
+    public static final String SHARD_LAUNCHER_KEY   = "st.shard.launcher";
+    public static final String SHARD_INDEX_KEY      = "st.shard.index";
+    public static final String SHARD_COUNT_KEY      = "st.shard.count";
+    public static final String SHARD_PORT_KEY       = "st.shard.port";
+    public static final String SHARD_TOKEN_KEY      = "st.shard.token";
+
+    private static final Logger LOGGER              = Logger.getLogger(ShardCoordinator.class);
+    private static final int MAGIC                  = 0x53545348;   // "STSH"
+    private static final long STARTUP_GRACE_SECONDS = 60;           // For the workers to start and select tests
+
+    private ShardCoordinator() {
+    }
+
+    /**
+     * @return true if this JVM should hand it's tests to workers
+     */
+    public static boolean isCoordinator() {
+        return !isWorker() && Integer.getInteger(SHARDS_KEY, 1) > 1;
+    }
+
+    /**
+     * @return true if this JVM is running one shard for a coordinator
+     */
+    public static boolean isWorker() {
+        return null != System.getProperty(SHARD_INDEX_KEY);
+    }
+
+    /**
+     * Assign each test to a shard. Tests linked by dependencies are assigned as one unit, so a test never waits on
+     * a prerequisite in another JVM.
+     *
+     * @param smokeTestStrategies The selected tests
+     * @param durationHistory If not null and balance is true, the expected durations to balance the shards by
+     * @param shardCount How many shards
+     * @param balance true to balance by expected duration; else by a hash of the id
+     *
+     * @return The shard (from 0) of each test id
+     */
+    public static Map<String, Integer> assignShards(
+            final Collection<SmokeTestStrategy> smokeTestStrategies,
+            final DurationHistory durationHistory,
+            final int shardCount,
+            final boolean balance) {
+
+        ////////////////
+        // Sanity checks
+        if(shardCount < 1) {
+            throw new IllegalArgumentException("assignShards: shardCount must be > 0");
+        }
+
+        ///////////////////////////////////////////////////////////////////////
+        // Union the dependency linked tests, each unit is named by it's lowest id
+        Map<String, String> parents = new HashMap<>();
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            parents.put(strategy.getId(), strategy.getId());
+        }
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            for(String dependsOn : strategy.getDependsOn()) {
+                if(parents.containsKey(dependsOn)) {
+                    String root         = findRoot(parents, strategy.getId());
+                    String otherRoot    = findRoot(parents, dependsOn);
+
+                    if(root.compareTo(otherRoot) < 0) {
+                        parents.put(otherRoot, root);
+                    } else {
+                        parents.put(root, otherRoot);
+                    }
+                }
+            }
+        }
+
+        Map<String, List<String>> units = new TreeMap<>();
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            units.computeIfAbsent(findRoot(parents, strategy.getId()), root -> new ArrayList<>()).add(strategy.getId());
+        }
+
+        Map<String, Integer> shards = new HashMap<>();
+
+        if(balance && null != durationHistory) {
+            ///////////////////////////////////////////////////////////////
+            // Longest unit first, onto the least loaded (then lowest) shard
+            Map<String, Long> unitEstimates = new HashMap<>();
+
+            for(Map.Entry<String, List<String>> unit : units.entrySet()) {
+                long estimateNs = 0;
+
+                for(String id : unit.getValue()) {
+                    estimateNs += durationHistory.getEstimateNs(id);
+                }
+
+                unitEstimates.put(unit.getKey(), estimateNs);
+            }
+
+            List<String> longestFirst = new ArrayList<>(units.keySet());
+            longestFirst.sort((o1, o2) -> {
+                int result = Long.compare(unitEstimates.get(o2), unitEstimates.get(o1));
+
+                return 0 != result ? result : o1.compareTo(o2);
+            });
+
+            long[] loads = new long[shardCount];
+
+            for(String root : longestFirst) {
+                int shard = 0;
+
+                for(int i = 1 ; i < shardCount ; i++) {
+                    if(loads[i] < loads[shard]) {
+                        shard = i;
+                    }
+                }
+
+                loads[shard] += unitEstimates.get(root);
+
+                for(String id : units.get(root)) {
+                    shards.put(id, shard);
+                }
+            }
+        } else {
+            for(Map.Entry<String, List<String>> unit : units.entrySet()) {
+                int shard = Math.floorMod(unit.getKey().hashCode(), shardCount);
+
+                for(String id : unit.getValue()) {
+                    shards.put(id, shard);
+                }
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * Keep just this worker's shard of the selected tests.
+     *
+     * @param smokeTestStrategies The selected tests
+     * @param durationHistory The expected durations, if balancing
+     *
+     * @return The tests of this worker's shard, in their original order
+     */
+    public static Set<SmokeTestStrategy> selectShard(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final DurationHistory durationHistory) {
+
+        int shardIndex              = Integer.getInteger(SHARD_INDEX_KEY);
+        Map<String, Integer> shards = assignShards(
+                smokeTestStrategies,
+                durationHistory,
+                Integer.getInteger(SHARD_COUNT_KEY),
+                Boolean.getBoolean(SHARD_BALANCE_KEY));
+
+        Set<SmokeTestStrategy> shard = new LinkedHashSet<>();
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            if(shardIndex == shards.get(strategy.getId())) {
+                shard.add(strategy);
+            }
+        }
+
+        LOGGER.info(String.format(
+                "selectShard: Shard %d has %d of %d test(s)", shardIndex, shard.size(), smokeTestStrategies.size()));
+
+        return shard;
+    }
+
+    /**
+     * Run this worker's shard of the selected tests, streaming each result to the coordinator as it arrives.
+     *
+     * @param smokeTestRunner The runner to run the tests with
+     * @param smokeTestStrategies The selected tests
+     * @param durationHistory The expected durations, if balancing
+     *
+     * @return The results of this shard's tests, in their original order
+     *
+     * @throws SmokeTestException
+     */
+    public static List<SmokeTestResult> runShard(
+            final SmokeTestRunner smokeTestRunner,
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final DurationHistory durationHistory) throws SmokeTestException {
+
+        Set<SmokeTestStrategy> shard                = selectShard(smokeTestStrategies, durationHistory);
+        Map<String, SmokeTestResult> resultsById    = new HashMap<>();
+
+        try(ResultStreamer resultStreamer = connect()) {
+            smokeTestRunner.run(shard, smokeTestResult -> {
+                resultsById.put(smokeTestResult.getId(), smokeTestResult);
+                resultStreamer.onTestComplete(smokeTestResult);
+            });
+        } catch (IOException e) {
+            throw new SmokeTestException(e);
+        }
+
+        List<SmokeTestResult> results = new ArrayList<>();
+
+        for(SmokeTestStrategy strategy : shard) {
+            results.add(resultsById.get(strategy.getId()));
+        }
+
+        return results;
+    }
+
+    /**
+     * Connect this worker to it's coordinator.
+     *
+     * @return A listener that streams each result to the coordinator, close it once the run is over
+     *
+     * @throws SmokeTestException
+     */
+    public static ResultStreamer connect() throws SmokeTestException {
+        try {
+            return new ResultStreamer(
+                    Integer.getInteger(SHARD_PORT_KEY),
+                    Long.getLong(SHARD_TOKEN_KEY),
+                    Integer.getInteger(SHARD_INDEX_KEY));
+        } catch (IOException e) {
+            throw new SmokeTestException(e);
+        }
+    }
+
+    /**
+     * Run the tests in worker JVMs, one per shard, then merge their results.
+     *
+     * @param mainClass The CLI each worker runs
+     * @param args The CLI's arguments
+     * @param smokeTestStrategies The selected tests
+     * @param durationHistory The expected durations, if balancing
+     * @param timeoutInSeconds How long the workers have to run all their tests
+     *
+     * @return The results, in the same order as the passed in strategies. A test a worker didn't report (e.g. it
+     *         crashed) has an EXEC_ERROR result.
+     *
+     * @throws SmokeTestException
+     */
+    public static List<SmokeTestResult> coordinate(
+            final Class<?> mainClass,
+            final String[] args,
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final DurationHistory durationHistory,
+            final long timeoutInSeconds) throws SmokeTestException {
+
+        int shardCount                              = Integer.getInteger(SHARDS_KEY, 1);
+        long token                                  = new SecureRandom().nextLong();
+        ShardLauncher launcher                      = getLauncher();
+        Map<String, SmokeTestResult> resultsById    = new ConcurrentHashMap<>();
+        List<Thread> readers                        = Collections.synchronizedList(new ArrayList<>());
+        Process[] workers                           = new Process[shardCount];
+        Path[] logFiles                             = new Path[shardCount];
+
+        LOGGER.info(String.format("coordinate: Running %d test(s) in %d shard(s)", smokeTestStrategies.size(), shardCount));
+
+        try {
+            Thread acceptor;
+
+            try(ServerSocket serverSocket = new ServerSocket(0, shardCount, InetAddress.getLoopbackAddress())) {
+                ////////////////////////////////////////////////////////////////
+                // Accept each worker's connection, reading it on it's own thread
+                acceptor = new Thread(() -> {
+                    try {
+                        while(true) {
+                            Socket socket   = serverSocket.accept();
+                            Thread reader   = new Thread(() -> readResults(socket, token, resultsById), "st-shard-reader");
+
+                            reader.setDaemon(true);
+                            readers.add(reader);
+                            reader.start();
+                        }
+                    } catch (IOException e) {
+                        /////////////////////////////////////////////
+                        // Expected once the server socket is closed
+                        LOGGER.debug("coordinate: Stopped accepting workers", e);
+                    }
+                }, "st-shard-acceptor");
+
+                acceptor.setDaemon(true);
+                acceptor.start();
+
+                for(int shardIndex = 0 ; shardIndex < shardCount ; shardIndex++) {
+                    logFiles[shardIndex]    = Files.createTempFile("st-shard-" + shardIndex + "-", ".log");
+                    workers[shardIndex]     = launcher.launch(
+                                                shardIndex,
+                                                buildWorkerCommand(mainClass, args, shardIndex, shardCount, serverSocket.getLocalPort(), token),
+                                                logFiles[shardIndex]);
+                }
+
+                ////////////////////////////////////////////////////////////////
+                // Wait for every worker to exit, killing any that run too long
+                long deadlineNs = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSeconds + STARTUP_GRACE_SECONDS);
+
+                for(int shardIndex = 0 ; shardIndex < shardCount ; shardIndex++) {
+                    if(! workers[shardIndex].waitFor(Math.max(0, deadlineNs - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        LOGGER.warn("coordinate: Shard " + shardIndex + " ran out of time, killing it");
+
+                        ProcessSupport.destroyProcessTree(workers[shardIndex]);
+                        workers[shardIndex].waitFor();
+                    }
+                }
+            }
+
+            ////////////////////////////////////////////////////////////////
+            // Closing the server socket stopped the acceptor, wait for the
+            // readers to read the last of their worker's results
+            acceptor.join();
+
+            synchronized (readers) {
+                for(Thread reader : readers) {
+                    reader.join();
+                }
+            }
+        } catch (IOException e) {
+            destroyAll(workers);
+
+            throw new SmokeTestException(e);
+        } catch (InterruptedException e) {
+            destroyAll(workers);
+            Thread.currentThread().interrupt();
+
+            throw new SmokeTestException(e);
+        }
+
+        ////////////////////////////////////////////////////////////////////
+        // Merge the results back into the same order as the passed in tests
+        Map<String, Integer> shards     = assignShards(smokeTestStrategies, durationHistory, shardCount, Boolean.getBoolean(SHARD_BALANCE_KEY));
+        List<SmokeTestResult> results   = new ArrayList<>();
+        boolean[] incomplete            = new boolean[shardCount];
+
+        for(SmokeTestStrategy strategy : smokeTestStrategies) {
+            SmokeTestResult result = resultsById.get(strategy.getId());
+
+            if(null == result) {
+                int shardIndex  = shards.get(strategy.getId());
+
+                incomplete[shardIndex] = true;
+
+                result          = new SmokeTestResult(
+                                    strategy.getId(),
+                                    SmokeTestResult.STATE.EXEC_ERROR,
+                                    0,
+                                    String.format(
+                                            "Not reported by shard %d (exit status %d), see %s",
+                                            shardIndex,
+                                            workers[shardIndex].exitValue(),
+                                            logFiles[shardIndex]));
+            }
+
+            results.add(result);
+        }
+
+        //////////////////////////////////////////////////////////////
+        // Only keep the logs of the workers that didn't report it all
+        for(int shardIndex = 0 ; shardIndex < shardCount ; shardIndex++) {
+            if(! incomplete[shardIndex]) {
+                try {
+                    Files.deleteIfExists(logFiles[shardIndex]);
+                } catch (IOException e) {
+                    LOGGER.debug("coordinate: Problem deleting " + logFiles[shardIndex], e);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * The worker runs the same CLI, with the same arguments and (st. and log4j.) system properties.
+     */
+    private static List<String> buildWorkerCommand(
+            final Class<?> mainClass,
+            final String[] args,
+            final int shardIndex,
+            final int shardCount,
+            final int port,
+            final long token) {
+
+        List<String> command = new ArrayList<>();
+
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+
+        for(String name : System.getProperties().stringPropertyNames()) {
+            if((name.startsWith("st.") || name.startsWith("log4j.")) && ! SHARDS_KEY.equals(name)) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+
+        command.add("-D" + SHARD_INDEX_KEY + "=" + shardIndex);
+        command.add("-D" + SHARD_COUNT_KEY + "=" + shardCount);
+        command.add("-D" + SHARD_PORT_KEY + "=" + port);
+        command.add("-D" + SHARD_TOKEN_KEY + "=" + token);
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+
+        return command;
+    }
+
+    private static ShardLauncher getLauncher() throws SmokeTestException {
+        String launcherClass = System.getProperty(SHARD_LAUNCHER_KEY);
+
+        if(null == launcherClass) {
+            return ShardLauncher.LOCAL;
+        }
+
+        try {
+            return (ShardLauncher)Class.forName(launcherClass).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new SmokeTestException("getLauncher: Cannot create launcher [" + launcherClass + "]", e);
+        }
+    }
+
+    private static void readResults(
+            final Socket socket,
+            final long token,
+            final Map<String, SmokeTestResult> resultsById) {
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            if(MAGIC != input.readInt() || token != input.readLong()) {
+                LOGGER.warn("readResults: Ignoring a connection that isn't from a worker");
+
+                return;
+            }
+
+            int shardIndex = input.readInt();
+
+            while(input.readBoolean()) {
+                SmokeTestResult result = readResult(input);
+
+                resultsById.put(result.getId(), result);
+            }
+
+            LOGGER.debug("readResults: Shard " + shardIndex + " has finished");
+        } catch (IOException e) {
+            ///////////////////////////////////////////////////////////
+            // The worker died, it's unreported tests are errors anyway
+            LOGGER.warn("readResults: Problem reading results from a worker", e);
+        }
+    }
+
+    private static void destroyAll(final Process[] workers) {
+        for(Process worker : workers) {
+            ProcessSupport.destroyProcessTree(worker);
+        }
+    }
+
+    static void writeResult(final DataOutputStream output, final SmokeTestResult result) throws IOException {
+        long[] attempts = result.getAttemptElapsedNanoSeconds();
+
+        output.writeUTF(result.getId());
+        output.writeUTF(result.getState().name());
+        output.writeLong(result.getElapsedNanoSeconds());
+        writeString(output, result.getMessage());
+        output.writeInt(attempts.length);
+
+        for(long attempt : attempts) {
+            output.writeLong(attempt);
+        }
+
+        output.writeBoolean(null != result.getLatencyHistogram());
+
+        if(null != result.getLatencyHistogram()) {
+            result.getLatencyHistogram().writeTo(output);
+        }
+
+        output.writeInt(result.getPhaseNanoSeconds().size());
+
+        for(Map.Entry<SmokeTestResult.PHASE, Long> phase : result.getPhaseNanoSeconds().entrySet()) {
+            output.writeUTF(phase.getKey().name());
+            output.writeLong(phase.getValue());
+        }
+    }
+
+    static SmokeTestResult readResult(final DataInputStream input) throws IOException {
+        String id                   = input.readUTF();
+        SmokeTestResult.STATE state = SmokeTestResult.STATE.valueOf(input.readUTF());
+        long elapsedNs              = input.readLong();
+        String message              = readString(input);
+        long[] attempts             = new long[input.readInt()];
+
+        for(int i = 0 ; i < attempts.length ; i++) {
+            attempts[i] = input.readLong();
+        }
+
+        LatencyHistogram latencies  = input.readBoolean() ? LatencyHistogram.readFrom(input) : null;
+        int phaseCount              = input.readInt();
+
+        Map<SmokeTestResult.PHASE, Long> phases = new EnumMap<>(SmokeTestResult.PHASE.class);
+
+        for(int i = 0 ; i < phaseCount ; i++) {
+            phases.put(SmokeTestResult.PHASE.valueOf(input.readUTF()), input.readLong());
+        }
+
+        SmokeTestResult result = new SmokeTestResult(id, state, elapsedNs, message);
+
+        if(attempts.length > 1) {
+            result = result.withAttempts(attempts);
+        }
+
+        if(null != latencies) {
+            result = result.withLatencies(latencies);
+        }
+
+        return result.withPhases(phases);
+    }
+
+    /**
+     * Unlike writeUTF, not limited to 64K (a message holds a command's output).
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if(null == value) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        int length = input.readInt();
+
+        if(length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String findRoot(final Map<String, String> parents, final String id) {
+        String root = id;
+
+        while(! root.equals(parents.get(root))) {
+            root = parents.get(root);
+        }
+
+        return root;
+    }
+
+    /**
+     * Streams each result of a worker's run to the coordinator, as soon as it arrives.
+     */
+    public static class ResultStreamer implements SmokeTestListener, Closeable {
+        private final Socket socket;
+        private final DataOutputStream output;
+        private boolean broken = false;
+
+        ResultStreamer(final int port, final long token, final int shardIndex) throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            output.writeInt(MAGIC);
+            output.writeLong(token);
+            output.writeInt(shardIndex);
+            output.flush();
+        }
+
+        @Override
+        public synchronized void onTestComplete(final SmokeTestResult smokeTestResult) {
+            if(broken) {
+                return;
+            }
+
+            try {
+                output.writeBoolean(true);
+                writeResult(output, smokeTestResult);
+                output.flush();
+            } catch (IOException e) {
+                ///////////////////////////////////////////////////////////////
+                // The coordinator reports anything it didn't get as an error
+                LOGGER.warn("onTestComplete: Problem streaming results to the coordinator", e);
+
+                broken = true;
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                if(! broken) {
+                    output.writeBoolean(false);
+                    output.flush();
+                }
+            } catch (SocketException e) {
+                LOGGER.warn("close: The coordinator has gone", e);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.pearceful.util.standalone;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Starts a worker JVM for one shard of a sharded run (see ShardCoordinator).
+ *
+ * The default starts the worker as a local child process, another launcher (e.g. one that wraps the command in a
+ * container or a remote shell that forwards the coordinator's loopback port) can be used instead by naming it's
+ * class, which needs a public no argument constructor, in the st.shard.launcher system property.
+ */
+public interface ShardLauncher {
+    public static final ShardLauncher LOCAL = (shardIndex, command, logFile) ->
+            new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile.toFile()))
+                    .start();
+
+    /**
+     * @param shardIndex The shard the worker is to run, from 0
+     * @param command The java command line that runs the worker, including it's system properties
+     * @param logFile Where the worker's own output (and report) should go
+     *
+     * @return The worker's process, the run is over for the worker once it has exited
+     *
+     * @throws IOException
+     */
+    public Process launch(int shardIndex, List<String> command, Path logFile) throws IOException;
+}
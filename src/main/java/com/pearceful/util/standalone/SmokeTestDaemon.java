@@ -0,0 +1,484 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestRunner;
+import com.pearceful.util.SmokeTestStrategy;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * Loads a configuration once, then keeps re-running the selected tests in the same JVM, instead of paying for JVM
+ * startup, config parsing and thread pool creation on every pass (e.g. from cron).
+ *
+ * Each test is re-run every st.daemon.interval.seconds (default 60), or at it's own interval (the JSON
+ * *interval_seconds* test entry, or INTERVAL_SECONDS in a text file). A test that is still running when it is next
+ * due is not started again, that run is skipped. The latest result of each test is kept in memory.
+ *
+ * The configuration file is re-loaded whenever it changes, each test keeps it's place in the schedule, new tests
+ * are run straight away. Tests already running finish on the runner they started on.
+ *
+ * The tests due at the same tick are handed to the runner as one run, which does not wait for the runs still going
+ * (so a quick test is never held up by a slow one). The runs share the runner's threads, so maxConcurrentTests
+ * holds across them (except in ASYNC mode), but the group limits, the adaptive concurrency limit, the dependencies
+ * and the failure limits only apply within each run, a dependency that is not due at the same tick is ignored.
+ * Tests with a dependency, or in a limited group, should have the same interval so they are due together.
+ *
+ * With the st.prometheus.* system properties (see PrometheusExporter) the results are served for Prometheus while
+ * the daemon runs, and/or the text file is re-written after every run.
+ */
+public class SmokeTestDaemon implements AutoCloseable {
+    public static final String VERSION                  = "1.0";
+    public static final String INTERVAL_SECONDS_KEY     = "st.daemon.interval.seconds";
+    public static final long DEFAULT_INTERVAL_SECONDS   = 60;
+
+    private static final Logger LOGGER                  = Logger.getLogger(SmokeTestDaemon.class);
+    private static final long TICK_MILLISECONDS         = 1000;
+
+    private final Callable<SmokeTestSuite> suiteLoader;
+    private final Path configFile;
+    private final long defaultIntervalSeconds;
+    private final long tickMilliseconds;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService runs;
+    private final Map<String, SmokeTestResult> latestResults    = new ConcurrentHashMap<>();
+    private final Set<String> running                           = ConcurrentHashMap.newKeySet();
+    private final AtomicLong completedCount                     = new AtomicLong();
+    private final AtomicLong skippedOverlaps                    = new AtomicLong();
+    private volatile PrometheusExporter prometheusExporter;
+
+    /////////////////////////////////////////////
+    // Only used on the scheduler's (one) thread
+    private final Map<String, Long> nextDueNs                   = new HashMap<>();
+    private Generation current;
+    private FileTime configModified;
+
+    /**
+     * @param suiteLoader Loads the suite, when the daemon starts and each time the configuration file changes
+     * @param configFile If not null, the file to watch for changes
+     * @param defaultIntervalSeconds How often to re-run a test without an interval of it's own
+     */
+    public SmokeTestDaemon(
+            final Callable<SmokeTestSuite> suiteLoader,
+            final Path configFile,
+            final long defaultIntervalSeconds) {
+
+        this(suiteLoader, configFile, defaultIntervalSeconds, TICK_MILLISECONDS);
+    }
+
+    SmokeTestDaemon(
+            final Callable<SmokeTestSuite> suiteLoader,
+            final Path configFile,
+            final long defaultIntervalSeconds,
+            final long tickMilliseconds) {
+
+        ////////////////
+        // Sanity checks
+        if(null == suiteLoader) {
+            throw new IllegalArgumentException("suiteLoader cannot be null");
+        }
+
+        if(defaultIntervalSeconds < 1) {
+            throw new IllegalArgumentException("defaultIntervalSeconds must be > 0");
+        }
+
+        AtomicInteger runCount      = new AtomicInteger();
+
+        this.suiteLoader            = suiteLoader;
+        this.configFile             = configFile;
+        this.defaultIntervalSeconds = defaultIntervalSeconds;
+        this.tickMilliseconds       = tickMilliseconds;
+        this.scheduler              = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "st-daemon");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        this.runs                   = Executors.newCachedThreadPool(runnable ->
+                                        new Thread(runnable, "st-daemon-run-" + runCount.incrementAndGet()));
+    }
+
+    /**
+     * A daemon for a JSON (.json) or text configuration file, selecting the tests as the CLIs would.
+     *
+     * @param configFile The configuration file
+     * @param stTag The selector tag, e.g. DEV
+     * @param filter If not null, a further filter on the selected tests
+     * @param defaultIntervalSeconds How often to re-run a test without an interval of it's own
+     *
+     * @return The daemon, not yet started
+     */
+    public static SmokeTestDaemon forConfig(
+            final Path configFile,
+            final String stTag,
+            final String filter,
+            final long defaultIntervalSeconds) {
+
+        String[] args = (null != filter
+                            ? new String[] {configFile.toString(), stTag, filter}
+                            : new String[] {configFile.toString(), stTag});
+
+        Callable<SmokeTestSuite> suiteLoader;
+
+        if(configFile.toString().toLowerCase(Locale.ENGLISH).endsWith(".json")) {
+            suiteLoader = () -> JsonConfigProcessor.loadSuite(
+                                    new StandaloneJsonConfig(configFile.toString(), args, stTag), stTag, filter);
+        } else {
+            suiteLoader = () -> TextLineConfigProcessor.loadSuite(configFile, stTag, filter);
+        }
+
+        return new SmokeTestDaemon(suiteLoader, configFile, defaultIntervalSeconds);
+    }
+
+    /**
+     * Load the suite and start re-running it's tests.
+     *
+     * @throws SmokeTestException If the suite cannot be loaded
+     */
+    public void start() throws SmokeTestException {
+        try {
+            scheduler.submit(() -> {
+                configModified  = getConfigModified();
+                current         = new Generation(suiteLoader.call());
+
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new SmokeTestException(e);
+        } catch (ExecutionException e) {
+            throw new SmokeTestException("start: Problem loading the suite", e.getCause());
+        }
+
+        scheduler.scheduleWithFixedDelay(this::tick, 0, tickMilliseconds, TimeUnit.MILLISECONDS);
+
+        LOGGER.info(String.format(
+                "start: Running %d test(s), every %d second(s) by default",
+                current.suite.getSmokeTestStrategies().size(),
+                defaultIntervalSeconds));
+    }
+
+    /**
+     * @return The latest result of each test, by id
+     */
+    public Map<String, SmokeTestResult> getLatestResults() {
+        return Collections.unmodifiableMap(new HashMap<>(latestResults));
+    }
+
+    /**
+     * @return How many test runs have completed
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * @return How many test runs were skipped, as the test was still running from last time
+     */
+    public long getSkippedOverlaps() {
+        return skippedOverlaps.get();
+    }
+
+    /**
+     * @param prometheusExporter If not null, handed every result, counts each run and is closed with the daemon
+     */
+    public void setPrometheusExporter(final PrometheusExporter prometheusExporter) {
+        this.prometheusExporter = prometheusExporter;
+    }
+
+    /**
+     * Wait until the daemon is closed (e.g. by a shutdown hook).
+     *
+     * @throws InterruptedException
+     */
+    public void awaitTermination() throws InterruptedException {
+        while(! scheduler.awaitTermination(1, TimeUnit.HOURS)) {
+            LOGGER.debug("awaitTermination: Still running");
+        }
+    }
+
+    /**
+     * Stop scheduling tests, cancelling any still running.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        runs.shutdownNow();
+
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            runs.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(null != current) {
+            current.retire();
+        }
+
+        if(null != prometheusExporter) {
+            prometheusExporter.close();
+        }
+    }
+
+    /**
+     * Start the tests that are due (and not still running), in one run.
+     */
+    private void tick() {
+        try {
+            reloadIfChanged();
+
+            long nowNs                  = System.nanoTime();
+            Set<SmokeTestStrategy> due  = new LinkedHashSet<>();
+
+            for(SmokeTestStrategy strategy : current.suite.getSmokeTestStrategies()) {
+                String id       = strategy.getId();
+                long dueNs      = nextDueNs.computeIfAbsent(id, newId -> nowNs);
+
+                if(nowNs - dueNs < 0) {
+                    continue;
+                }
+
+                /////////////////////////////////////////////////////////////////
+                // A fixed rate, unless we've fallen behind (e.g. a slow test)
+                long intervalNs = TimeUnit.SECONDS.toNanos(current.suite.getIntervalSeconds(id, defaultIntervalSeconds));
+                long nextNs     = dueNs + intervalNs;
+
+                nextDueNs.put(id, nowNs - nextNs >= 0 ? nowNs + intervalNs : nextNs);
+
+                if(running.add(id)) {
+                    due.add(strategy);
+                } else {
+                    LOGGER.debug("tick: Skipping [" + id + "], it is still running");
+
+                    skippedOverlaps.incrementAndGet();
+                }
+            }
+
+            if(! due.isEmpty()) {
+                current.run(due);
+            }
+        } catch (RuntimeException e) {
+            /////////////////////////////////////////////////
+            // Keep ticking, an uncaught exception would stop it
+            LOGGER.error("tick: Problem scheduling tests", e);
+        }
+    }
+
+    /**
+     * Re-load the suite if the configuration file has changed, keeping each remaining test's place in the schedule.
+     * If the new configuration cannot be loaded, the old one is kept.
+     */
+    private void reloadIfChanged() {
+        FileTime modified = getConfigModified();
+
+        if(null == modified || modified.equals(configModified)) {
+            return;
+        }
+
+        configModified = modified;
+
+        try {
+            SmokeTestSuite suite    = suiteLoader.call();
+            Generation previous     = current;
+
+            current = new Generation(suite);
+            previous.retire();
+
+            Set<String> ids = new HashSet<>();
+
+            for(SmokeTestStrategy strategy : suite.getSmokeTestStrategies()) {
+                ids.add(strategy.getId());
+            }
+
+            nextDueNs.keySet().retainAll(ids);
+            latestResults.keySet().retainAll(ids);
+
+            LOGGER.info(String.format("reloadIfChanged: Re-loaded %s, now %d test(s)", configFile, ids.size()));
+        } catch (Exception e) {
+            LOGGER.error("reloadIfChanged: Problem re-loading " + configFile + ", keeping the previous tests", e);
+        }
+    }
+
+    private FileTime getConfigModified() {
+        if(null == configFile) {
+            return null;
+        }
+
+        try {
+            return Files.getLastModifiedTime(configFile);
+        } catch (IOException e) {
+            LOGGER.warn("getConfigModified: Cannot read " + configFile, e);
+
+            return configModified;
+        }
+    }
+
+    private void onTestComplete(final Generation generation, final SmokeTestResult result) {
+        latestResults.put(result.getId(), result);
+        completedCount.incrementAndGet();
+        running.remove(result.getId());
+
+        if(null != generation.suite.getDurationHistory()) {
+            generation.suite.getDurationHistory().record(result);
+        }
+
+        if(null != prometheusExporter) {
+            prometheusExporter.onTestComplete(result);
+        }
+
+        System.out.println(result.getMessage());
+    }
+
+    /**
+     * A loaded suite and the runner for it, retired (and closed once it's runs are over) when the suite is re-loaded.
+     */
+    private class Generation {
+        private final SmokeTestSuite suite;
+        private final SmokeTestRunner runner;
+        private final AtomicInteger activeRuns  = new AtomicInteger();
+        private volatile boolean retired        = false;
+
+        Generation(final SmokeTestSuite suite) {
+            this.suite  = suite;
+            this.runner = suite.getRunnerBuilder().build();
+        }
+
+        /**
+         * Run the due tests, on a thread of their own, alongside any runs still going (see the class comment for
+         * which limits hold across the runs).
+         *
+         * @param due The tests due at this tick, none of them still running
+         */
+        void run(final Set<SmokeTestStrategy> due) {
+            activeRuns.incrementAndGet();
+
+            try {
+                runs.execute(() -> {
+                    Set<String> reported = new HashSet<>();
+
+                    try {
+                        runner.run(due, result -> {
+                            reported.add(result.getId());
+                            onTestComplete(this, result);
+                        });
+                    } catch (SmokeTestException | RuntimeException e) {
+                        LOGGER.error("run: Problem running tests", e);
+                    } finally {
+                        ////////////////////////////////////////////////////////////////
+                        // A reported test may already be running again, leave it be
+                        for(SmokeTestStrategy strategy : due) {
+                            if(! reported.contains(strategy.getId())) {
+                                running.remove(strategy.getId());
+                            }
+                        }
+
+                        saveHistory();
+                        ConfigProcessor.saveResultCache(suite.getResultCache());
+                        exportRun();
+                        runDone();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                ///////////////////////////
+                // The daemon is closing
+                for(SmokeTestStrategy strategy : due) {
+                    running.remove(strategy.getId());
+                }
+
+                runDone();
+            }
+        }
+
+        void retire() {
+            retired = true;
+
+            if(0 == activeRuns.get()) {
+                runner.close();
+            }
+        }
+
+        private void runDone() {
+            if(0 == activeRuns.decrementAndGet() && retired) {
+                runner.close();
+            }
+        }
+
+        private void exportRun() {
+            PrometheusExporter exporter = prometheusExporter;
+
+            if(null != exporter) {
+                exporter.runCompleted();
+
+                try {
+                    exporter.writeTextFile();
+                } catch (IOException e) {
+                    LOGGER.warn("exportRun: Problem writing the Prometheus text file", e);
+                }
+            }
+        }
+
+        private void saveHistory() {
+            if(null != suite.getDurationHistory() && null != suite.getHistoryFile()) {
+                try {
+                    suite.getDurationHistory().save(suite.getHistoryFile());
+                } catch (IOException e) {
+                    LOGGER.warn("saveHistory: Problem saving history file [" + suite.getHistoryFile() + "]", e);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if(args.length < 2 || args[1].trim().length() < 1) {
+            System.err.println("Usage for SmokeTestDaemon - v" + VERSION + "\n");
+            System.err.println("SmokeTestDaemon config selector_tag {filter}");
+            System.err.println("   config       = a JSON (.json) or text file, as for JsonConfigProcessor or TextLineConfigProcessor.");
+            System.err.println("   selector_tag = a tag (case insensitive) to select the tests to keep re-running.");
+            System.err.println("   filter       = optional pattern to (possibly) reduce the tests selected.");
+            System.err.println("\n   -D" + INTERVAL_SECONDS_KEY + "=n re-runs each test every n seconds (default "
+                    + DEFAULT_INTERVAL_SECONDS + ") unless it has an interval of it's own.");
+            System.err.println("   -D" + PrometheusExporter.PORT_KEY + "=n serves the results for Prometheus at "
+                    + "http://host:n" + PrometheusExporter.METRICS_PATH + ".");
+
+            System.exit(1);
+        }
+
+        System.out.println("VERS: " + VERSION);
+        System.out.println("COMM: ################################################");
+
+        SmokeTestDaemon daemon = forConfig(
+                Paths.get(args[0]),
+                args[1],
+                (args.length > 2 ? args[2] : null),
+                Long.getLong(INTERVAL_SECONDS_KEY, DEFAULT_INTERVAL_SECONDS));
+
+        daemon.setPrometheusExporter(ConfigProcessor.startPrometheusExporter());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close, "st-daemon-shutdown"));
+
+        try {
+            daemon.start();
+            daemon.awaitTermination();
+        } catch (SmokeTestException e) {
+            LOGGER.error("main: Problem starting the daemon", e);
+            System.err.println(e);
+
+            System.exit(3);
+        } catch (InterruptedException e) {
+            LOGGER.info("main: Interrupted, stopping");
+        }
+    }
+}
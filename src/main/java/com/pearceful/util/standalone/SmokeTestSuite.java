@@ -0,0 +1,184 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.DurationHistory;
+import com.pearceful.util.SmokeTestRunner;
+import com.pearceful.util.SmokeTestStrategy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Created by pjp on 2026-10-18.
+ *
+ * The tests selected from a configuration file, with the settings they are to be run with. Loaded by
+ * TextLineConfigProcessor.loadSuite or JsonConfigProcessor.loadSuite, once per CLI run or each time a
+ * SmokeTestDaemon's configuration changes.
+ *
+ * A streamed suite does not hold on to it's tests, they are read afresh (see openTests) as they are pulled into a run
+ * (see SmokeTestRunner.run(Iterator, SmokeTestListener)), so a huge suite is never all in memory at once.
+ */
+public class SmokeTestSuite {
+    private final Set<SmokeTestStrategy> smokeTestStrategies;
+    private final SmokeTestRunner.Builder runnerBuilder;
+    private final long timeoutInSeconds;
+    private final DurationHistory durationHistory;
+    private final Path historyFile;
+    private final Map<String, Long> intervalSeconds;
+    private final ResultCache resultCache;
+    private final int reportSlowestCount;
+    private final Set<ResultSummary.SECTION> reportSections;
+    private final TestStream testStream;
+
+    /**
+     * Opens a streamed suite's tests, read afresh each time.
+     */
+    public interface TestStream {
+        /**
+         * @return The suite's tests, read as they are pulled, close it once done
+         *
+         * @throws IOException If the tests could not be read
+         */
+        Stream<SmokeTestStrategy> open() throws IOException;
+    }
+
+    /**
+     * @param smokeTestStrategies The selected tests
+     * @param runnerBuilder Configured to run the tests as the file asks
+     * @param timeoutInSeconds How long a run has for all of it's tests
+     * @param durationHistory If not null, the history to order (and balance) the tests by
+     * @param historyFile If not null, where the history is saved
+     * @param intervalSeconds How often a daemon should re-run each test, by id, for those with their own interval
+     * @param resultCache If not null, the cache of recent passes the tests use (and is saved after a run)
+     */
+    public SmokeTestSuite(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final SmokeTestRunner.Builder runnerBuilder,
+            final long timeoutInSeconds,
+            final DurationHistory durationHistory,
+            final Path historyFile,
+            final Map<String, Long> intervalSeconds,
+            final ResultCache resultCache) {
+
+        this(
+                smokeTestStrategies,
+                runnerBuilder,
+                timeoutInSeconds,
+                durationHistory,
+                historyFile,
+                intervalSeconds,
+                resultCache,
+                ResultSummary.DEFAULT_SLOWEST_COUNT,
+                ResultSummary.DEFAULT_SECTIONS,
+                null);
+    }
+
+    /**
+     * @param smokeTestStrategies The selected tests
+     * @param runnerBuilder Configured to run the tests as the file asks
+     * @param timeoutInSeconds How long a run has for all of it's tests
+     * @param durationHistory If not null, the history to order (and balance) the tests by
+     * @param historyFile If not null, where the history is saved
+     * @param intervalSeconds How often a daemon should re-run each test, by id, for those with their own interval
+     * @param resultCache If not null, the cache of recent passes the tests use (and is saved after a run)
+     * @param reportSlowestCount How many of the slowest passes the end of run summary shows
+     * @param reportSections Which sections the end of run summary shows
+     * @param testStream If not null, the suite is streamed, it's tests are read from here (smokeTestStrategies is
+     *                   empty)
+     */
+    public SmokeTestSuite(
+            final Set<SmokeTestStrategy> smokeTestStrategies,
+            final SmokeTestRunner.Builder runnerBuilder,
+            final long timeoutInSeconds,
+            final DurationHistory durationHistory,
+            final Path historyFile,
+            final Map<String, Long> intervalSeconds,
+            final ResultCache resultCache,
+            final int reportSlowestCount,
+            final Set<ResultSummary.SECTION> reportSections,
+            final TestStream testStream) {
+
+        this.smokeTestStrategies    = smokeTestStrategies;
+        this.runnerBuilder          = runnerBuilder;
+        this.timeoutInSeconds       = timeoutInSeconds;
+        this.durationHistory        = durationHistory;
+        this.historyFile            = historyFile;
+        this.intervalSeconds        = Collections.unmodifiableMap(new HashMap<>(intervalSeconds));
+        this.resultCache            = resultCache;
+        this.reportSlowestCount     = reportSlowestCount;
+        this.reportSections         = EnumSet.noneOf(ResultSummary.SECTION.class);
+        this.testStream             = testStream;
+
+        this.reportSections.addAll(reportSections);
+    }
+
+    /**
+     * @return The selected tests, empty if the suite is streamed
+     */
+    public Set<SmokeTestStrategy> getSmokeTestStrategies() {
+        return smokeTestStrategies;
+    }
+
+    public boolean isStreamed() {
+        return null != testStream;
+    }
+
+    /**
+     * @return The tests of a streamed suite, read as they are pulled, close it once done
+     *
+     * @throws IOException If the tests could not be read
+     */
+    public Stream<SmokeTestStrategy> openTests() throws IOException {
+        if(null == testStream) {
+            throw new IllegalStateException("openTests: The suite is not streamed, see getSmokeTestStrategies");
+        }
+
+        return testStream.open();
+    }
+
+    /**
+     * @return A builder for a runner with the suite's settings (concurrency, timeouts, failure thresholds...)
+     */
+    public SmokeTestRunner.Builder getRunnerBuilder() {
+        return runnerBuilder;
+    }
+
+    public long getTimeoutInSeconds() {
+        return timeoutInSeconds;
+    }
+
+    public DurationHistory getDurationHistory() {
+        return durationHistory;
+    }
+
+    public Path getHistoryFile() {
+        return historyFile;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public int getReportSlowestCount() {
+        return reportSlowestCount;
+    }
+
+    public Set<ResultSummary.SECTION> getReportSections() {
+        return Collections.unmodifiableSet(reportSections);
+    }
+
+    /**
+     * @param id The id of a test
+     * @param defaultSeconds The interval for a test without one of it's own
+     *
+     * @return How often a daemon should re-run the test, in seconds
+     */
+    public long getIntervalSeconds(final String id, final long defaultSeconds) {
+        return intervalSeconds.getOrDefault(id, defaultSeconds);
+    }
+}
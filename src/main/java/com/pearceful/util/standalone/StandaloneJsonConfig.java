@@ -1,5 +1,7 @@
 package com.pearceful.util.standalone;
 
+import com.pearceful.util.DurationHistory;
+import com.pearceful.util.RetryPolicy;
 import com.pearceful.util.SmokeTestContext;
 import org.apache.log4j.Logger;
 
@@ -120,6 +122,22 @@ public class StandaloneJsonConfig {
 
         private int timeoutSecondsForAllTests;
         private int threadPoolSize;
+        private SmokeTestContext.EXECUTOR_MODE executorMode = SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS;
+        private int maxOutputBytes;
+        private String outputSpillDir;
+        private String historyFile;
+        private int historyMaxEntries;
+        private int maxFailures;
+        private int maxFailurePercent;
+        private Map<String, Integer> concurrencyGroups = new HashMap<>();
+        private boolean adaptiveConcurrency;
+        private String cacheFile;
+        private long cacheTtlSeconds;
+        private int cacheMaxEntries;
+        private int warmupIterations;
+        private int iterations;
+        private int reportSlowestCount;
+        private Set<ResultSummary.SECTION> reportSections;
         private Map<String, String> envronmentalVariables = new HashMap<>();
         private String configFile;
         private String tag;
@@ -139,12 +157,32 @@ public class StandaloneJsonConfig {
 
             return String.format(
                     "cmdLineArgs [%s], configFile [%s], tag [%s], timeoutSecondsForAllTests [%d], threadPoolSize [%d], " +
-                    "environmentalVariables [%s]",
+                    "executorMode [%s], maxOutputBytes [%d], outputSpillDir [%s], historyFile [%s], " +
+                    "historyMaxEntries [%d], maxFailures [%d], maxFailurePercent [%d], concurrencyGroups %s, " +
+                    "adaptiveConcurrency [%s], cacheFile [%s], cacheTtlSeconds [%d], cacheMaxEntries [%d], " +
+                    "warmupIterations [%d], iterations [%d], " +
+                    "reportSlowestCount [%d], reportSections %s, environmentalVariables [%s]",
                     cmdLine,
                     configFile,
                     tag,
                     timeoutSecondsForAllTests,
                     threadPoolSize,
+                    executorMode,
+                    maxOutputBytes,
+                    outputSpillDir,
+                    historyFile,
+                    historyMaxEntries,
+                    maxFailures,
+                    maxFailurePercent,
+                    concurrencyGroups,
+                    adaptiveConcurrency,
+                    cacheFile,
+                    cacheTtlSeconds,
+                    cacheMaxEntries,
+                    warmupIterations,
+                    iterations,
+                    reportSlowestCount,
+                    reportSections,
                     sysVars.toString());
         }
 
@@ -161,6 +199,48 @@ public class StandaloneJsonConfig {
             timeoutSecondsForAllTests   = (int)config.getOrDefault("timeout_seconds_for_all_tests", DEFAULT_TIMEOUT_IN_SECONDS);
             threadPoolSize              = (int)config.getOrDefault("thread_pool_size", DEFAULT_THREAD_POOL_SIZE);
 
+            if(Boolean.TRUE.equals(config.get("virtual_threads"))) {
+                executorMode = SmokeTestContext.EXECUTOR_MODE.VIRTUAL_THREADS;
+            }
+
+            if(Boolean.TRUE.equals(config.get("async"))) {
+                executorMode = SmokeTestContext.EXECUTOR_MODE.ASYNC;
+            }
+
+            maxOutputBytes              = (int)config.getOrDefault("max_output_bytes", OutputCapture.DEFAULT_MAX_BYTES);
+            outputSpillDir              = (String)config.get("output_spill_dir");
+            historyFile                 = (String)config.get("history_file");
+            historyMaxEntries           = (int)config.getOrDefault("history_max_entries", DurationHistory.DEFAULT_MAX_ENTRIES);
+            maxFailures                 = (int)config.getOrDefault("max_failures", 0);
+            maxFailurePercent           = (int)config.getOrDefault("max_failure_percent", 0);
+
+            if(Boolean.TRUE.equals(config.get("fail_fast"))) {
+                maxFailures = 1;
+            }
+
+            Map<String, Object> groups  = (Map<String, Object>)config.get("concurrency_groups");
+
+            if(null != groups) {
+                for(Map.Entry<String, Object> group : groups.entrySet()) {
+                    concurrencyGroups.put(group.getKey(), ((Number)group.getValue()).intValue());
+                }
+            }
+
+            adaptiveConcurrency         = Boolean.TRUE.equals(config.get("adaptive_concurrency"));
+            cacheFile                   = (String)config.get("cache_file");
+            cacheTtlSeconds             = ((Number)config.getOrDefault("cache_ttl_seconds", 0)).longValue();
+            cacheMaxEntries             = (int)config.getOrDefault("cache_max_entries", ResultCache.DEFAULT_MAX_ENTRIES);
+            warmupIterations            = (int)config.getOrDefault("warmup_iterations", 0);
+            iterations                  = (int)config.getOrDefault("iterations", 1);
+            reportSlowestCount          = (int)config.getOrDefault("report_slowest", ResultSummary.DEFAULT_SLOWEST_COUNT);
+            reportSections              = ResultSummary.DEFAULT_SECTIONS;
+
+            List<String> sections       = (List<String>)config.get("report_sections");
+
+            if(null != sections) {
+                reportSections = ResultSummary.parseSections(String.join(",", sections));
+            }
+
             List<Map<String, Object>> environmentalVariables
                     = (List<Map<String, Object>>)config.get("environmental_variables");
 
@@ -251,6 +331,70 @@ public class StandaloneJsonConfig {
             return threadPoolSize;
         }
 
+        public SmokeTestContext.EXECUTOR_MODE getExecutorMode() {
+            return executorMode;
+        }
+
+        public int getMaxOutputBytes() {
+            return maxOutputBytes;
+        }
+
+        public String getOutputSpillDir() {
+            return outputSpillDir;
+        }
+
+        public String getHistoryFile() {
+            return historyFile;
+        }
+
+        public int getHistoryMaxEntries() {
+            return historyMaxEntries;
+        }
+
+        public int getMaxFailures() {
+            return maxFailures;
+        }
+
+        public int getMaxFailurePercent() {
+            return maxFailurePercent;
+        }
+
+        public Map<String, Integer> getConcurrencyGroups() {
+            return concurrencyGroups;
+        }
+
+        public boolean isAdaptiveConcurrency() {
+            return adaptiveConcurrency;
+        }
+
+        public String getCacheFile() {
+            return cacheFile;
+        }
+
+        public long getCacheTtlSeconds() {
+            return cacheTtlSeconds;
+        }
+
+        public int getCacheMaxEntries() {
+            return cacheMaxEntries;
+        }
+
+        public int getWarmupIterations() {
+            return warmupIterations;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public int getReportSlowestCount() {
+            return reportSlowestCount;
+        }
+
+        public Set<ResultSummary.SECTION> getReportSections() {
+            return reportSections;
+        }
+
         public Map<String, String> getEnvronmentalVariables() {
             return envronmentalVariables;
         }
@@ -261,6 +405,16 @@ public class StandaloneJsonConfig {
         private String cmd;
         private RUN run;
         private List<String> runTags = new ArrayList<>();
+        private long timeoutSeconds  = CommandTestProcessor.NO_TIMEOUT;
+        private List<String> dependsOn = new ArrayList<>();
+        private RetryPolicy retryPolicy = RetryPolicy.NONE;
+        private String group;
+        private long intervalSeconds = 0;
+        private long cacheTtlSeconds = USE_SETUP_CACHE_TTL;
+
+        ///////////////////////////////////////////////////////////
+        // The test has no cache_ttl_seconds, the setup's one applies
+        public static final long USE_SETUP_CACHE_TTL = -1;
 
         public static enum RUN {
             ALWAYS,IF_TAG_MATCHES,UNLESS_TAG_MATCHES, NEVER
@@ -268,7 +422,10 @@ public class StandaloneJsonConfig {
 
         @Override
         public String toString() {
-            return String.format("id [%s], run [%s], cmd [%s]", id, run, cmd);
+            return String.format(
+                    "id [%s], run [%s], timeoutSeconds [%d], dependsOn %s, retryPolicy [%s], group [%s], " +
+                    "intervalSeconds [%d], cacheTtlSeconds [%d], cmd [%s]",
+                    id, run, timeoutSeconds, dependsOn, retryPolicy, group, intervalSeconds, cacheTtlSeconds, cmd);
         }
 
         public JsonTestDefinition(final String id, final Map<String, Object>config) {
@@ -278,6 +435,12 @@ public class StandaloneJsonConfig {
 
             cmd                          = (String)entry.get("cmd");
             Map<String, Object> action   = (Map<String, Object>)entry.get("run");
+            Number timeout               = (Number)entry.get("timeout_seconds");
+            List<Object> prerequisites   = (List<Object>)entry.get("depends_on");
+            Map<String, Object> retry    = (Map<String, Object>)entry.get("retry");
+            group                        = (String)entry.get("group");
+            Number interval              = (Number)entry.get("interval_seconds");
+            Number cacheTtl              = (Number)entry.get("cache_ttl_seconds");
 
             ////////////////
             // Sanity checks
@@ -301,6 +464,33 @@ public class StandaloneJsonConfig {
                 throw new RuntimeException(errMsg);
             }
 
+            if(null != timeout) {
+                timeoutSeconds = timeout.longValue();
+            }
+
+            if(null != interval) {
+                intervalSeconds = interval.longValue();
+            }
+
+            if(null != cacheTtl) {
+                cacheTtlSeconds = cacheTtl.longValue();
+            }
+
+            if(null != prerequisites) {
+                for(Object prerequisite : prerequisites) {
+                    dependsOn.add(prerequisite.toString());
+                }
+            }
+
+            if(null != retry) {
+                retryPolicy = new RetryPolicy(
+                        ((Number)retry.getOrDefault("max_attempts", 1)).intValue(),
+                        ((Number)retry.getOrDefault("backoff_ms", RetryPolicy.DEFAULT_BACKOFF_MS)).longValue(),
+                        ((Number)retry.getOrDefault("multiplier", RetryPolicy.DEFAULT_MULTIPLIER)).doubleValue(),
+                        ((Number)retry.getOrDefault("max_backoff_ms", RetryPolicy.DEFAULT_MAX_BACKOFF_MS)).longValue(),
+                        ((Number)retry.getOrDefault("jitter", RetryPolicy.DEFAULT_JITTER)).doubleValue());
+            }
+
             Object always               =   action.get("always");
             Object ifTagMatches         =   action.get("if_tag_matches");
             Object unlessTagMMatches    =   action.get("unless_tag_matches");
@@ -353,5 +543,32 @@ public class StandaloneJsonConfig {
         public List<String> getRunTags() {
             return runTags;
         }
+
+        public long getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        public List<String> getDependsOn() {
+            return dependsOn;
+        }
+
+        public long getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        /**
+         * @return How long a pass of this test is cached for, or USE_SETUP_CACHE_TTL
+         */
+        public long getCacheTtlSeconds() {
+            return cacheTtlSeconds;
+        }
+
+        public RetryPolicy getRetryPolicy() {
+            return retryPolicy;
+        }
+
+        public String getGroup() {
+            return group;
+        }
     }
 }
@@ -1,17 +1,23 @@
 package com.pearceful.util.standalone;
 
+import com.pearceful.util.AdaptiveConcurrencyLimit;
+import com.pearceful.util.CompactResultStore;
+import com.pearceful.util.DurationHistory;
+import com.pearceful.util.RetryPolicy;
 import com.pearceful.util.SmokeTestContext;
 import com.pearceful.util.SmokeTestException;
 import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestRunner;
 import com.pearceful.util.SmokeTestStrategy;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.stream.Stream;
 
 
 /**
@@ -36,6 +42,29 @@ public class TextLineConfigProcessor extends ConfigProcessor {
 
     public static final String TIMEOUT_SECONDS      = "TIMEOUT_SECONDS";
     public static final String THREAD_POOL_SIZE     = "THREAD_POOL_SIZE";
+    public static final String TEST_TIMEOUT_SECONDS = "TEST_TIMEOUT_SECONDS";
+    public static final String VIRTUAL_THREADS      = "VIRTUAL_THREADS";
+    public static final String ASYNC                = "ASYNC";
+    public static final String MAX_OUTPUT_BYTES     = "MAX_OUTPUT_BYTES";
+    public static final String OUTPUT_SPILL_DIR     = "OUTPUT_SPILL_DIR";
+    public static final String DEPENDS_ON           = "DEPENDS_ON";
+    public static final String HISTORY_FILE         = "HISTORY_FILE";
+    public static final String HISTORY_MAX_ENTRIES  = "HISTORY_MAX_ENTRIES";
+    public static final String FAIL_FAST            = "FAIL_FAST";
+    public static final String MAX_FAILURES         = "MAX_FAILURES";
+    public static final String MAX_FAILURE_PERCENT  = "MAX_FAILURE_PERCENT";
+    public static final String RETRIES              = "RETRIES";
+    public static final String GROUP_LIMIT          = "GROUP_LIMIT";
+    public static final String ADAPTIVE_CONCURRENCY = "ADAPTIVE_CONCURRENCY";
+    public static final String INTERVAL_SECONDS     = "INTERVAL_SECONDS";
+    public static final String CACHE_FILE           = "CACHE_FILE";
+    public static final String CACHE_MAX_ENTRIES    = "CACHE_MAX_ENTRIES";
+    public static final String CACHE_TTL_SECONDS    = "CACHE_TTL_SECONDS";
+    public static final String WARMUP_ITERATIONS    = "WARMUP_ITERATIONS";
+    public static final String ITERATIONS           = "ITERATIONS";
+    public static final String REPORT_SLOWEST       = "REPORT_SLOWEST";
+    public static final String REPORT_SECTIONS      = "REPORT_SECTIONS";
+    public static final String NO_DEPENDENCIES      = "NONE";
     public static final int    INT_VALUE_NOT_SET    = -1;
 
     private static final Logger LOGGER                  = Logger.getLogger(TextLineConfigProcessor.class);
@@ -43,10 +72,7 @@ public class TextLineConfigProcessor extends ConfigProcessor {
 
     public static void main(String[] args) {
         int exitStatus      = 0;
-        int threadPoolSize  = 5;
-        int timeoutSeconds  = 600;
         String filter       = null;
-        TestSelectionFilter lineFilter   =   null;
 
         if(args.length < 2) {
             exitStatus      = 1;
@@ -59,8 +85,6 @@ public class TextLineConfigProcessor extends ConfigProcessor {
 
         if(args.length > 2) {
             filter  = args[2];
-
-            lineFilter = new TestSelectionFilter(filter);
         }
 
         if(null == stTag || stTag.trim().length() < 1) {
@@ -70,10 +94,6 @@ public class TextLineConfigProcessor extends ConfigProcessor {
 
         }
 
-        Set<SmokeTestStrategy> shellScripts = new CopyOnWriteArraySet<>();
-
-        String envValueToBeSet  =    null;
-
         /////////////////////////////////////////
         // Process each non comment or blank line
         System.out.println("VERS: " + VERSION);
@@ -83,125 +103,272 @@ public class TextLineConfigProcessor extends ConfigProcessor {
                 String.format("main: input [%s], tag [%s], filter [%s]",
                         path.getFileName(),
                         stTag,
-                        (null != lineFilter ? filter : "{NONE-SPECIFIED}")));
+                        (null != filter ? filter : "{NONE-SPECIFIED}")));
 
         int failedCount = 0;
         int passedCount = 0;
-        int globalValue = -1;
 
         long start      = System.nanoTime();
 
+        PrometheusExporter prometheusExporter = null;
+        CompactResultStore compactResults     = null;
+        ConsoleWriter consoleWriter           = null;
+
+        try{
+            SmokeTestSuite suite                = loadSuite(path, stTag, filter, isStreamed());
+            Set<SmokeTestStrategy> shellScripts = suite.getSmokeTestStrategies();
+            DurationHistory durationHistory     = suite.getDurationHistory();
+
+            if(isLoadTest()) {
+                ///////////////////////////////////////////////////
+                // Drive the selected tests at a rate, not just once
+                failedCount = processLoad(shellScripts);
+                passedCount = shellScripts.size() - failedCount;
+
+                processSummaryAndExit(LOGGER, (failedCount > 0 ? 5 : 0), failedCount, passedCount, start);
+                return;
+            }
+
+            //////////////////////////////
+            // Run the scripts in parallel
+            List<SmokeTestResult> results;
+            AdaptiveConcurrencyLimit adaptiveLimit = null;
+            ResultSummary summary                  = newResultSummary(suite);
+
+            prometheusExporter = startPrometheusExporter();
+
+            if(ShardCoordinator.isCoordinator()) {
+                ///////////////////////////////////////////////////////////
+                // Hand the tests to worker JVMs, one per shard, and merge
+                results = ShardCoordinator.coordinate(
+                        TextLineConfigProcessor.class, args, shellScripts, durationHistory, suite.getTimeoutInSeconds());
+
+                recordResults(prometheusExporter, results);
+                recordPasses(shellScripts, results);
+                saveResultCache(suite.getResultCache());
+            } else {
+                SmokeTestRunner.Builder runnerBuilder = suite.getRunnerBuilder();
+
+                if(null != prometheusExporter) {
+                    runnerBuilder.listener(prometheusExporter);
+                }
+
+                try(SmokeTestRunner smokeTestRunner = runnerBuilder.build()) {
+                    if(ShardCoordinator.isWorker()) {
+                        results = ShardCoordinator.runShard(smokeTestRunner, shellScripts, durationHistory);
+                    } else {
+                        compactResults  = openCompactResultStore();
+                        consoleWriter   = openConsoleWriter();
+                        results         = runLocally(smokeTestRunner, suite, summary, compactResults, consoleWriter);
+                    }
+
+                    adaptiveLimit = smokeTestRunner.getAdaptiveConcurrencyLimit();
+                }
+
+                ////////////////////////////////////////////////////////////
+                // Only the coordinator saves the (merged) result cache too
+                if(! ShardCoordinator.isWorker()) {
+                    saveResultCache(suite.getResultCache());
+                }
+            }
+
+            /////////////////////////////////////////////////////////////////
+            // The live output is written before the summaries are displayed,
+            // and only the coordinator saves the (merged) history file
+            if(null != consoleWriter) {
+                consoleWriter.close();
+            }
+
+            failedCount = processResults(
+                    results,
+                    summary,
+                    null == consoleWriter,
+                    durationHistory,
+                    ShardCoordinator.isWorker() ? null : suite.getHistoryFile());
+            processConcurrencySummary(adaptiveLimit);
+            passedCount = results.size() - failedCount;
+
+            ////////////////////////////////////////////////
+            // Indicate if there was a failure to the caller
+            if(wasAborted(results)) {
+                exitStatus = 6;
+            } else if(failedCount > 0) {
+                exitStatus = 5;
+            }
+        } catch (IOException e) {
+            System.err.println(e);
+            exitStatus = 4;
+        } catch (SmokeTestException e) {
+            System.err.println(e);
+            exitStatus = 3;
+        }
+
+        finishPrometheusExporter(prometheusExporter);
+
+        if(null != consoleWriter) {
+            consoleWriter.close();
+        }
+
+        if(null != compactResults) {
+            compactResults.close();
+        }
+
+        processSummaryAndExit(LOGGER, exitStatus, failedCount, passedCount, start);
+    }
+
+    /**
+     * Read the file, selecting the lines to run for the tag (and filter), as the CLI (or a daemon) would.
+     *
+     * @param path The file of global settings and command lines
+     * @param stTag The selector tag, e.g. DEV
+     * @param filter If not null, a further filter on the selected lines (see showUsage)
+     *
+     * @return The selected command lines, and the settings to run them with
+     *
+     * @throws IOException
+     * @throws SmokeTestException If a setting has an invalid value
+     */
+    public static SmokeTestSuite loadSuite(
+            final Path path,
+            final String stTag,
+            final String filter) throws IOException, SmokeTestException {
+
+        return loadSuite(path, stTag, filter, false);
+    }
+
+    /**
+     * Read the file, selecting the lines to run for the tag (and filter), as the CLI (or a daemon) would.
+     *
+     * A streamed suite only holds on to the settings, the file is read again (a line at a time) as it's command lines
+     * are pulled into a run (see SmokeTestSuite.openTests), so a huge file's command lines are never all in memory.
+     *
+     * @param path The file of global settings and command lines
+     * @param stTag The selector tag, e.g. DEV
+     * @param filter If not null, a further filter on the selected lines (see showUsage)
+     * @param streamed true to stream the selected command lines into a run; else false to hold on to them
+     *
+     * @return The selected command lines (or a stream of them), and the settings to run them with
+     *
+     * @throws IOException
+     * @throws SmokeTestException If a setting has an invalid value
+     */
+    public static SmokeTestSuite loadSuite(
+            final Path path,
+            final String stTag,
+            final String filter,
+            final boolean streamed) throws IOException, SmokeTestException {
+
         // Determine if the env. variable name prefix has been overridden
         LOGGER.debug(
                 String.format(
-                        "main: Checking for overriding SmokeTester env. name prefix [%s] system property",
+                        "loadSuite: Checking for overriding SmokeTester env. name prefix [%s] system property",
                         ENV_VARIABLE_NAME_PREFIX_KEY));
 
         String propVal = System.getProperty(ENV_VARIABLE_NAME_PREFIX_KEY);
 
         if(null != propVal) {
             envVariableNamePrefix = propVal;
-            LOGGER.debug("main: Overriding SmokeTester env. variable name prefix with [" + propVal + "]");
+            LOGGER.debug("loadSuite: Overriding SmokeTester env. variable name prefix with [" + propVal + "]");
         } else {
-            LOGGER.debug("main: Keeping SmokeTester env. variable name prefix [" + ENV_VARIABLE_NAME_PREFIX + "]");
+            LOGGER.debug("loadSuite: Keeping SmokeTester env. variable name prefix [" + ENV_VARIABLE_NAME_PREFIX + "]");
         }
 
         LOGGER.info(
-                String.format("main: Enviromental variable names available: [%s], [%s], [%s], [%s]",
+                String.format("loadSuite: Enviromental variable names available: [%s], [%s], [%s], [%s]",
                         buildEnvVariableName(ENV_VARIABLE_TAG_SUFFIX),
                         buildEnvVariableName(ENV_VARIABLE_VALUE_SUFFIX),
                         buildEnvVariableName(ENV_VARIABLE_OS_SUFFIX),
                         buildEnvVariableName(ENV_VARIABLE_LINE_SUFFIX)));
 
-        try{
-            List<String> lines  = Files.readAllLines(path);
-            int lineNumber      = 0;
+        ////////////////////////////////////////////////////////////////////
+        // The settings can be anywhere in the file, so read all of it first
+        LineSelector settings               = new LineSelector(stTag, filter);
+        Set<SmokeTestStrategy> shellScripts = new LinkedHashSet<>();    // Hashed on the id, in line order
+        Map<String, Long> cacheTtls         = new HashMap<>();
 
-            for(String line : lines) {
-                lineNumber++;
+        try(Stream<String> lines = Files.lines(path)) {
+            Iterator<String> pending = lines.iterator();
 
-                globalValue = getGlobalIntSetting(line, TIMEOUT_SECONDS);
-                if(INT_VALUE_NOT_SET != globalValue) {
-                    timeoutSeconds = globalValue;
-                    LOGGER.debug("main: Setting timeout to " + globalValue + " from line " + lineNumber);
+            while(pending.hasNext()) {
+                TextLineTestProcessor shellScript = settings.select(pending.next());
 
-                    continue;
+                if(null != shellScript && ! streamed) {
+                    shellScripts.add(shellScript);
+                    cacheTtls.put(shellScript.getId(), (long)settings.cacheTtlSeconds);
                 }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
 
-                globalValue = getGlobalIntSetting(line, THREAD_POOL_SIZE);
-                if(INT_VALUE_NOT_SET != globalValue) {
-                    threadPoolSize = globalValue;
-                    LOGGER.debug("main: Setting threadPoolSize to " + globalValue + " from line " + lineNumber);
+        ////////////////////////////////////////////////////////////////////////
+        // How the outputs are captured (and failures retried) applies to every line
+        RetryPolicy retryPolicy = RetryPolicy.withRetries(settings.retries);
+        ResultCache resultCache =
+                (null != settings.cacheFile ? ResultCache.load(settings.cacheFile, settings.cacheMaxEntries) : null);
 
-                    continue;
-                }
+        for(SmokeTestStrategy shellScript : shellScripts) {
+            settings.configure(
+                    (TextLineTestProcessor)shellScript, retryPolicy, resultCache, cacheTtls.get(shellScript.getId()));
+        }
 
-                ////////////////////////////////////////////////////////////////////
-                // Determine if a matching variable for the environment has been set
-                String possibleEnvValueToBeSet  = valueToBeSelected(line, stTag);
-                if(null != possibleEnvValueToBeSet) {
-                    envValueToBeSet = possibleEnvValueToBeSet;
-                }
+        //////////////////////////////////////////////////////////////////
+        // Read the lines again as they are pulled, with the same settings
+        SmokeTestSuite.TestStream testStream = null;
 
-                ////////////////////////////////////////////
-                // Start the selection process for this line
-                boolean selected        = lineToBeSelected(lineNumber, line, stTag);
-                boolean passedFilter    = false;
+        if(streamed) {
+            testStream = () -> {
+                LineSelector selector = new LineSelector(stTag, filter);
 
-                if(selected) {
-                    //////////////////////////
-                    // Matched the environment
-                    String cmdLine = stripLeadingToken(line);
+                return Files.lines(path).<SmokeTestStrategy>map(line -> {
+                    TextLineTestProcessor shellScript;
 
-                    if (null != lineFilter) {
-                        //////////////////////////////////////
-                        // A command line filter was specified
-                        passedFilter = lineFilter.isMatch(lineNumber, cmdLine);
-                    } else {
-                        passedFilter = true;
+                    try {
+                        shellScript = selector.select(line);
+                    } catch (SmokeTestException e) {
+                        /////////////////////////////////////////////////////////////////
+                        // The settings were checked as the file was first read, so only
+                        // a file changed since then can get here
+                        throw new UncheckedIOException(new IOException(e.getMessage(), e));
                     }
 
-                    /////////////////////////////////////////////////////////////
-                    // Finally check if the line passed all checks to be executed
-                    if(passedFilter) {
-                        shellScripts.add(
-                                new TextLineTestProcessor(lineNumber, cmdLine, stTag, envValueToBeSet));
+                    if(null != shellScript) {
+                        settings.configure(shellScript, retryPolicy, resultCache, selector.cacheTtlSeconds);
                     }
-                }
 
-                LOGGER.debug(
-                        String.format(
-                                "main: selected [%-5s], passedFilter [%-5s], line [%4d], envValue [%s], cmd [%s]",
-                                selected,
-                                passedFilter,
-                                lineNumber,
-                                envValueToBeSet,
-                                line));
-            }
-
-            //////////////////////////////
-            // Run the scripts in parallel
-            List<SmokeTestResult> results =
-                    SmokeTestContext.runSmokeTests(
-                            shellScripts, threadPoolSize, timeoutSeconds);
-
-            failedCount = processResults(results);
-            passedCount = results.size() - failedCount;
-
-            ////////////////////////////////////////////////
-            // Indicate if there was a failure to the caller
-            if(failedCount > 0) {
-                exitStatus = 5;
-            }
-        } catch (IOException e) {
-            System.err.println(e);
-            exitStatus = 4;
-        } catch (SmokeTestException e) {
-            System.err.println(e);
-            exitStatus = 3;
+                    return shellScript;
+                }).filter(Objects::nonNull);
+            };
         }
 
-        processSummaryAndExit(LOGGER, exitStatus, failedCount, passedCount, start);
+        ///////////////////////////////////////////////////////////////
+        // The slowest scripts (from previous runs) are started first
+        DurationHistory durationHistory =
+                (null != settings.historyFile
+                        ? DurationHistory.load(settings.historyFile, settings.historyMaxEntries)
+                        : null);
+
+        return new SmokeTestSuite(
+                shellScripts,
+                SmokeTestRunner.builder()
+                        .executorMode(settings.executorMode)
+                        .maxConcurrentTests(settings.threadPoolSize)
+                        .timeoutInSeconds(settings.timeoutSeconds)
+                        .durationHistory(durationHistory)
+                        .maxFailures(settings.maxFailures)
+                        .maxFailurePercent(settings.maxFailurePercent)
+                        .groupLimits(settings.groupLimits)
+                        .adaptiveConcurrency(settings.adaptiveConcurrency)
+                        .repeat(settings.warmupIterations, settings.iterations)
+                        .discoverListeners(),
+                settings.timeoutSeconds,
+                durationHistory,
+                settings.historyFile,
+                settings.intervals,
+                resultCache,
+                settings.reportSlowestCount,
+                settings.reportSections,
+                testStream);
     }
 
     private static int getGlobalIntSetting(final String line, final String name) {
@@ -303,4 +470,368 @@ public class TextLineConfigProcessor extends ConfigProcessor {
     protected static String buildEnvVariableName(final String suffix) {
         return envVariableNamePrefix + suffix;
     }
+
+    /**
+     * Reads the file a line at a time, keeping track of the global settings (and those that apply to the lines that
+     * follow), and selecting the command lines to run for the tag (and filter).
+     */
+    private static class LineSelector {
+        private final String stTag;
+        private final TestSelectionFilter lineFilter;
+        private int lineNumber      = 0;
+
+        private int threadPoolSize  = 5;
+        private int timeoutSeconds  = 600;
+        private int testTimeoutSeconds  = (int)TextLineTestProcessor.NO_TIMEOUT;
+        private int intervalSeconds = 0;
+        private int cacheTtlSeconds = 0;
+        private SmokeTestContext.EXECUTOR_MODE executorMode = SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS;
+        private int maxOutputBytes  = OutputCapture.DEFAULT_MAX_BYTES;
+        private Path outputSpillDir = null;
+        private Path historyFile    = null;
+        private int historyMaxEntries   = DurationHistory.DEFAULT_MAX_ENTRIES;
+        private Path cacheFile      = null;
+        private int cacheMaxEntries = ResultCache.DEFAULT_MAX_ENTRIES;
+        private int maxFailures     = 0;
+        private int maxFailurePercent   = 0;
+        private int retries         = 0;
+        private final Map<String, Integer> groupLimits  = new HashMap<>();
+        private final Map<String, Long> intervals       = new HashMap<>();
+        private boolean adaptiveConcurrency             = false;
+        private int warmupIterations    = 0;
+        private int iterations          = 1;
+        private int reportSlowestCount  = ResultSummary.DEFAULT_SLOWEST_COUNT;
+        private Set<ResultSummary.SECTION> reportSections   = ResultSummary.DEFAULT_SECTIONS;
+        private List<String> dependsOn  = new ArrayList<>();
+        private String envValueToBeSet  = null;
+
+        LineSelector(final String stTag, final String filter) {
+            this.stTag      = stTag;
+            this.lineFilter = (null != filter ? new TestSelectionFilter(filter) : null);
+        }
+
+        /**
+         * @param line The next line of the file
+         *
+         * @return The command line to run, or null if the line is a setting, a comment or not selected
+         *
+         * @throws SmokeTestException If the line is a setting with an invalid value
+         */
+        TextLineTestProcessor select(final String line) throws SmokeTestException {
+            int globalValue;
+
+            lineNumber++;
+
+            globalValue = getGlobalIntSetting(line, TIMEOUT_SECONDS);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                timeoutSeconds = globalValue;
+                LOGGER.debug("select: Setting timeout to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, THREAD_POOL_SIZE);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                threadPoolSize = globalValue;
+                LOGGER.debug("select: Setting threadPoolSize to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            String globalString = getGlobalStringSetting(line, VIRTUAL_THREADS);
+            if(null != globalString) {
+                if(Boolean.parseBoolean(globalString.trim())) {
+                    executorMode = SmokeTestContext.EXECUTOR_MODE.VIRTUAL_THREADS;
+                } else {
+                    executorMode = SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS;
+                }
+                LOGGER.debug("select: Setting executorMode to " + executorMode + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, ASYNC);
+            if(null != globalString) {
+                if(Boolean.parseBoolean(globalString.trim())) {
+                    executorMode = SmokeTestContext.EXECUTOR_MODE.ASYNC;
+                } else {
+                    executorMode = SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS;
+                }
+                LOGGER.debug("select: Setting executorMode to " + executorMode + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, MAX_OUTPUT_BYTES);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                maxOutputBytes = globalValue;
+                LOGGER.debug("select: Setting maxOutputBytes to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, OUTPUT_SPILL_DIR);
+            if(null != globalString) {
+                outputSpillDir = Paths.get(globalString.trim());
+                LOGGER.debug("select: Setting outputSpillDir to " + outputSpillDir + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, HISTORY_FILE);
+            if(null != globalString) {
+                historyFile = Paths.get(globalString.trim());
+                LOGGER.debug("select: Setting historyFile to " + historyFile + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, HISTORY_MAX_ENTRIES);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                historyMaxEntries = globalValue;
+                LOGGER.debug("select: Setting historyMaxEntries to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, CACHE_FILE);
+            if(null != globalString) {
+                cacheFile = Paths.get(globalString.trim());
+                LOGGER.debug("select: Setting cacheFile to " + cacheFile + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, CACHE_MAX_ENTRIES);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                cacheMaxEntries = globalValue;
+                LOGGER.debug("select: Setting cacheMaxEntries to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, FAIL_FAST);
+            if(null != globalString) {
+                maxFailures = (Boolean.parseBoolean(globalString.trim()) ? 1 : 0);
+                LOGGER.debug("select: Setting maxFailures to " + maxFailures + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, MAX_FAILURES);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                maxFailures = globalValue;
+                LOGGER.debug("select: Setting maxFailures to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, MAX_FAILURE_PERCENT);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                maxFailurePercent = globalValue;
+                LOGGER.debug("select: Setting maxFailurePercent to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, RETRIES);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                retries = globalValue;
+                LOGGER.debug("select: Setting retries to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, REPORT_SLOWEST);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                reportSlowestCount = globalValue;
+                LOGGER.debug("select: Setting reportSlowestCount to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, REPORT_SECTIONS);
+            if(null != globalString) {
+                reportSections = ResultSummary.parseSections(globalString);
+                LOGGER.debug("select: Setting reportSections to " + reportSections + " from line " + lineNumber);
+
+                return null;
+            }
+
+            ///////////////////////////////////////////////
+            // One per group, in the form group=maxInFlight
+            globalString = getGlobalStringSetting(line, GROUP_LIMIT);
+            if(null != globalString) {
+                String[] groupLimit = globalString.split(VALUE_SENTINAL, -1);
+                int maxInFlight     = 0;
+
+                if(2 == groupLimit.length && ! groupLimit[0].trim().isEmpty()) {
+                    try {
+                        maxInFlight = Integer.parseInt(groupLimit[1].trim());
+                    } catch (NumberFormatException e) {
+                        maxInFlight = 0;
+                    }
+                }
+
+                if(maxInFlight < 1) {
+                    throw new SmokeTestException(
+                            String.format(
+                                    "select: Invalid %s [%s] on line %d, expected group%smaxInFlight (> 0)",
+                                    GROUP_LIMIT,
+                                    globalString.trim(),
+                                    lineNumber,
+                                    VALUE_SENTINAL));
+                }
+
+                groupLimits.put(groupLimit[0].trim(), maxInFlight);
+                LOGGER.debug("select: Setting groupLimits to " + groupLimits + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, ADAPTIVE_CONCURRENCY);
+            if(null != globalString) {
+                adaptiveConcurrency = Boolean.parseBoolean(globalString.trim());
+                LOGGER.debug("select: Setting adaptiveConcurrency to " + adaptiveConcurrency + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, WARMUP_ITERATIONS);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                warmupIterations = globalValue;
+                LOGGER.debug("select: Setting warmupIterations to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, ITERATIONS);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                iterations = globalValue;
+                LOGGER.debug("select: Setting iterations to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            //////////////////////////////////////////////////////////////
+            // Applies to the command lines that follow, until overridden
+            globalValue = getGlobalIntSetting(line, TEST_TIMEOUT_SECONDS);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                testTimeoutSeconds = globalValue;
+                LOGGER.debug("select: Setting testTimeoutSeconds to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, INTERVAL_SECONDS);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                intervalSeconds = globalValue;
+                LOGGER.debug("select: Setting intervalSeconds to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalValue = getGlobalIntSetting(line, CACHE_TTL_SECONDS);
+            if(INT_VALUE_NOT_SET != globalValue) {
+                cacheTtlSeconds = globalValue;
+                LOGGER.debug("select: Setting cacheTtlSeconds to " + globalValue + " from line " + lineNumber);
+
+                return null;
+            }
+
+            globalString = getGlobalStringSetting(line, DEPENDS_ON);
+            if(null != globalString) {
+                dependsOn = new ArrayList<>();
+
+                for(String dependsOnLine : globalString.split(",")) {
+                    dependsOnLine = dependsOnLine.trim();
+
+                    if(dependsOnLine.length() > 0 && ! NO_DEPENDENCIES.equalsIgnoreCase(dependsOnLine)) {
+                        dependsOn.add(dependsOnLine);
+                    }
+                }
+                LOGGER.debug("select: Setting dependsOn to " + dependsOn + " from line " + lineNumber);
+
+                return null;
+            }
+
+            ////////////////////////////////////////////////////////////////////
+            // Determine if a matching variable for the environment has been set
+            String possibleEnvValueToBeSet  = valueToBeSelected(line, stTag);
+            if(null != possibleEnvValueToBeSet) {
+                envValueToBeSet = possibleEnvValueToBeSet;
+            }
+
+            ////////////////////////////////////////////////////////////////////
+            // Note (then remove) any concurrency group marker before selection
+            String group            = groupToBeSelected(line);
+            String taggedLine       = stripGroup(line);
+
+            ////////////////////////////////////////////
+            // Start the selection process for this line
+            boolean selected                    = lineToBeSelected(lineNumber, taggedLine, stTag);
+            boolean passedFilter                = false;
+            TextLineTestProcessor shellScript   = null;
+
+            if(selected) {
+                //////////////////////////
+                // Matched the environment
+                String cmdLine = stripLeadingToken(taggedLine);
+
+                if (null != lineFilter) {
+                    //////////////////////////////////////
+                    // A command line filter was specified
+                    passedFilter = lineFilter.isMatch(lineNumber, cmdLine);
+                } else {
+                    passedFilter = true;
+                }
+
+                /////////////////////////////////////////////////////////////
+                // Finally check if the line passed all checks to be executed
+                if(passedFilter) {
+                    shellScript =
+                            new TextLineTestProcessor(lineNumber, cmdLine, stTag, envValueToBeSet, testTimeoutSeconds);
+                    shellScript.setDependsOn(dependsOn);
+                    shellScript.setGroup(group);
+
+                    if(intervalSeconds > 0) {
+                        intervals.put(shellScript.getId(), (long)intervalSeconds);
+                    }
+                }
+            }
+
+            LOGGER.debug(
+                    String.format(
+                            "select: selected [%-5s], passedFilter [%-5s], line [%4d], envValue [%s], cmd [%s]",
+                            selected,
+                            passedFilter,
+                            lineNumber,
+                            envValueToBeSet,
+                            line));
+
+            return shellScript;
+        }
+
+        /**
+         * Apply the settings that apply to every line (as they are once the whole file has been read).
+         *
+         * @param shellScript The selected command line
+         * @param retryPolicy How failures are retried
+         * @param resultCache If not null, the cache of recent passes
+         * @param cacheTtlSeconds How long a pass of this command line is good for
+         */
+        void configure(
+                final TextLineTestProcessor shellScript,
+                final RetryPolicy retryPolicy,
+                final ResultCache resultCache,
+                final long cacheTtlSeconds) {
+
+            shellScript.setOutputCapture(maxOutputBytes, outputSpillDir);
+            shellScript.setRetryPolicy(retryPolicy);
+
+            if(null != resultCache) {
+                shellScript.setResultCache(resultCache, stTag, cacheTtlSeconds);
+            }
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class AdaptiveConcurrencyLimitTest extends TestCase {
+    private static final long LATENCY_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public void testGrowsToTheMaxWhileLatencyIsSteady() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 20, hostLoad(false));
+
+        assertEquals(AdaptiveConcurrencyLimit.INITIAL_LIMIT, limit.getLimit());
+
+        for(int i = 0 ; i < 100 ; i++) {
+            limit.onTestComplete(LATENCY_NS, limit.getLimit());
+        }
+
+        assertEquals(20, limit.getLimit());
+        assertEquals(AdaptiveConcurrencyLimit.INITIAL_LIMIT, limit.getLowestLimit());
+        assertEquals(20, limit.getHighestLimit());
+    }
+
+    public void testDoesNotGrowWhenTheLimitIsNotUsed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 20, hostLoad(false));
+
+        for(int i = 0 ; i < 100 ; i++) {
+            limit.onTestComplete(LATENCY_NS, 1);
+        }
+
+        assertEquals(AdaptiveConcurrencyLimit.INITIAL_LIMIT, limit.getLimit());
+    }
+
+    public void testBacksOffWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 20, hostLoad(false));
+
+        for(int i = 0 ; i < 100 ; i++) {
+            limit.onTestComplete(LATENCY_NS, limit.getLimit());
+        }
+
+        for(int i = 0 ; i < 100 ; i++) {
+            limit.onTestComplete(LATENCY_NS * 10, limit.getLimit());
+        }
+
+        assertTrue(limit.getLimit() < 20);
+        assertEquals(20, limit.getHighestLimit());
+    }
+
+    public void testBacksOffToTheMinWhenTheHostIsOverloaded() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 20, hostLoad(true));
+
+        for(int i = 0 ; i < 100 ; i++) {
+            limit.onTestComplete(LATENCY_NS, limit.getLimit());
+        }
+
+        assertEquals(1, limit.getLimit());
+        assertEquals(1, limit.getLowestLimit());
+    }
+
+    private static AdaptiveConcurrencyLimit.HostLoad hostLoad(final boolean overloaded) {
+        return new AdaptiveConcurrencyLimit.HostLoad() {
+            @Override
+            boolean isOverloaded() {
+                return overloaded;
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class CompactResultStoreTest extends TestCase {
+    public void testResultsAreReadBackFromTheColumns() throws IOException {
+        Path spillFile = Files.createTempFile("st-results-test-", ".spill");
+
+        try(CompactResultStore store = new CompactResultStore(spillFile)) {
+            Map<SmokeTestResult.PHASE, Long> phases = new EnumMap<>(SmokeTestResult.PHASE.class);
+            phases.put(SmokeTestResult.PHASE.SPAWN, 3L);
+            phases.put(SmokeTestResult.PHASE.RUN, 40L);
+
+            LatencyHistogram latencies = new LatencyHistogram();
+            latencies.record(1000);
+
+            store.onTestComplete(new SmokeTestResult("1", SmokeTestResult.STATE.USER_PASS, 43, "ok").withPhases(phases));
+            store.onTestComplete(
+                    new SmokeTestResult("2", SmokeTestResult.STATE.USER_FAIL, 20, "näy")
+                            .withAttempts(new long[] {10, 10}));
+            store.onTestComplete(new SmokeTestResult("3", SmokeTestResult.STATE.ABORTED, 0, null));
+            store.onTestComplete(
+                    new SmokeTestResult("4", SmokeTestResult.STATE.CACHED_PASS, 5, "cached").withLatencies(latencies));
+
+            assertEquals(4, store.size());
+            assertEquals(2, store.getFailedCount());
+            assertEquals(1, store.getCount(SmokeTestResult.STATE.ABORTED));
+
+            SmokeTestResult first = store.get(0);
+            assertEquals("1", first.getId());
+            assertEquals(SmokeTestResult.STATE.USER_PASS, first.getState());
+            assertEquals(43, first.getElapsedNanoSeconds());
+            assertEquals("ok", first.getMessage());
+            assertEquals(phases, first.getPhaseNanoSeconds());
+            assertEquals(1, first.getAttempts());
+
+            assertEquals("näy", store.get(1).getMessage());
+            assertEquals(2, store.get(1).getAttempts());
+            assertTrue(store.get(1).getPhaseNanoSeconds().isEmpty());
+            assertNull(store.get(2).getMessage());
+            assertSame(latencies, store.get(3).getLatencyHistogram());
+            assertNull(store.get(0).getLatencyHistogram());
+
+            // The ids are interned, and the list view is read only
+            assertSame("1", store.getId(0));
+
+            try {
+                store.add(first);
+                fail("The store can only be added to as a listener");
+            } catch (UnsupportedOperationException e) {
+                // Expected
+            }
+        }
+
+        assertFalse(Files.exists(spillFile));
+    }
+
+    public void testManyResultsSpillTheirMessages() throws IOException {
+        char[] large = new char[100 * 1024];
+        Arrays.fill(large, 'x');
+
+        try(CompactResultStore store = new CompactResultStore()) {
+            for(int i = 0 ; i < 5000 ; i++) {
+                String message = (2500 == i ? new String(large) : "output of test " + i);
+
+                store.onTestComplete(new SmokeTestResult("T" + i, SmokeTestResult.STATE.USER_PASS, i, message));
+            }
+
+            // The messages are only read back when asked for, even those still buffered
+            assertEquals(5000, store.size());
+            assertTrue(store.getSpillSize() > large.length);
+            assertEquals("output of test 0", store.getMessage(0));
+            assertEquals(large.length, store.getMessage(2500).length());
+            assertEquals("output of test 4999", store.get(4999).getMessage());
+            assertEquals(4999, store.getElapsedNanoSeconds(4999));
+        }
+    }
+}
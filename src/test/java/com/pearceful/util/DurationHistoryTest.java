@@ -0,0 +1,90 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class DurationHistoryTest extends TestCase {
+    public void testEstimatesFollowTheElapsedTimes() {
+        DurationHistory durationHistory = new DurationHistory(500);
+
+        assertEquals(500, durationHistory.getEstimateNs("new"));
+
+        durationHistory.record(new SmokeTestResult("1", SmokeTestResult.STATE.USER_PASS, 1000, "pass"));
+        assertEquals(1000, durationHistory.getEstimateNs("1"));
+
+        // Smoothed towards the newer time
+        durationHistory.record(new SmokeTestResult("1", SmokeTestResult.STATE.USER_FAIL, 2000, "fail"));
+        assertEquals(1300, durationHistory.getEstimateNs("1"));
+
+        // Tests that never ran are ignored
+        durationHistory.record(new SmokeTestResult("2", SmokeTestResult.STATE.SKIPPED, 0, "skipped"));
+        durationHistory.record(new SmokeTestResult("3", SmokeTestResult.STATE.EXEC_ERROR, 0, "not started"));
+        assertEquals(1, durationHistory.size());
+    }
+
+    public void testTestSeenLeastRecentlyIsEvicted() throws IOException {
+        DurationHistory durationHistory = new DurationHistory(500, 2);
+
+        durationHistory.record(new SmokeTestResult("a", SmokeTestResult.STATE.USER_PASS, 1000, "pass"));
+        durationHistory.record(new SmokeTestResult("b", SmokeTestResult.STATE.USER_PASS, 2000, "pass"));
+        durationHistory.record(new SmokeTestResult("a", SmokeTestResult.STATE.USER_PASS, 1000, "pass"));
+        durationHistory.record(new SmokeTestResult("c", SmokeTestResult.STATE.USER_PASS, 3000, "pass"));
+
+        assertEquals(2, durationHistory.size());
+        assertEquals(500, durationHistory.getEstimateNs("b"));
+        assertEquals(1000, durationHistory.getEstimateNs("a"));
+        assertEquals(3000, durationHistory.getEstimateNs("c"));
+
+        // The order survives a save, and a smaller cap on load keeps the most recently seen
+        Path historyFile = Files.createTempFile("st-history", ".bin");
+
+        try {
+            durationHistory.save(historyFile);
+
+            DurationHistory loaded = DurationHistory.load(historyFile, 1);
+
+            assertEquals(1, loaded.size());
+            assertEquals(3000, loaded.getEstimateNs("c"));
+        } finally {
+            Files.deleteIfExists(historyFile);
+        }
+    }
+
+    public void testSaveAndLoad() throws IOException {
+        Path historyFile = Files.createTempFile("st-history", ".bin");
+
+        try {
+            DurationHistory durationHistory = new DurationHistory();
+            durationHistory.record(new SmokeTestResult("id1", SmokeTestResult.STATE.USER_PASS, 123456789L, "pass"));
+            durationHistory.record(new SmokeTestResult("id2", SmokeTestResult.STATE.TIMEOUT, 987654321L, "timeout"));
+            durationHistory.save(historyFile);
+
+            DurationHistory loaded = DurationHistory.load(historyFile);
+
+            assertEquals(2, loaded.size());
+            assertEquals(123456789L, loaded.getEstimateNs("id1"));
+            assertEquals(987654321L, loaded.getEstimateNs("id2"));
+        } finally {
+            Files.deleteIfExists(historyFile);
+        }
+    }
+
+    public void testUnreadableFileStartsAfresh() throws IOException {
+        Path historyFile = Files.createTempFile("st-history", ".bin");
+
+        try {
+            Files.write(historyFile, "not a history file".getBytes());
+
+            assertEquals(0, DurationHistory.load(historyFile).size());
+            assertEquals(0, DurationHistory.load(historyFile.resolveSibling("missing.bin")).size());
+        } finally {
+            Files.deleteIfExists(historyFile);
+        }
+    }
+}
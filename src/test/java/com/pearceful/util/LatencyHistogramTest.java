@@ -0,0 +1,64 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import java.io.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class LatencyHistogramTest extends TestCase {
+    public void testPercentilesAreWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // 1mS to 1000mS, one of each
+        for(long ms = 1 ; ms <= 1000 ; ms++) {
+            histogram.record(ms * 1000000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000L, histogram.getMinNs());
+        assertEquals(1000000000L, histogram.getMaxNs());
+        assertEquals(500500000L, histogram.getMeanNs());
+
+        assertWithin(500000000L, histogram.getValueAtPercentile(50));
+        assertWithin(900000000L, histogram.getValueAtPercentile(90));
+        assertWithin(990000000L, histogram.getValueAtPercentile(99));
+        assertEquals(1000000000L, histogram.getValueAtPercentile(100));
+    }
+
+    public void testBucketsCoverEveryValue() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        assertEquals(127, LatencyHistogram.bucketIndex(127));
+
+        long[] values = {128, 129, 255, 256, 1000, 123456789L, Long.MAX_VALUE};
+
+        for(long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+
+            assertTrue(LatencyHistogram.highestValueIn(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueIn(index - 1) < value);
+        }
+    }
+
+    public void testWriteAndRead() throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5);
+        histogram.record(5000);
+        histogram.record(5000000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.writeTo(new DataOutputStream(bytes));
+
+        LatencyHistogram read =
+                LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(histogram.toString(), read.toString());
+        assertEquals(3, read.getCount());
+        assertEquals(histogram.getMeanNs(), read.getMeanNs());
+    }
+
+    private static void assertWithin(final long expectedNs, final long actualNs) {
+        assertTrue(actualNs + " not within 2% of " + expectedNs, Math.abs(actualNs - expectedNs) <= expectedNs / 50);
+    }
+}
@@ -2,7 +2,9 @@ package com.pearceful.util;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.IntStream;
@@ -186,6 +188,82 @@ public class SmokeTestContextTest extends TestCase {
                         .count());
     }
 
+    public void testStreamingResultsArriveInCompletionOrder() throws SmokeTestException {
+        int threadPoolSize  = 2;
+        int timeoutSeconds  = 5;
+
+        // A slow strategy added before a fast one, the fast one should be handed back first
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+
+        smokeTestStrategies.add(new MockSimpleBaseSmokeTestStrategy(
+                "SLOW",
+                new SmokeTestResult("SLOW", SmokeTestResult.STATE.USER_PASS, 0, "slow"),
+                false,
+                1));
+
+        smokeTestStrategies.add(new MockSimpleBaseSmokeTestStrategy(
+                "FAST",
+                new SmokeTestResult("FAST", SmokeTestResult.STATE.USER_PASS, 0, "fast")));
+
+        List<SmokeTestResult> streamedResults = new ArrayList<>();
+
+        SmokeTestContext.runSmokeTests(smokeTestStrategies, threadPoolSize, timeoutSeconds, streamedResults::add);
+
+        assertEquals(2, streamedResults.size());
+        assertEquals("FAST", streamedResults.get(0).getId());
+        assertEquals("SLOW", streamedResults.get(1).getId());
+
+        // The ordered wrapper should still return the results in the strategies order
+        List<SmokeTestResult> orderedResults =
+                SmokeTestContext.runSmokeTests(smokeTestStrategies, threadPoolSize, timeoutSeconds);
+
+        assertEquals("SLOW", orderedResults.get(0).getId());
+        assertEquals("FAST", orderedResults.get(1).getId());
+    }
+
+    public void testVirtualThreadsLimitedConcurrency() throws SmokeTestException {
+        int maxConcurrentTests  = 2;
+        int timeoutSeconds      = 10;
+        int strategyCount       = maxConcurrentTests * 2;
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new HashSet<>();
+
+        // Each strategy takes a second, so only running 2 at once must take at least 2 seconds
+        IntStream.range(1, strategyCount + 1)
+                .forEach(i -> {
+                            String id = "V" + i;
+
+                            smokeTestStrategies.add(new
+                                    MockSimpleBaseSmokeTestStrategy(
+                                    id,
+                                    new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "virtual" + i),
+                                    false,
+                                    1));
+                        }
+                );
+
+        long startNs = System.nanoTime();
+
+        List<SmokeTestResult> smokeTestResults =
+                SmokeTestContext.runSmokeTests(
+                        smokeTestStrategies,
+                        SmokeTestContext.EXECUTOR_MODE.VIRTUAL_THREADS,
+                        maxConcurrentTests,
+                        timeoutSeconds);
+
+        long elapsedMs = (System.nanoTime() - startNs) / 1000000;
+
+        assertEquals(strategyCount, smokeTestResults.size());
+        assertEquals(
+                strategyCount,
+                smokeTestResults
+                        .stream()
+                        .filter(s -> s.getState().equals(SmokeTestResult.STATE.USER_PASS))
+                        .count());
+
+        assertTrue(elapsedMs >= 2000);
+    }
+
     /**
      * A Mock implementation of the SmokeTestStrategy interface.
      *
@@ -0,0 +1,94 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class SmokeTestLoadGeneratorTest extends TestCase {
+    public void testInvocationsKeepToTheRate() throws SmokeTestException {
+        AtomicInteger created = new AtomicInteger();
+
+        SmokeTestLoadGenerator.Report report =
+                SmokeTestContext.generateLoad(() -> {
+                    created.incrementAndGet();
+
+                    return new SleepingStrategy("FAST", 0);
+                }, 20, 1, 4);
+
+        // A fresh strategy each time, started over (not all at the start of) the second
+        assertEquals(20, created.get());
+        assertEquals(20, report.getIntendedInvocations());
+        assertEquals(20, report.getCompletedInvocations());
+        assertEquals(20, report.getPassedInvocations());
+        assertTrue(report.getElapsedNs() >= TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    public void testSlowInvocationsDoNotSlowTheLoad() throws SmokeTestException {
+        long startNs = System.nanoTime();
+
+        // One thread, each invocation takes 100mS, but 20 are due each second
+        SmokeTestLoadGenerator.Report report =
+                SmokeTestLoadGenerator.builder()
+                        .ratePerSecond(20)
+                        .durationInSeconds(1)
+                        .maxConcurrentInvocations(1)
+                        .build()
+                        .run(() -> new SleepingStrategy("SLOW", 100));
+
+        long elapsedNs = System.nanoTime() - startNs;
+
+        assertEquals(20, report.getPassedInvocations());
+        assertTrue(elapsedNs >= TimeUnit.MILLISECONDS.toNanos(2000));
+
+        // The later invocations queued, and that counts towards their response times
+        assertTrue(report.getQueueingDelays().getMaxNs() >= TimeUnit.MILLISECONDS.toNanos(900));
+        assertTrue(report.getServiceTimes().getValueAtPercentile(99) < TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(report.getResponseTimes().getValueAtPercentile(99) >= TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    public void testBuilderSanityChecks() {
+        try {
+            SmokeTestLoadGenerator.builder().ratePerSecond(0).build();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            SmokeTestLoadGenerator.builder().maxConcurrentInvocations(0).build();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * A strategy that sleeps, then passes.
+     */
+    static class SleepingStrategy extends BaseSmokeTestStrategy {
+        private final long delayInMs;
+
+        SleepingStrategy(final String id, final long delayInMs) {
+            this.id         = id;
+            this.delayInMs  = delayInMs;
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            try {
+                Thread.sleep(delayInMs);
+            } catch (InterruptedException e) {
+                throw new SmokeTestException(e);
+            }
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            return new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "slept");
+        }
+    }
+}
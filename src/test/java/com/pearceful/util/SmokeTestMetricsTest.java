@@ -0,0 +1,109 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class SmokeTestMetricsTest extends TestCase {
+    public void testMBeanIsRegisteredWhileARunnerIsOpen() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName   = new ObjectName(SmokeTestMetrics.OBJECT_NAME);
+        boolean registered      = mBeanServer.isRegistered(objectName);
+        int capacity            = SmokeTestMetrics.getInstance().getMaxConcurrentTests();
+
+        SmokeTestRunner first   = SmokeTestRunner.builder().maxConcurrentTests(2).build();
+        SmokeTestRunner second  = SmokeTestRunner.builder().maxConcurrentTests(3).build();
+
+        assertTrue(mBeanServer.isRegistered(objectName));
+        assertEquals(capacity + 5, mBeanServer.getAttribute(objectName, "MaxConcurrentTests"));
+
+        // Closing twice only counts once
+        first.close();
+        first.close();
+
+        assertTrue(mBeanServer.isRegistered(objectName));
+        assertEquals(capacity + 3, mBeanServer.getAttribute(objectName, "MaxConcurrentTests"));
+
+        second.close();
+
+        assertEquals(registered, mBeanServer.isRegistered(objectName));
+    }
+
+    public void testTestsAreCountedAsTheyRun() throws Exception {
+        SmokeTestMetrics metrics    = SmokeTestMetrics.getInstance();
+        AtomicLong maxRunning       = new AtomicLong();
+
+        long completedBefore        = metrics.getTestsCompleted();
+        long passedBefore           = metrics.getTestsPassed();
+        long failedBefore           = metrics.getTestsFailed();
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 4 ; i++) {
+            smokeTestStrategies.add(new ObservingStrategy("M" + i, i <= 2 ? "backend" : null, 4 != i, maxRunning));
+        }
+
+        SmokeTestContext.runSmokeTests(smokeTestStrategies, 2, 10);
+
+        // While running the tests could see themselves through JMX, and everything is accounted for afterwards
+        assertTrue(maxRunning.get() >= 1);
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(4, metrics.getTestsCompleted() - completedBefore);
+        assertEquals(3, metrics.getTestsPassed() - passedBefore);
+        assertEquals(1, metrics.getTestsFailed() - failedBefore);
+        assertEquals(0, metrics.getTestsQueued());
+        assertEquals(0, metrics.getTestsRunning());
+
+        assertTrue(metrics.getLatenciesByGroup().get("backend").getCount() >= 2);
+        assertTrue(metrics.getLatenciesByGroup().get(SmokeTestMetrics.NO_GROUP).getCount() >= 2);
+        assertTrue(metrics.getLatenciesByGroup().get("backend").getP50Millis() >= 50);
+    }
+
+    /**
+     * Reads the metrics (through JMX) while it runs.
+     */
+    static class ObservingStrategy extends BaseSmokeTestStrategy {
+        private final boolean pass;
+        private final AtomicLong maxRunning;
+
+        ObservingStrategy(final String id, final String group, final boolean pass, final AtomicLong maxRunning) {
+            this.id         = id;
+            this.pass       = pass;
+            this.maxRunning = maxRunning;
+
+            setGroup(group);
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            try {
+                MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName   = new ObjectName(SmokeTestMetrics.OBJECT_NAME);
+
+                long running = (Long)mBeanServer.getAttribute(objectName, "TestsRunning");
+                maxRunning.accumulateAndGet(running, Math::max);
+
+                assertTrue(mBeanServer.getAttribute(objectName, "LatenciesByGroup") instanceof TabularData);
+
+                Thread.sleep(100);
+            } catch (Exception e) {
+                throw new SmokeTestException(e);
+            }
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            SmokeTestResult.STATE state = pass ? SmokeTestResult.STATE.USER_PASS : SmokeTestResult.STATE.USER_FAIL;
+
+            return new SmokeTestResult(id, state, 0, "");
+        }
+    }
+}
@@ -0,0 +1,810 @@
+package com.pearceful.util;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class SmokeTestRunnerTest extends TestCase {
+    public void testRepeatedRunsShareTheExecutor() throws SmokeTestException {
+        List<SmokeTestResult> streamedResults   = new ArrayList<>();
+        Set<String> threadNames                 = new LinkedHashSet<>();
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 4 ; i++) {
+            smokeTestStrategies.add(new ThreadRecordingStrategy("R" + i, threadNames));
+        }
+
+        SmokeTestRunner runner =
+                SmokeTestRunner.builder()
+                        .maxConcurrentTests(2)
+                        .timeoutInSeconds(5)
+                        .listener(streamedResults::add)
+                        .build();
+
+        try {
+            for(int run = 0 ; run < 3 ; run++) {
+                List<SmokeTestResult> results = runner.run(smokeTestStrategies);
+
+                assertEquals(4, results.size());
+                assertEquals("R1", results.get(0).getId());
+                assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(3).getState());
+            }
+        } finally {
+            runner.close();
+        }
+
+        // Every result of every run went to the listener, all on the same two pool threads
+        assertEquals(12, streamedResults.size());
+        assertTrue(threadNames.size() <= 2);
+        assertTrue(runner.isClosed());
+    }
+
+    public void testSlowListenersDoNotHoldUpTheTests() throws SmokeTestException {
+        List<String> events         = Collections.synchronizedList(new ArrayList<>());
+        List<Long> arrivedNs        = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 4 ; i++) {
+            smokeTestStrategies.add(
+                    new FixedStateStrategy("L" + i, SmokeTestResult.STATE.USER_PASS, new ArrayList<>()));
+        }
+
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder().maxConcurrentTests(4).listener(new SlowListener(events)).build()) {
+
+            long startNs = System.nanoTime();
+
+            runner.run(smokeTestStrategies, smokeTestResult -> arrivedNs.add(System.nanoTime() - startNs));
+
+            long elapsedNs = System.nanoTime() - startNs;
+
+            // The results arrived long before the slow listener had seen them, but the run waited for it
+            assertEquals(4, arrivedNs.size());
+            assertTrue(arrivedNs.get(3) < TimeUnit.MILLISECONDS.toNanos(400));
+            assertTrue(elapsedNs >= TimeUnit.MILLISECONDS.toNanos(400));
+            assertEquals(0, runner.getDroppedListenerEvents());
+        }
+
+        assertEquals(10, events.size());
+        assertEquals("start 4", events.get(0));
+        assertTrue(events.get(1).startsWith("test L"));
+        assertTrue(events.get(5).startsWith("complete L"));
+        assertEquals("run", events.get(9));
+    }
+
+    public void testAFullListenerQueueDropsEvents() throws SmokeTestException {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 4 ; i++) {
+            smokeTestStrategies.add(
+                    new FixedStateStrategy("D" + i, SmokeTestResult.STATE.USER_PASS, new ArrayList<>()));
+        }
+
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder()
+                            .listener(new SlowListener(events))
+                            .listenerQueueCapacity(1)
+                            .build()) {
+
+            List<SmokeTestResult> results = runner.run(smokeTestStrategies);
+
+            // Every result was still handed back, only the listener missed some
+            assertEquals(4, results.size());
+            assertTrue(runner.getDroppedListenerEvents() > 0);
+            assertEquals(10, events.size() + runner.getDroppedListenerEvents());
+        }
+    }
+
+    public void testLifecycleEventsAreNeverDropped() throws SmokeTestException {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 8 ; i++) {
+            smokeTestStrategies.add(
+                    new FixedStateStrategy("R" + i, SmokeTestResult.STATE.USER_PASS, new ArrayList<>()));
+        }
+
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder()
+                            .maxConcurrentTests(8)
+                            .listener(new SlowListener(events))
+                            .listenerQueueCapacity(1)
+                            .build()) {
+
+            runner.run(smokeTestStrategies);
+
+            // The queue was full, but only the tests' events were dropped
+            assertTrue(runner.getDroppedListenerEvents() > 0);
+        }
+
+        assertEquals("start 8", events.get(0));
+        assertEquals("run", events.get(events.size() - 1));
+    }
+
+    public void testListenersAreDiscovered() throws SmokeTestException {
+        int runsBefore = DiscoveredListener.RUNS.get();
+
+        try(SmokeTestRunner runner = SmokeTestRunner.builder().discoverListeners().build()) {
+            runner.run(Collections.singleton(
+                    new FixedStateStrategy("S1", SmokeTestResult.STATE.USER_PASS, new ArrayList<>())));
+        }
+
+        assertEquals(runsBefore + 1, DiscoveredListener.RUNS.get());
+    }
+
+    public void testRunAfterCloseFails() throws SmokeTestException {
+        SmokeTestRunner runner = SmokeTestRunner.builder().build();
+        runner.close();
+
+        try {
+            runner.run(new LinkedHashSet<>());
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    public void testBuilderSanityChecks() {
+        try {
+            SmokeTestRunner.builder().maxConcurrentTests(0).build();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            SmokeTestRunner.builder().timeoutInSeconds(0).build();
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testDependentsWaitForPrerequisites() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(new FixedStateStrategy("C", SmokeTestResult.STATE.USER_PASS, executed, "A"));
+        smokeTestStrategies.add(new FixedStateStrategy("A", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("B", SmokeTestResult.STATE.USER_FAIL, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("D", SmokeTestResult.STATE.USER_PASS, executed, "A", "B"));
+        smokeTestStrategies.add(new FixedStateStrategy("E", SmokeTestResult.STATE.USER_PASS, executed, "D"));
+        smokeTestStrategies.add(new FixedStateStrategy("F", SmokeTestResult.STATE.USER_PASS, executed, "NOT_IN_RUN"));
+
+        List<SmokeTestResult> results;
+
+        try(SmokeTestRunner runner = SmokeTestRunner.builder().maxConcurrentTests(4).timeoutInSeconds(5).build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(0).getState());
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(1).getState());
+        assertEquals(SmokeTestResult.STATE.USER_FAIL, results.get(2).getState());
+        assertEquals(SmokeTestResult.STATE.SKIPPED, results.get(3).getState());
+        assertEquals(SmokeTestResult.STATE.SKIPPED, results.get(4).getState());
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(5).getState());
+
+        // C only ran once A had passed, D and E were never run
+        assertTrue(executed.indexOf("A") < executed.indexOf("C"));
+        assertFalse(executed.contains("D"));
+        assertFalse(executed.contains("E"));
+    }
+
+    public void testDependencyCycleIsReported() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(new FixedStateStrategy("X", SmokeTestResult.STATE.USER_PASS, executed, "Y"));
+        smokeTestStrategies.add(new FixedStateStrategy("Y", SmokeTestResult.STATE.USER_PASS, executed, "X"));
+        smokeTestStrategies.add(new FixedStateStrategy("Z", SmokeTestResult.STATE.USER_PASS, executed));
+
+        List<SmokeTestResult> results =
+                SmokeTestContext.runSmokeTests(smokeTestStrategies, 2, 5);
+
+        assertEquals(SmokeTestResult.STATE.EXEC_ERROR, results.get(0).getState());
+        assertTrue(results.get(0).getMessage().contains("dependency cycle"));
+        assertEquals(SmokeTestResult.STATE.EXEC_ERROR, results.get(1).getState());
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(2).getState());
+        assertEquals(Collections.singletonList("Z"), executed);
+    }
+
+    public void testLongestExpectedTestsStartFirst() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        DurationHistory durationHistory = new DurationHistory(0);
+        durationHistory.record(new SmokeTestResult("SHORT", SmokeTestResult.STATE.USER_PASS, 10, "pass"));
+        durationHistory.record(new SmokeTestResult("MEDIUM", SmokeTestResult.STATE.USER_PASS, 50, "pass"));
+        durationHistory.record(new SmokeTestResult("LONG", SmokeTestResult.STATE.USER_PASS, 90, "pass"));
+        durationHistory.record(new SmokeTestResult("BEFORE_LONG", SmokeTestResult.STATE.USER_PASS, 5, "pass"));
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(new FixedStateStrategy("SHORT", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("NEW", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("MEDIUM", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("LONG", SmokeTestResult.STATE.USER_PASS, executed, "BEFORE_LONG"));
+        smokeTestStrategies.add(new FixedStateStrategy("BEFORE_LONG", SmokeTestResult.STATE.USER_PASS, executed));
+
+        // One thread, so the tests run in the order they are started
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder()
+                            .maxConcurrentTests(1)
+                            .timeoutInSeconds(5)
+                            .durationHistory(durationHistory)
+                            .build()) {
+            runner.run(smokeTestStrategies);
+        }
+
+        // BEFORE_LONG is on the longest (critical) path, the new test's estimate is 0
+        assertEquals(Arrays.asList("BEFORE_LONG", "MEDIUM", "SHORT", "NEW", "LONG"), executed);
+    }
+
+    public void testLongDependencyChain() throws SmokeTestException {
+        final int chainLength = 20000;
+
+        DurationHistory durationHistory = new DurationHistory(0);
+        durationHistory.record(new SmokeTestResult("LINK0", SmokeTestResult.STATE.USER_PASS, 10, "pass"));
+
+        for(DurationHistory history : new DurationHistory[] {null, durationHistory}) {
+            List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+            // Passed in last link first, each link depends on the one before it
+            Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+            for(int link = chainLength - 1 ; link > 0 ; link--) {
+                smokeTestStrategies.add(
+                        new FixedStateStrategy("LINK" + link, SmokeTestResult.STATE.USER_PASS, executed, "LINK" + (link - 1)));
+            }
+            smokeTestStrategies.add(new FixedStateStrategy("LINK0", SmokeTestResult.STATE.USER_PASS, executed));
+
+            List<SmokeTestResult> results;
+
+            try(SmokeTestRunner runner =
+                        SmokeTestRunner.builder()
+                                .maxConcurrentTests(2)
+                                .timeoutInSeconds(60)
+                                .durationHistory(history)
+                                .build()) {
+                results = runner.run(smokeTestStrategies);
+            }
+
+            assertEquals(chainLength, results.size());
+            for(SmokeTestResult result : results) {
+                assertEquals(result.getId(), SmokeTestResult.STATE.USER_PASS, result.getState());
+            }
+
+            assertEquals("LINK0", executed.get(0));
+            assertEquals("LINK" + (chainLength - 1), executed.get(chainLength - 1));
+        }
+    }
+
+    public void testFailFastAbortsTheRun() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(new FixedStateStrategy("FAIL", SmokeTestResult.STATE.USER_FAIL, executed));
+        smokeTestStrategies.add(new SleepingStrategy("SLOW", 10));
+        smokeTestStrategies.add(new FixedStateStrategy("LATER1", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("LATER2", SmokeTestResult.STATE.USER_PASS, executed));
+
+        long startNs = System.nanoTime();
+        List<SmokeTestResult> results;
+
+        // One thread, so SLOW is running (or about to) and the LATER tests are queued when FAIL fails
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder().maxConcurrentTests(1).timeoutInSeconds(30).failFast().build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        long elapsedNs = System.nanoTime() - startNs;
+
+        assertEquals(SmokeTestResult.STATE.USER_FAIL, results.get(0).getState());
+        assertEquals(SmokeTestResult.STATE.ABORTED, results.get(1).getState());
+        assertEquals(SmokeTestResult.STATE.ABORTED, results.get(2).getState());
+        assertEquals(SmokeTestResult.STATE.ABORTED, results.get(3).getState());
+        assertEquals(Collections.singletonList("FAIL"), executed);
+        assertTrue(elapsedNs < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    public void testFailurePercentThreshold() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(new FixedStateStrategy("F1", SmokeTestResult.STATE.USER_FAIL, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("P1", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("F2", SmokeTestResult.STATE.USER_ERROR, executed));
+        smokeTestStrategies.add(new SleepingStrategy("SLOW", 10));
+        smokeTestStrategies.add(new FixedStateStrategy("P2", SmokeTestResult.STATE.USER_PASS, executed));
+
+        List<SmokeTestResult> results;
+
+        // One thread, so the run is aborted on the 2nd failure (40% of 5), while SLOW holds up P2
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder().maxConcurrentTests(1).timeoutInSeconds(30).maxFailurePercent(40).build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(1).getState());
+        assertEquals(SmokeTestResult.STATE.USER_ERROR, results.get(2).getState());
+        assertEquals(SmokeTestResult.STATE.ABORTED, results.get(3).getState());
+        assertEquals(SmokeTestResult.STATE.ABORTED, results.get(4).getState());
+        assertFalse(executed.contains("P2"));
+    }
+
+    public void testRetriesDoNotHoldAThreadWhileWaiting() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        FlakyStrategy flaky = new FlakyStrategy("FLAKY", 2, executed);
+        flaky.setRetryPolicy(new RetryPolicy(3, 200, 1.0, 200, 0.0));
+
+        FlakyStrategy broken = new FlakyStrategy("BROKEN", 10, executed);
+        broken.setRetryPolicy(new RetryPolicy(2, 10, 1.0, 10, 0.0));
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(flaky);
+        smokeTestStrategies.add(new FixedStateStrategy("OTHER", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(broken);
+
+        List<SmokeTestResult> results;
+
+        // One thread, OTHER runs while FLAKY waits to be retried
+        try(SmokeTestRunner runner = SmokeTestRunner.builder().maxConcurrentTests(1).timeoutInSeconds(5).build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(0).getState());
+        assertEquals(3, results.get(0).getAttempts());
+        assertEquals(3, results.get(0).getAttemptElapsedNanoSeconds().length);
+        assertEquals(1, results.get(1).getAttempts());
+        assertEquals(SmokeTestResult.STATE.USER_FAIL, results.get(2).getState());
+        assertEquals(2, results.get(2).getAttempts());
+
+        assertEquals("FLAKY", executed.get(0));
+        assertEquals("OTHER", executed.get(1));
+        assertEquals(3, Collections.frequency(executed, "FLAKY"));
+    }
+
+    public void testTestsThatCouldNotBeExecutedAreRetried() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        FlakyStrategy flaky = new FlakyStrategy("FLAKY", 1, SmokeTestResult.STATE.EXEC_ERROR, executed);
+        flaky.setRetryPolicy(new RetryPolicy(2, 10, 1.0, 10, 0.0));
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(flaky);
+
+        List<SmokeTestResult> results;
+
+        try(SmokeTestRunner runner = SmokeTestRunner.builder().maxConcurrentTests(1).timeoutInSeconds(5).build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        // e.g. the process could not be started the first time
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(0).getState());
+        assertEquals(2, results.get(0).getAttempts());
+    }
+
+    public void testGroupLimitsInFlightTests() throws SmokeTestException {
+        Map<String, Integer> running        = new HashMap<>();
+        Map<String, Integer> maxRunning     = new HashMap<>();
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 6 ; i++) {
+            smokeTestStrategies.add(new GroupStrategy("DB" + i, "db", running, maxRunning));
+        }
+        for(int i = 1 ; i <= 6 ; i++) {
+            smokeTestStrategies.add(new GroupStrategy("LOCAL" + i, "local", running, maxRunning));
+        }
+
+        List<SmokeTestResult> results;
+        long startNs = System.nanoTime();
+
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder()
+                            .maxConcurrentTests(8)
+                            .timeoutInSeconds(10)
+                            .groupLimit("db", 2)
+                            .build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        long elapsedMs = (System.nanoTime() - startNs) / 1000000;
+
+        for(SmokeTestResult result : results) {
+            assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+        }
+
+        // Only 2 db tests at once, but the local tests ran alongside them
+        assertEquals(2, (int)maxRunning.get("db"));
+        assertEquals(6, (int)maxRunning.get("local"));
+        assertTrue(elapsedMs >= 600);
+    }
+
+    public void testAdaptiveConcurrencyStaysWithinItsLimits() throws SmokeTestException {
+        Map<String, Integer> running        = new HashMap<>();
+        Map<String, Integer> maxRunning     = new HashMap<>();
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 12 ; i++) {
+            smokeTestStrategies.add(new GroupStrategy("ID" + i, "all", running, maxRunning));
+        }
+
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder()
+                            .maxConcurrentTests(8)
+                            .timeoutInSeconds(10)
+                            .adaptiveConcurrency(true)
+                            .build()) {
+            List<SmokeTestResult> results = runner.run(smokeTestStrategies);
+
+            for(SmokeTestResult result : results) {
+                assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+            }
+
+            AdaptiveConcurrencyLimit adaptiveLimit = runner.getAdaptiveConcurrencyLimit();
+
+            // Started small, never ran more tests at once than the limit allowed
+            assertTrue(adaptiveLimit.getLowestLimit() <= AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+            assertTrue(adaptiveLimit.getHighestLimit() <= 8);
+            assertTrue(maxRunning.get("all") <= adaptiveLimit.getHighestLimit());
+        }
+    }
+
+    public void testRepeatedTestsReportTheirLatencies() throws SmokeTestException {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+        smokeTestStrategies.add(new FixedStateStrategy("PASS", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("FAIL", SmokeTestResult.STATE.USER_FAIL, executed));
+
+        List<SmokeTestResult> results;
+
+        try(SmokeTestRunner runner =
+                    SmokeTestRunner.builder()
+                            .maxConcurrentTests(2)
+                            .timeoutInSeconds(5)
+                            .repeat(2, 5)
+                            .build()) {
+            results = runner.run(smokeTestStrategies);
+        }
+
+        // 2 warm-up then 5 timed runs, a failure stops straight away (during warm-up, so nothing timed)
+        assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(0).getState());
+        assertEquals(7, Collections.frequency(executed, "PASS"));
+        assertEquals(5, results.get(0).getLatencyHistogram().getCount());
+
+        assertEquals(SmokeTestResult.STATE.USER_FAIL, results.get(1).getState());
+        assertEquals(1, Collections.frequency(executed, "FAIL"));
+        assertEquals(0, results.get(1).getLatencyHistogram().getCount());
+    }
+
+    public void testStreamedTestsArePulledLazily() throws SmokeTestException {
+        List<String> executed   = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger pulled    = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger maxAhead  = new AtomicInteger();
+
+        // The tests are only created as they are pulled
+        Iterator<SmokeTestStrategy> smokeTestStrategies = new Iterator<SmokeTestStrategy>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 1000;
+            }
+
+            @Override
+            public SmokeTestStrategy next() {
+                int id = pulled.incrementAndGet();
+                maxAhead.accumulateAndGet(id - completed.get(), Math::max);
+
+                return new FixedStateStrategy("S" + id, SmokeTestResult.STATE.USER_PASS, executed);
+            }
+        };
+
+        try(SmokeTestRunner runner = SmokeTestRunner.builder().maxConcurrentTests(4).timeoutInSeconds(10).build()) {
+            runner.run(smokeTestStrategies, smokeTestResult -> completed.incrementAndGet());
+        }
+
+        // Never more than 2 per concurrent test were pulled ahead of their results
+        assertEquals(1000, completed.get());
+        assertEquals(1000, executed.size());
+        assertTrue(maxAhead.get() <= 8);
+    }
+
+    public void testStreamedTestsInFlightAreBoundedInEveryMode() throws SmokeTestException {
+        for(SmokeTestContext.EXECUTOR_MODE executorMode : SmokeTestContext.EXECUTOR_MODE.values()) {
+            List<String> executed   = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger pulled    = new AtomicInteger();
+            AtomicInteger completed = new AtomicInteger();
+            AtomicInteger maxAhead  = new AtomicInteger();
+
+            Iterator<SmokeTestStrategy> smokeTestStrategies = new Iterator<SmokeTestStrategy>() {
+                @Override
+                public boolean hasNext() {
+                    return pulled.get() < 200;
+                }
+
+                @Override
+                public SmokeTestStrategy next() {
+                    int id = pulled.incrementAndGet();
+                    maxAhead.accumulateAndGet(id - completed.get(), Math::max);
+
+                    return new FixedStateStrategy("S" + id, SmokeTestResult.STATE.USER_PASS, executed);
+                }
+            };
+
+            try(SmokeTestRunner runner = SmokeTestRunner.builder()
+                    .executorMode(executorMode)
+                    .maxConcurrentTests(4)
+                    .maxStreamedInFlight(3)
+                    .timeoutInSeconds(10)
+                    .build()) {
+
+                runner.run(smokeTestStrategies, smokeTestResult -> completed.incrementAndGet());
+            }
+
+            // Never more pulled ahead of their results than the explicit bound, whatever the mode
+            assertEquals(executorMode.name(), 200, completed.get());
+            assertTrue(executorMode.name() + " " + maxAhead.get(), maxAhead.get() <= 3);
+        }
+    }
+
+    public void testStreamedDependenciesAndDuplicates() throws SmokeTestException {
+        List<String> executed           = Collections.synchronizedList(new ArrayList<>());
+        List<SmokeTestResult> results   = new ArrayList<>();
+
+        List<SmokeTestStrategy> smokeTestStrategies = new ArrayList<>();
+        smokeTestStrategies.add(new FixedStateStrategy("A", SmokeTestResult.STATE.USER_PASS, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("B", SmokeTestResult.STATE.USER_FAIL, executed));
+        smokeTestStrategies.add(new FixedStateStrategy("C", SmokeTestResult.STATE.USER_PASS, executed, "A"));
+        smokeTestStrategies.add(new FixedStateStrategy("D", SmokeTestResult.STATE.USER_PASS, executed, "B"));
+        smokeTestStrategies.add(new FixedStateStrategy("E", SmokeTestResult.STATE.USER_PASS, executed, "D"));
+        smokeTestStrategies.add(new FixedStateStrategy("A", SmokeTestResult.STATE.USER_PASS, executed));
+
+        SmokeTestContext.runSmokeTests(
+                smokeTestStrategies.stream(),
+                SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS,
+                4,
+                5,
+                results::add);
+
+        Map<String, SmokeTestResult.STATE> states = new HashMap<>();
+        for(SmokeTestResult result : results) {
+            states.merge(result.getId(), result.getState(), (first, second) -> second);
+        }
+
+        // C waited for A, D and E were skipped, and the second A was never run
+        assertEquals(6, results.size());
+        assertEquals(SmokeTestResult.STATE.USER_PASS, states.get("C"));
+        assertEquals(SmokeTestResult.STATE.SKIPPED, states.get("D"));
+        assertEquals(SmokeTestResult.STATE.SKIPPED, states.get("E"));
+        assertEquals(SmokeTestResult.STATE.EXEC_ERROR, states.get("A"));
+        assertTrue(executed.indexOf("A") < executed.indexOf("C"));
+        assertEquals(1, Collections.frequency(executed, "A"));
+        assertFalse(executed.contains("D"));
+    }
+
+    /**
+     * A strategy in a concurrency group that takes 200mS, recording how many of it's group ran at once.
+     */
+    static class GroupStrategy extends BaseSmokeTestStrategy {
+        private final Map<String, Integer> running;
+        private final Map<String, Integer> maxRunning;
+
+        GroupStrategy(
+                final String id,
+                final String group,
+                final Map<String, Integer> running,
+                final Map<String, Integer> maxRunning) {
+            this.id         = id;
+            this.running    = running;
+            this.maxRunning = maxRunning;
+
+            setGroup(group);
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            synchronized (running) {
+                int now = running.merge(group, 1, Integer::sum);
+                maxRunning.merge(group, now, Math::max);
+            }
+
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new SmokeTestException(e);
+            } finally {
+                synchronized (running) {
+                    running.merge(group, -1, Integer::sum);
+                }
+            }
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            return new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "ran");
+        }
+    }
+
+    /**
+     * A strategy that fails (or errors) the first so many times it is run, then passes.
+     */
+    static class FlakyStrategy extends BaseSmokeTestStrategy {
+        private final int failures;
+        private final SmokeTestResult.STATE failedState;
+        private final List<String> executed;
+        private int executions = 0;
+
+        FlakyStrategy(final String id, final int failures, final List<String> executed) {
+            this(id, failures, SmokeTestResult.STATE.USER_FAIL, executed);
+        }
+
+        FlakyStrategy(
+                final String id,
+                final int failures,
+                final SmokeTestResult.STATE failedState,
+                final List<String> executed) {
+
+            this.id             = id;
+            this.failures       = failures;
+            this.failedState    = failedState;
+            this.executed       = executed;
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            executions++;
+            executed.add(id);
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            if(executions <= failures) {
+                return new SmokeTestResult(id, failedState, 0, "attempt " + executions);
+            }
+
+            return new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "attempt " + executions);
+        }
+    }
+
+    /**
+     * A strategy that sleeps, until it is interrupted.
+     */
+    static class SleepingStrategy extends BaseSmokeTestStrategy {
+        private final int delayInSeconds;
+
+        SleepingStrategy(final String id, final int delayInSeconds) {
+            this.id             = id;
+            this.delayInSeconds = delayInSeconds;
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            try {
+                Thread.sleep(1000L * delayInSeconds);
+            } catch (InterruptedException e) {
+                throw new SmokeTestException(e);
+            }
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            return new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "slept");
+        }
+    }
+
+    /**
+     * A strategy that records that it was executed, and returns a fixed state.
+     */
+    static class FixedStateStrategy extends BaseSmokeTestStrategy {
+        private final SmokeTestResult.STATE state;
+        private final List<String> executed;
+
+        FixedStateStrategy(
+                final String id,
+                final SmokeTestResult.STATE state,
+                final List<String> executed,
+                final String... dependsOn) {
+            this.id         = id;
+            this.state      = state;
+            this.executed   = executed;
+
+            setDependsOn(Arrays.asList(dependsOn));
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            executed.add(id);
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            return new SmokeTestResult(id, state, 0, state.toString());
+        }
+    }
+
+    /**
+     * A listener that takes it's time over each event.
+     */
+    static class SlowListener implements SmokeTestListener {
+        private final List<String> events;
+
+        SlowListener(final List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onStart(final Set<SmokeTestStrategy> smokeTestStrategies) {
+            record("start " + smokeTestStrategies.size());
+        }
+
+        @Override
+        public void onTestStart(final SmokeTestStrategy smokeTestStrategy) {
+            record("test " + smokeTestStrategy.getId());
+        }
+
+        @Override
+        public void onTestComplete(final SmokeTestResult smokeTestResult) {
+            record("complete " + smokeTestResult.getId());
+        }
+
+        @Override
+        public void onRunComplete(final long elapsedNs) {
+            record("run");
+        }
+
+        private void record(final String event) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            events.add(event);
+        }
+    }
+
+    /**
+     * Named in src/test/resources/META-INF/services/com.pearceful.util.SmokeTestListener, counts the runs it sees.
+     */
+    public static class DiscoveredListener implements SmokeTestListener {
+        static final AtomicInteger RUNS = new AtomicInteger();
+
+        @Override
+        public void onTestComplete(final SmokeTestResult smokeTestResult) {
+        }
+
+        @Override
+        public void onRunComplete(final long elapsedNs) {
+            RUNS.incrementAndGet();
+        }
+    }
+
+    /**
+     * A strategy that records the name of the thread it was executed on.
+     */
+    static class ThreadRecordingStrategy extends BaseSmokeTestStrategy {
+        private final Set<String> threadNames;
+
+        ThreadRecordingStrategy(final String id, final Set<String> threadNames) {
+            this.id             = id;
+            this.threadNames    = threadNames;
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+            synchronized (threadNames) {
+                threadNames.add(Thread.currentThread().getName());
+            }
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            return new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "ran");
+        }
+    }
+}
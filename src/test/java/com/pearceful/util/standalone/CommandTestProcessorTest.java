@@ -0,0 +1,250 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestContext;
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestStrategy;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class CommandTestProcessorTest extends TestCase {
+    public void testCommandPasses() throws SmokeTestException {
+        TextLineTestProcessor processor = new TextLineTestProcessor(1, "echo hello", "DEV", null);
+
+        processor.execute();
+        SmokeTestResult result = processor.validate();
+
+        assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+        assertTrue(result.getMessage().contains("hello"));
+    }
+
+    public void testCommandFails() throws SmokeTestException {
+        TextLineTestProcessor processor = new TextLineTestProcessor(1, "exit 3", "DEV", null);
+
+        processor.execute();
+
+        assertEquals(SmokeTestResult.STATE.USER_FAIL, processor.validate().getState());
+    }
+
+    public void testResultsBreakTheirTimeDownByPhase() throws SmokeTestException {
+        Set<SmokeTestStrategy> commands = new LinkedHashSet<>();
+        commands.add(new TextLineTestProcessor(1, "echo phases", "DEV", null));
+        commands.add(new TextLineTestProcessor(2, "echo phases", "DEV", null));
+
+        SmokeTestContext.EXECUTOR_MODE[] executorModes =
+                {SmokeTestContext.EXECUTOR_MODE.PLATFORM_THREADS, SmokeTestContext.EXECUTOR_MODE.ASYNC};
+
+        for(SmokeTestContext.EXECUTOR_MODE executorMode : executorModes) {
+            for(SmokeTestResult result : SmokeTestContext.runSmokeTests(commands, executorMode, 1, 30)) {
+                Map<SmokeTestResult.PHASE, Long> phases = result.getPhaseNanoSeconds();
+
+                assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+                assertTrue(phases.containsKey(SmokeTestResult.PHASE.QUEUE_WAIT));
+                assertTrue(phases.containsKey(SmokeTestResult.PHASE.SPAWN));
+                assertTrue(phases.containsKey(SmokeTestResult.PHASE.RUN));
+                assertTrue(phases.containsKey(SmokeTestResult.PHASE.DRAIN));
+                assertTrue(phases.get(SmokeTestResult.PHASE.RUN) <= result.getElapsedNanoSeconds());
+            }
+        }
+    }
+
+    public void testCommandWithMoreOutputThanThePipeBuffer() throws SmokeTestException {
+        if(ConfigProcessor.onWindows()) return;
+
+        TextLineTestProcessor processor =
+                new TextLineTestProcessor(1, "head -c 1000000 /dev/zero | tr '\\0' x; echo; echo done", "DEV", null, 10);
+        processor.setOutputCapture(1024, null);
+
+        processor.execute();
+        SmokeTestResult result = processor.validate();
+
+        assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+        assertTrue(result.getMessage().contains("bytes skipped"));
+        assertTrue(result.getMessage().contains("done"));
+    }
+
+    public void testEachExecutionSpillsToItsOwnFiles() throws Exception {
+        if(ConfigProcessor.onWindows()) return;
+
+        Path spillDirectory             = Files.createTempDirectory("st-spill");
+        TextLineTestProcessor processor = new TextLineTestProcessor(1, "echo $RANDOM$RANDOM", "DEV", null);
+        processor.setOutputCapture(1024, spillDirectory);
+
+        try {
+            processor.execute();
+            String first = processor.validate().getMessage();
+
+            processor.copy().execute();
+            processor.execute();
+            String second = processor.validate().getMessage();
+
+            ////////////////////////////////////////////////////////////
+            // The same id, but none of the executions share their files
+            assertFalse(first.equals(second));
+            assertEquals(6, spillDirectory.toFile().list().length);
+
+            String stdoutFile = first.replaceAll("(?s).*outputFiles \\[([^,]+),.*", "$1");
+            assertTrue(stdoutFile.startsWith(spillDirectory.resolve("1.").toString()));
+            assertTrue(first.contains("stdout [" + new String(Files.readAllBytes(Paths.get(stdoutFile))).trim() + "]"));
+        } finally {
+            for(File file : spillDirectory.toFile().listFiles()) {
+                Files.delete(file.toPath());
+            }
+
+            Files.delete(spillDirectory);
+        }
+    }
+
+    public void testCommandTimesOutWithPartialOutput() throws SmokeTestException {
+        if(ConfigProcessor.onWindows()) return;
+
+        long timeoutSeconds = 1;
+
+        TextLineTestProcessor processor =
+                new TextLineTestProcessor(1, "echo partial; sleep 10", "DEV", null, timeoutSeconds);
+
+        processor.execute();
+        SmokeTestResult result = processor.validate();
+
+        assertEquals(SmokeTestResult.STATE.TIMEOUT, result.getState());
+        assertTrue(result.getMessage().startsWith("TIMEOUT"));
+        assertTrue(result.getMessage().contains("partial"));
+        assertTrue(result.getElapsedNanoSeconds() >= TimeUnit.SECONDS.toNanos(timeoutSeconds));
+        assertTrue(result.getElapsedNanoSeconds() < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    public void testAsyncCommandsRunWithoutBlockingThreads() throws SmokeTestException {
+        if(ConfigProcessor.onWindows()) return;
+
+        int commandCount = 20;
+
+        // Far more one second commands than supervisor threads, they should still all run at once
+        Set<SmokeTestStrategy> commands = new LinkedHashSet<>();
+        for(int i = 1 ; i <= commandCount ; i++) {
+            commands.add(new TextLineTestProcessor(i, "sleep 1; echo async" + i, "DEV", null));
+        }
+
+        long startNs = System.nanoTime();
+
+        List<SmokeTestResult> results =
+                SmokeTestContext.runSmokeTests(commands, SmokeTestContext.EXECUTOR_MODE.ASYNC, commandCount, 30);
+
+        long elapsedNs = System.nanoTime() - startNs;
+
+        assertEquals(commandCount, results.size());
+
+        for(int i = 1 ; i <= commandCount ; i++) {
+            SmokeTestResult result = results.get(i - 1);
+
+            assertEquals("" + i, result.getId());
+            assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+            assertTrue(result.getMessage().contains("async" + i));
+        }
+
+        assertTrue(elapsedNs < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    public void testAsyncCommandOutputIsWrittenToFiles() throws Exception {
+        if(ConfigProcessor.onWindows()) return;
+
+        Path spillDirectory = Files.createTempDirectory("st-spill");
+        String cmdLine      = "head -c 1000000 /dev/zero | tr '\\0' x; echo; echo done; echo oops >&2";
+
+        Set<SmokeTestStrategy> commands = new LinkedHashSet<>();
+        commands.add(new TextLineTestProcessor(1, cmdLine, "DEV", null, 10));
+        commands.add(new TextLineTestProcessor(2, cmdLine, "DEV", null, 10));
+
+        ((CommandTestProcessor)commands.iterator().next()).setOutputCapture(1024, spillDirectory);
+
+        try {
+            ///////////////////////////////////////////////////////////////////
+            // Just the head and tail are read back, the spill file is complete
+            for(SmokeTestResult result :
+                    SmokeTestContext.runSmokeTests(commands, SmokeTestContext.EXECUTOR_MODE.ASYNC, 2, 30)) {
+                assertEquals(SmokeTestResult.STATE.USER_PASS, result.getState());
+                assertTrue(result.getMessage().contains("bytes skipped"));
+                assertTrue(result.getMessage().contains("done], stderr [oops]"));
+            }
+
+            String[] spilled = spillDirectory.toFile().list();
+            Arrays.sort(spilled);
+
+            assertEquals(2, spilled.length);
+            assertTrue(spilled[1].endsWith(".stdout"));
+            assertEquals(1000006, Files.size(spillDirectory.resolve(spilled[1])));
+        } finally {
+            for(File file : spillDirectory.toFile().listFiles()) {
+                Files.delete(file.toPath());
+            }
+
+            Files.delete(spillDirectory);
+        }
+    }
+
+    public void testRecentPassIsNotRunAgain() throws Exception {
+        if(ConfigProcessor.onWindows()) return;
+
+        Path cacheFile  = Files.createTempFile("st-cache", ".bin");
+        Path runCount   = Files.createTempFile("st-runs", ".txt");
+
+        try {
+            String cmdLine          = "echo run >> " + runCount;
+            ResultCache resultCache = ResultCache.load(cacheFile, 10);
+
+            TextLineTestProcessor processor = new TextLineTestProcessor(1, cmdLine, "DEV", null);
+            processor.setResultCache(resultCache, "DEV", 60);
+
+            processor.execute();
+            assertEquals(SmokeTestResult.STATE.USER_PASS, processor.validate().getState());
+
+            processor.execute();
+            SmokeTestResult result = processor.validate();
+
+            assertEquals(SmokeTestResult.STATE.CACHED_PASS, result.getState());
+            assertTrue(result.getMessage().startsWith("CACHED_PASS"));
+            assertEquals(1, Files.readAllLines(runCount).size());
+
+            // A different tag is a different test
+            TextLineTestProcessor uat = new TextLineTestProcessor(1, cmdLine, "UAT", null);
+            uat.setResultCache(resultCache, "UAT", 60);
+
+            uat.execute();
+            assertEquals(SmokeTestResult.STATE.USER_PASS, uat.validate().getState());
+            assertEquals(2, Files.readAllLines(runCount).size());
+        } finally {
+            Files.deleteIfExists(cacheFile);
+            Files.deleteIfExists(runCount);
+        }
+    }
+
+    public void testAsyncCommandTimesOut() throws Exception {
+        if(ConfigProcessor.onWindows()) return;
+
+        TextLineTestProcessor processor = new TextLineTestProcessor(1, "sleep 10", "DEV", null, 1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            SmokeTestResult result = processor.executeAsync(executor).get(5, TimeUnit.SECONDS);
+
+            assertEquals(SmokeTestResult.STATE.TIMEOUT, result.getState());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
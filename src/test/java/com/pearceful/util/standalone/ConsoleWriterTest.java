@@ -0,0 +1,62 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestResult;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class ConsoleWriterTest extends TestCase {
+    public void testEveryLineIsWrittenInTheOrderHandedOver() throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<Thread> workers        = new ArrayList<>();
+
+        try(ConsoleWriter consoleWriter = new ConsoleWriter(bytes)) {
+            for(int worker = 0 ; worker < 4 ; worker++) {
+                final String prefix = "W" + worker + ":";
+
+                Thread thread = new Thread(() -> {
+                    for(int i = 0 ; i < 1000 ; i++) {
+                        consoleWriter.onTestComplete(
+                                new SmokeTestResult(prefix + i, SmokeTestResult.STATE.USER_PASS, i, prefix + i));
+                    }
+                });
+
+                workers.add(thread);
+                thread.start();
+            }
+
+            for(Thread thread : workers) {
+                thread.join();
+            }
+        }
+
+        // Closing waits for the queued lines, each worker's lines are in the order it handed them over
+        String[] lines  = bytes.toString().split(System.lineSeparator());
+        int[] next      = new int[4];
+
+        assertEquals(4000, lines.length);
+
+        for(String line : lines) {
+            int worker = line.charAt(1) - '0';
+
+            assertEquals("W" + worker + ":" + next[worker]++, line);
+        }
+    }
+
+    public void testLinesAfterCloseAreNotWritten() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleWriter consoleWriter = new ConsoleWriter(bytes);
+
+        consoleWriter.println("PASS: before");
+        consoleWriter.close();
+        consoleWriter.println("PASS: after");
+        consoleWriter.close();
+
+        assertEquals("PASS: before" + System.lineSeparator(), bytes.toString());
+    }
+}
@@ -0,0 +1,72 @@
+package com.pearceful.util.standalone;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class OutputCaptureTest extends TestCase {
+    public void testSmallOutputKeptWhole() throws InterruptedException {
+        OutputCapture capture = OutputCapture.start(new ByteArrayInputStream("hello\nworld\n".getBytes()), 64, null);
+
+        assertTrue(capture.await(5, TimeUnit.SECONDS));
+        assertEquals("hello\nworld", capture.toString());
+        assertEquals(12, capture.getTotalBytes());
+    }
+
+    public void testLargeOutputKeepsHeadAndTail() throws InterruptedException {
+        StringBuilder output = new StringBuilder("HEAD");
+        for(int i = 0 ; i < 100000 ; i++) {
+            output.append('.');
+        }
+        output.append("TAIL");
+
+        OutputCapture capture = OutputCapture.start(new ByteArrayInputStream(output.toString().getBytes()), 16, null);
+
+        assertTrue(capture.await(5, TimeUnit.SECONDS));
+        assertEquals(100008, capture.getTotalBytes());
+
+        String captured = capture.toString();
+        assertTrue(captured.startsWith("HEAD...."));
+        assertTrue(captured.endsWith("....TAIL"));
+        assertTrue(captured.contains("[99992 bytes skipped]"));
+    }
+
+    public void testCompleteOutputSpilledToFile() throws Exception {
+        byte[] output       = new byte[1024 * 1024];
+        Path spillDirectory = Files.createTempDirectory("st-spill");
+        Path spillFile      = spillDirectory.resolve("1.stdout");
+
+        try {
+            OutputCapture capture = OutputCapture.start(new ByteArrayInputStream(output), 1024, spillFile);
+
+            assertTrue(capture.await(5, TimeUnit.SECONDS));
+            assertEquals(output.length, Files.size(spillFile));
+        } finally {
+            Files.deleteIfExists(spillFile);
+            Files.deleteIfExists(spillDirectory);
+        }
+    }
+
+    public void testSpillProblemsDoNotStopTheDraining() throws Exception {
+        byte[] output   = new byte[1024 * 1024];
+        Path notADir    = Files.createTempFile("st-spill", ".file");
+
+        try {
+            /////////////////////////////////////////////////////////////////
+            // The spill file cannot be created, the output is drained anyway
+            OutputCapture capture = OutputCapture.start(
+                    new ByteArrayInputStream(output), 1024, notADir.resolve("1.stdout"));
+
+            assertTrue(capture.await(5, TimeUnit.SECONDS));
+            assertEquals(output.length, capture.getTotalBytes());
+        } finally {
+            Files.deleteIfExists(notADir);
+        }
+    }
+}
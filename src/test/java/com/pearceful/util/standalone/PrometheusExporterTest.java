@@ -0,0 +1,111 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestResult;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class PrometheusExporterTest extends TestCase {
+    public void testResultsAreRenderedInTheTextFormat() {
+        PrometheusExporter exporter = new PrometheusExporter(null);
+
+        exporter.onTestComplete(result("1", SmokeTestResult.STATE.USER_PASS, 20));
+        exporter.onTestComplete(result("1", SmokeTestResult.STATE.USER_FAIL, 2000));
+        exporter.onTestComplete(result("say \"hi\"", SmokeTestResult.STATE.USER_PASS, 3));
+        exporter.runCompleted();
+
+        String text = exporter.render();
+
+        assertTrue(text.contains("# TYPE smoketest_duration_seconds histogram\n"));
+        assertTrue(text.contains("smoketest_last_pass{id=\"1\"} 0\n"));
+        assertTrue(text.contains("smoketest_last_state{id=\"1\",state=\"USER_FAIL\"} 1\n"));
+        assertTrue(text.contains("smoketest_last_duration_seconds{id=\"1\"} 2\n"));
+        assertTrue(text.contains("smoketest_last_pass{id=\"say \\\"hi\\\"\"} 1\n"));
+
+        // The buckets are cumulative
+        assertTrue(text.contains("smoketest_duration_seconds_bucket{id=\"1\",le=\"0.01\"} 0\n"));
+        assertTrue(text.contains("smoketest_duration_seconds_bucket{id=\"1\",le=\"0.025\"} 1\n"));
+        assertTrue(text.contains("smoketest_duration_seconds_bucket{id=\"1\",le=\"2.5\"} 2\n"));
+        assertTrue(text.contains("smoketest_duration_seconds_bucket{id=\"1\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("smoketest_duration_seconds_count{id=\"1\"} 2\n"));
+        assertTrue(text.contains("smoketest_duration_seconds_sum{id=\"1\"} 2.02\n"));
+
+        assertTrue(text.contains("smoketest_results_total{state=\"USER_PASS\"} 2\n"));
+        assertTrue(text.contains("smoketest_results_total{state=\"USER_FAIL\"} 1\n"));
+        assertTrue(text.contains("smoketest_runs_total 1\n"));
+    }
+
+    public void testMetricsAreServed() throws IOException {
+        try(PrometheusExporter exporter = new PrometheusExporter(null)) {
+            int port = exporter.serve(0);
+
+            exporter.onTestComplete(result("served", SmokeTestResult.STATE.USER_PASS, 5));
+
+            HttpURLConnection connection =
+                    (HttpURLConnection)new URL("http://localhost:" + port + PrometheusExporter.METRICS_PATH).openConnection();
+
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(PrometheusExporter.CONTENT_TYPE, connection.getContentType());
+
+            try(InputStream in = connection.getInputStream()) {
+                assertTrue(read(in).contains("smoketest_last_pass{id=\"served\"} 1\n"));
+            }
+
+            connection =
+                    (HttpURLConnection)new URL("http://localhost:" + port + PrometheusExporter.METRICS_PATH).openConnection();
+            connection.setRequestMethod("DELETE");
+
+            assertEquals(405, connection.getResponseCode());
+        }
+    }
+
+    public void testTextFileIsReplacedInOneGo() throws IOException {
+        Path directory  = Files.createTempDirectory("st-prometheus");
+        Path textFile   = directory.resolve("smoketest.prom");
+
+        try {
+            PrometheusExporter exporter = new PrometheusExporter(textFile);
+
+            exporter.onTestComplete(result("1", SmokeTestResult.STATE.USER_PASS, 5));
+            exporter.writeTextFile();
+            exporter.onTestComplete(result("2", SmokeTestResult.STATE.TIMEOUT, 5));
+            exporter.writeTextFile();
+
+            String text = new String(Files.readAllBytes(textFile), StandardCharsets.UTF_8);
+
+            assertEquals(exporter.render(), text);
+            assertTrue(text.contains("smoketest_last_pass{id=\"2\"} 0\n"));
+            assertEquals(1, directory.toFile().list().length);
+        } finally {
+            Files.deleteIfExists(textFile);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static SmokeTestResult result(final String id, final SmokeTestResult.STATE state, final long elapsedMs) {
+        return new SmokeTestResult(id, state, TimeUnit.MILLISECONDS.toNanos(elapsedMs), "");
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer               = new byte[4096];
+        int count;
+
+        while((count = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, count);
+        }
+
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
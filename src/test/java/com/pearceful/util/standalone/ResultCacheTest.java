@@ -0,0 +1,110 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestStrategy;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class ResultCacheTest extends TestCase {
+    public void testKeyChangesWithWhatIsRun() {
+        Map<String, String> env = new HashMap<>();
+        env.put("A", "1");
+        env.put("B", "2");
+
+        String key = ResultCache.key("1", "echo hello", env, "DEV");
+
+        assertEquals(key, ResultCache.key("1", "echo hello", new HashMap<>(env), "DEV"));
+        assertFalse(key.equals(ResultCache.key("2", "echo hello", env, "DEV")));
+        assertFalse(key.equals(ResultCache.key("1", "echo hello!", env, "DEV")));
+        assertFalse(key.equals(ResultCache.key("1", "echo hello", env, "UAT")));
+
+        env.put("B", "3");
+        assertFalse(key.equals(ResultCache.key("1", "echo hello", env, "DEV")));
+    }
+
+    public void testLeastRecentPassIsEvicted() {
+        ResultCache resultCache = new ResultCache(Paths.get("unused.bin"), 2);
+
+        resultCache.recordPass("aa", 1000);
+        resultCache.recordPass("bb", 2000);
+        resultCache.recordPass("aa", 3000);
+        resultCache.recordPass("cc", 4000);
+
+        assertEquals(2, resultCache.size());
+        assertEquals(ResultCache.NOT_CACHED, resultCache.getPassedAtMillis("bb"));
+        assertEquals(3000, resultCache.getPassedAtMillis("aa"));
+        assertEquals(4000, resultCache.getPassedAtMillis("cc"));
+    }
+
+    public void testSaveMergesWithTheFile() throws IOException {
+        Path cacheFile = Files.createTempFile("st-cache", ".bin");
+
+        try {
+            String key1 = ResultCache.key("1", "true", new HashMap<>(), "DEV");
+            String key2 = ResultCache.key("2", "true", new HashMap<>(), "DEV");
+
+            ResultCache first = ResultCache.load(cacheFile, 10);
+            ResultCache second = ResultCache.load(cacheFile, 10);
+
+            first.recordPass(key1, 1000);
+            first.recordPass(key2, 5000);
+            first.save();
+
+            // Saved later, but with an older pass of key2
+            second.recordPass(key2, 2000);
+            second.save();
+
+            ResultCache loaded = ResultCache.load(cacheFile, 10);
+
+            assertEquals(2, loaded.size());
+            assertEquals(1000, loaded.getPassedAtMillis(key1));
+            assertEquals(5000, loaded.getPassedAtMillis(key2));
+        } finally {
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
+    public void testUnreadableFileStartsAfresh() throws IOException {
+        Path cacheFile = Files.createTempFile("st-cache", ".bin");
+
+        try {
+            Files.write(cacheFile, "not a cache file".getBytes());
+
+            assertEquals(0, ResultCache.load(cacheFile, 10).size());
+            assertEquals(0, ResultCache.load(cacheFile.resolveSibling("missing.bin"), 10).size());
+        } finally {
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
+    public void testCoordinatorRecordsTheShardsPasses() {
+        ResultCache resultCache = new ResultCache(Paths.get("unused.bin"), 10);
+        Set<SmokeTestStrategy> smokeTestStrategies = new LinkedHashSet<>();
+
+        for(int id = 1 ; id <= 3 ; id++) {
+            TextLineTestProcessor shellScript = new TextLineTestProcessor(id, "echo " + id, "DEV", null);
+            shellScript.setResultCache(resultCache, "DEV", 60);
+            smokeTestStrategies.add(shellScript);
+        }
+
+        ConfigProcessor.recordPasses(smokeTestStrategies, Arrays.asList(
+                new SmokeTestResult("1", SmokeTestResult.STATE.USER_PASS, 0, "passed"),
+                new SmokeTestResult("2", SmokeTestResult.STATE.USER_FAIL, 0, "failed"),
+                new SmokeTestResult("3", SmokeTestResult.STATE.CACHED_PASS, 0, "cached")));
+
+        // Only the pass actually run in a shard is recorded, a cached pass keeps it's original time
+        assertEquals(1, resultCache.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.BaseSmokeTestStrategy;
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestStrategy;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class ResultSummaryTest extends TestCase {
+    public void testOnlyTheSlowestPassesAreKept() {
+        ResultSummary summary = new ResultSummary(3, ResultSummary.DEFAULT_SECTIONS, Collections.emptySet());
+
+        for(int i = 0 ; i < 10000 ; i++) {
+            summary.add(new SmokeTestResult("P" + i, SmokeTestResult.STATE.USER_PASS, i % 1000, "pass " + i));
+        }
+
+        summary.add(new SmokeTestResult("F", SmokeTestResult.STATE.USER_FAIL, 5000, "fail"));
+
+        // Slowest first, and of those that took as long the earliest first
+        List<SmokeTestResult> slowest = summary.getSlowest();
+
+        assertEquals(3, slowest.size());
+        assertEquals("P999", slowest.get(0).getId());
+        assertEquals("P1999", slowest.get(1).getId());
+        assertEquals("P2999", slowest.get(2).getId());
+        assertEquals(10001, summary.getCount());
+        assertEquals(10000, summary.getCount(SmokeTestResult.STATE.USER_PASS));
+        assertEquals(1, summary.getCount(SmokeTestResult.STATE.USER_FAIL));
+    }
+
+    public void testSectionsAreDisplayedAsChosen() {
+        Set<SmokeTestStrategy> strategies = new HashSet<>();
+        strategies.add(new GroupedStrategy("1", "db"));
+        strategies.add(new GroupedStrategy("2", "db"));
+
+        ResultSummary summary =
+                new ResultSummary(
+                        1,
+                        ResultSummary.parseSections("states, groups,FAILURES"),
+                        strategies);
+
+        summary.add(new SmokeTestResult("1", SmokeTestResult.STATE.USER_PASS, 1000000, "PASS 1"));
+        summary.add(new SmokeTestResult("2", SmokeTestResult.STATE.TIMEOUT, 3000000, "TIMEOUT 2"));
+        summary.add(new SmokeTestResult("3", SmokeTestResult.STATE.TIMEOUT, 2000000, "TIMEOUT 3"));
+        summary.add(new SmokeTestResult("4", SmokeTestResult.STATE.EXEC_ERROR, 0, "EXEC_ERROR 4"));
+
+        String printed = print(summary);
+
+        assertFalse(printed.contains("Slowest"));
+        assertFalse(printed.contains("PASS 1"));
+        assertTrue(printed.contains("STAT: USER_PASS    [1]\n"));
+        assertTrue(printed.contains("STAT: TIMEOUT      [2]\n"));
+        assertTrue(printed.contains("GRPS: group [db], count [2]"));
+
+        // The failures are grouped by state
+        assertTrue(printed.contains("FGRP: EXEC_ERROR [1]\nEXEC_ERROR 4\nFGRP: TIMEOUT [2]\nTIMEOUT 2\nTIMEOUT 3\n"));
+    }
+
+    public void testUnknownSectionsAreRejected() {
+        assertEquals(ResultSummary.DEFAULT_SECTIONS, ResultSummary.parseSections("all"));
+        assertTrue(ResultSummary.parseSections("").isEmpty());
+
+        try {
+            ResultSummary.parseSections("SLOWEST,FASTEST");
+            fail("FASTEST is not a section");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("FASTEST"));
+        }
+    }
+
+    private static String print(final ResultSummary summary) {
+        PrintStream out             = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            System.setOut(new PrintStream(bytes, true));
+            summary.print();
+        } finally {
+            System.setOut(out);
+        }
+
+        return bytes.toString().replace("\r\n", "\n");
+    }
+
+    static class GroupedStrategy extends BaseSmokeTestStrategy {
+        GroupedStrategy(final String id, final String group) {
+            this.id = id;
+
+            setGroup(group);
+        }
+
+        @Override
+        public void execute() throws SmokeTestException {
+        }
+
+        @Override
+        public SmokeTestResult validate() {
+            return new SmokeTestResult(id, SmokeTestResult.STATE.USER_PASS, 0, "");
+        }
+    }
+}
@@ -8,6 +8,22 @@ import static java.lang.Thread.sleep;
  * Created by pjp on 2015-12-26.
  */
 public class SelectorTest extends TestCase {
+    public void testGroupMarker() {
+        String line =   "#:DEV:@db:UAT: curl http://db:8080/" ;
+
+        assertEquals("db", ConfigProcessor.groupToBeSelected(line));
+        assertEquals("#:DEV:UAT: curl http://db:8080/", ConfigProcessor.stripGroup(line));
+        assertTrue(ConfigProcessor.lineToBeSelected(1, ConfigProcessor.stripGroup(line), "UAT"));
+    }
+
+    public void testNoGroupMarker() {
+        String line =   "#:DEV: echo @home" ;
+
+        assertNull(ConfigProcessor.groupToBeSelected(line));
+        assertEquals(line, ConfigProcessor.stripGroup(line));
+        assertNull(ConfigProcessor.groupToBeSelected("#@TIMEOUT_SECONDS@60"));
+    }
+
     public void testNullLeadingToken() {
         String line =   null ;
 
@@ -0,0 +1,143 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.DurationHistory;
+import com.pearceful.util.LatencyHistogram;
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestStrategy;
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class ShardCoordinatorTest extends TestCase {
+    public void testShardsAreDeterministicAndKeepDependentsTogether() {
+        Set<SmokeTestStrategy> strategies = new LinkedHashSet<>();
+        for(int i = 1 ; i <= 50 ; i++) {
+            TextLineTestProcessor processor = new TextLineTestProcessor(i, "echo " + i, "DEV", null);
+
+            if(i % 10 == 0) {
+                processor.setDependsOn(Arrays.asList("" + (i - 1)));
+            }
+
+            strategies.add(processor);
+        }
+
+        Map<String, Integer> shards = ShardCoordinator.assignShards(strategies, null, 4, false);
+
+        assertEquals(50, shards.size());
+        assertEquals(shards, ShardCoordinator.assignShards(new ArrayList<>(strategies), null, 4, false));
+
+        Set<Integer> used = new HashSet<>(shards.values());
+        assertTrue(used.size() > 1);
+
+        for(int i = 10 ; i <= 50 ; i += 10) {
+            assertEquals(shards.get("" + (i - 1)), shards.get("" + i));
+        }
+    }
+
+    public void testShardsCanBeBalancedByDuration() {
+        DurationHistory durationHistory = new DurationHistory(1);
+        Set<SmokeTestStrategy> strategies = new LinkedHashSet<>();
+
+        // One 90 unit test, then nine 10 unit tests
+        long[] durations = {90, 10, 10, 10, 10, 10, 10, 10, 10, 10};
+        for(int i = 1 ; i <= durations.length ; i++) {
+            strategies.add(new TextLineTestProcessor(i, "echo " + i, "DEV", null));
+            durationHistory.record(new SmokeTestResult("" + i, SmokeTestResult.STATE.USER_PASS, durations[i - 1], "pass"));
+        }
+
+        Map<String, Integer> shards = ShardCoordinator.assignShards(strategies, durationHistory, 2, true);
+
+        long[] loads = new long[2];
+        for(int i = 1 ; i <= durations.length ; i++) {
+            loads[shards.get("" + i)] += durations[i - 1];
+        }
+
+        assertEquals(90, loads[0]);
+        assertEquals(90, loads[1]);
+    }
+
+    public void testResultsSurviveTheWire() throws IOException {
+        SmokeTestResult result =
+                new SmokeTestResult("id1", SmokeTestResult.STATE.USER_FAIL, 1234, "failed é")
+                        .withAttempts(new long[] {1000, 1234});
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardCoordinator.writeResult(new DataOutputStream(bytes), result);
+
+        SmokeTestResult read =
+                ShardCoordinator.readResult(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(result.toString(), read.toString());
+        assertTrue(Arrays.equals(result.getAttemptElapsedNanoSeconds(), read.getAttemptElapsedNanoSeconds()));
+        assertNull(read.getLatencyHistogram());
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        latencies.record(1000);
+        latencies.record(2000000);
+
+        bytes.reset();
+        ShardCoordinator.writeResult(new DataOutputStream(bytes), result.withLatencies(latencies));
+
+        read = ShardCoordinator.readResult(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(latencies.toString(), read.getLatencyHistogram().toString());
+        assertEquals(2, read.getAttempts());
+        assertTrue(read.getPhaseNanoSeconds().isEmpty());
+
+        Map<SmokeTestResult.PHASE, Long> phases = new EnumMap<>(SmokeTestResult.PHASE.class);
+        phases.put(SmokeTestResult.PHASE.SPAWN, 5000L);
+        phases.put(SmokeTestResult.PHASE.RUN, 1000000L);
+
+        bytes.reset();
+        ShardCoordinator.writeResult(new DataOutputStream(bytes), result.withPhases(phases));
+
+        read = ShardCoordinator.readResult(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(phases, read.getPhaseNanoSeconds());
+    }
+
+    public void testWorkerJvmsRunTheShards() throws IOException, SmokeTestException {
+        if(ConfigProcessor.onWindows()) return;
+
+        Path scripts = Files.createTempFile("st-shards", ".txt");
+
+        try {
+            Files.write(scripts, Arrays.asList(
+                    "#:+: echo one",
+                    "#:+: echo two",
+                    "#:+: exit 3",
+                    "#:+: echo four"));
+
+            Set<SmokeTestStrategy> strategies = new LinkedHashSet<>();
+            for(int i = 1 ; i <= 4 ; i++) {
+                strategies.add(new TextLineTestProcessor(i, "", "DEV", null));
+            }
+
+            System.setProperty(ShardCoordinator.SHARDS_KEY, "2");
+
+            List<SmokeTestResult> results = ShardCoordinator.coordinate(
+                    TextLineConfigProcessor.class,
+                    new String[] {scripts.toString(), "DEV"},
+                    strategies,
+                    null,
+                    30);
+
+            assertEquals(4, results.size());
+            assertEquals("1", results.get(0).getId());
+            assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(0).getState());
+            assertTrue(results.get(1).getMessage().contains("two"));
+            assertEquals(SmokeTestResult.STATE.USER_FAIL, results.get(2).getState());
+            assertEquals(SmokeTestResult.STATE.USER_PASS, results.get(3).getState());
+        } finally {
+            System.clearProperty(ShardCoordinator.SHARDS_KEY);
+            Files.deleteIfExists(scripts);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestResult;
+import com.pearceful.util.SmokeTestRunner;
+import com.pearceful.util.SmokeTestStrategy;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class SmokeTestDaemonTest extends TestCase {
+    public void testTestsAreReRunWithoutOverlapping() throws SmokeTestException, InterruptedException {
+        if(ConfigProcessor.onWindows()) return;
+
+        Set<SmokeTestStrategy> strategies = new LinkedHashSet<>();
+        strategies.add(new TextLineTestProcessor(1, "echo quick", "DEV", null));
+        strategies.add(new TextLineTestProcessor(2, "sleep 2; echo slow", "DEV", null));
+
+        SmokeTestSuite suite = newSuite(strategies);
+
+        try(SmokeTestDaemon daemon = new SmokeTestDaemon(() -> suite, null, 1, 50)) {
+            daemon.start();
+
+            Thread.sleep(3500);
+
+            Map<String, SmokeTestResult> latestResults = daemon.getLatestResults();
+
+            assertEquals(SmokeTestResult.STATE.USER_PASS, latestResults.get("1").getState());
+            assertEquals(SmokeTestResult.STATE.USER_PASS, latestResults.get("2").getState());
+
+            // The quick test ran every second, the slow one couldn't start again while still running
+            assertTrue(daemon.getCompletedCount() >= 4);
+            assertTrue(daemon.getSkippedOverlaps() >= 1);
+        }
+    }
+
+    public void testScheduleSurvivesAReload() throws IOException, SmokeTestException, InterruptedException {
+        if(ConfigProcessor.onWindows()) return;
+
+        Path configFile = Files.createTempFile("st-daemon", ".txt");
+
+        try {
+            List<SmokeTestStrategy> tests = Collections.synchronizedList(new ArrayList<>());
+            tests.add(new TextLineTestProcessor(1, "echo one", "DEV", null));
+
+            try(SmokeTestDaemon daemon =
+                        new SmokeTestDaemon(() -> newSuite(new LinkedHashSet<>(tests)), configFile, 60, 50)) {
+                daemon.start();
+
+                Thread.sleep(500);
+                assertEquals(1, daemon.getCompletedCount());
+
+                // The new test runs straight away, the old one isn't due for another minute
+                tests.add(new TextLineTestProcessor(2, "echo two", "DEV", null));
+                Files.setLastModifiedTime(configFile, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+                Thread.sleep(500);
+                assertEquals(2, daemon.getCompletedCount());
+                assertTrue(daemon.getLatestResults().get("2").getMessage().contains("two"));
+            }
+        } finally {
+            Files.deleteIfExists(configFile);
+        }
+    }
+
+    private static SmokeTestSuite newSuite(final Set<SmokeTestStrategy> strategies) {
+        return new SmokeTestSuite(
+                strategies,
+                SmokeTestRunner.builder().maxConcurrentTests(2).timeoutInSeconds(10),
+                10,
+                null,
+                null,
+                Collections.emptyMap(),
+                null);
+    }
+}
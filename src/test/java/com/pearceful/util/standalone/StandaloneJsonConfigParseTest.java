@@ -89,6 +89,11 @@ public class StandaloneJsonConfigParseTest extends TestCase {
         assertEquals(2, testDef.getRunTags().size());
         assertEquals("DEV", testDef.getRunTags().get(0));
         assertEquals("SIT", testDef.getRunTags().get(1));
+        assertEquals(30, testDef.getTimeoutSeconds());
+        assertTrue(testDef.getDependsOn().isEmpty());
+        assertEquals(3, testDef.getRetryPolicy().getMaxAttempts());
+        assertEquals(500, testDef.getRetryPolicy().getBackoffMs());
+        assertEquals(5000, testDef.getRetryPolicy().getMaxBackoffMs());
 
         ////////////////////////////////////////////////////////////////////////////////
         testDef = config.testDefinitions.get(3);
@@ -99,6 +104,10 @@ public class StandaloneJsonConfigParseTest extends TestCase {
                 testDef.getCmd());
 
         assertEquals(StandaloneJsonConfig.JsonTestDefinition.RUN.UNLESS_TAG_MATCHES, testDef.getRun());
+        assertEquals(CommandTestProcessor.NO_TIMEOUT, testDef.getTimeoutSeconds());
+        assertEquals(1, testDef.getDependsOn().size());
+        assertEquals("id2", testDef.getDependsOn().get(0));
+        assertEquals(1, testDef.getRetryPolicy().getMaxAttempts());
 
         ////////////////////////////////////////////////////////////////////////////////
         testDef = config.testDefinitions.get(4);
@@ -0,0 +1,89 @@
+package com.pearceful.util.standalone;
+
+import com.pearceful.util.SmokeTestException;
+import com.pearceful.util.SmokeTestStrategy;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Created by pjp on 2026-10-18.
+ */
+public class TextLineConfigProcessorTest extends TestCase {
+    public void testStreamedSuiteHoldsNoCommandLines() throws IOException, SmokeTestException {
+        Path configFile = Files.createTempFile("st-suite", ".txt");
+
+        try {
+            Files.write(configFile, Arrays.asList(
+                    "#:DEV: echo one",
+                    "#:UAT: echo skipped",
+                    "#@THREAD_POOL_SIZE@3",
+                    "#:DEV: echo two"));
+
+            SmokeTestSuite held     = TextLineConfigProcessor.loadSuite(configFile, "DEV", null, false);
+            SmokeTestSuite streamed = TextLineConfigProcessor.loadSuite(configFile, "DEV", null, true);
+
+            assertFalse(held.isStreamed());
+            assertEquals(2, held.getSmokeTestStrategies().size());
+
+            // The settings are read up front, the command lines only as they are pulled, every time it is opened
+            assertTrue(streamed.isStreamed());
+            assertTrue(streamed.getSmokeTestStrategies().isEmpty());
+
+            for(int open = 0 ; open < 2 ; open++) {
+                try(Stream<SmokeTestStrategy> tests = streamed.openTests()) {
+                    assertEquals(
+                            Arrays.asList("echo one", "echo two"),
+                            tests.map(test -> ((TextLineTestProcessor)test).getCmdLine()).collect(Collectors.toList()));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(configFile);
+        }
+    }
+
+    public void testSuitesAreOnlyStreamedWhenAskedTo() {
+        // The longest first ordering, MAX_FAILURE_PERCENT and the rest need the whole suite
+        assertNull(System.getProperty(ConfigProcessor.STREAM_SUITE_KEY));
+        assertFalse(ConfigProcessor.isStreamed());
+
+        System.setProperty(ConfigProcessor.STREAM_SUITE_KEY, "true");
+
+        try {
+            assertTrue(ConfigProcessor.isStreamed());
+        } finally {
+            System.clearProperty(ConfigProcessor.STREAM_SUITE_KEY);
+        }
+    }
+
+    public void testInvalidGroupLimitsAreReportedWithTheLineNumber() throws IOException {
+        Path configFile = Files.createTempFile("st-suite", ".txt");
+
+        try {
+            for(String groupLimit : new String[] {"db", "db=many", "=2", "db=0", "db=1=2"}) {
+                Files.write(configFile, Arrays.asList("#:DEV: echo one", "#@GROUP_LIMIT@" + groupLimit));
+
+                try {
+                    TextLineConfigProcessor.loadSuite(configFile, "DEV", null);
+                    fail("Expected [" + groupLimit + "] to be rejected");
+                } catch (SmokeTestException e) {
+                    assertTrue(e.getMessage(), e.getMessage().contains("[" + groupLimit + "] on line 2"));
+                }
+            }
+
+            Files.write(configFile, Arrays.asList("#@GROUP_LIMIT@ db = 2", "#:DEV:@db: echo one"));
+
+            SmokeTestSuite suite = TextLineConfigProcessor.loadSuite(configFile, "DEV", null);
+            assertEquals(1, suite.getSmokeTestStrategies().size());
+        } catch (SmokeTestException e) {
+            fail(e.getMessage());
+        } finally {
+            Files.deleteIfExists(configFile);
+        }
+    }
+}